@@ -13,6 +13,8 @@
 package de.cau.cs.kieler.klighd.incremental.diff;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.MapDifference.ValueDifference;
@@ -34,6 +36,7 @@ public class KComparison {
     private UIDAdapter baseAdapter;
     private UIDAdapter newAdapter;
     private MapDifference<String, KNode> nodeDifference;
+    private Collection<KNode> addedNodes;
 
     /**
      * Create new comparison.
@@ -47,6 +50,9 @@ public class KComparison {
         this.baseAdapter = baseAdapter;
         this.newAdapter = newAdapter;
         nodeDifference = Maps.difference(baseAdapter.getNodeMap(), newAdapter.getNodeMap());
+        // the merger checks the containment of nodes in the added ones, so keep them in a set
+        addedNodes = Collections.unmodifiableSet(
+                new LinkedHashSet<KNode>(nodeDifference.entriesOnlyOnRight().values()));
     }
 
     /**
@@ -161,7 +167,7 @@ public class KComparison {
      * @return the newly added nodes.
      */
     public Collection<KNode> getAddedNodes() {
-        return nodeDifference.entriesOnlyOnRight().values();
+        return addedNodes;
     }
 
     /**
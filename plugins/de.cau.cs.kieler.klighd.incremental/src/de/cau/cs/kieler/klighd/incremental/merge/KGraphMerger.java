@@ -61,6 +61,9 @@ public class KGraphMerger {
     /** The filter to determine, which KGraphData to merge. */
     private Predicate<KGraphData> filter;
     
+    /** The merger updating the renderings of matched elements in place. */
+    private KRenderingMerger renderingMerger = new KRenderingMerger();
+    
     /** A map that gets filled with all updated elements for post-processing. */
     private Map<KGraphElement, KGraphElement> updatedElements = new HashMap<>();
 
@@ -430,7 +433,8 @@ public class KGraphMerger {
     }
 
     /**
-     * Update general graph element information such as {@link KGraphData} and properties.
+     * Update general graph element information such as {@link KGraphData} and properties. The
+     * renderings are updated in place if they match structurally, see {@link KRenderingMerger}.
      * 
      * @see {@link #filter graph data filter}
      * @param baseElement
@@ -442,9 +446,12 @@ public class KGraphMerger {
             final KGraphElement newElement) {
         List<KGraphData> baseData = baseElement.getData();
         List<KGraphData> newData = newElement.getData();
-        baseData.removeIf(filter);
-        newData.removeIf(filter.negate());
-        baseData.addAll(newData);
+        // Update matching renderings in place, so that the viewers don't need to rebuild the figures.
+        if (!renderingMerger.mergeData(baseData, newData, filter)) {
+            baseData.removeIf(filter);
+            newData.removeIf(filter.negate());
+            baseData.addAll(newData);
+        }
         baseElement.copyProperties(newElement);
         EMap<IProperty<?>, Object> baseProperties = baseElement.getProperties();
         LinkedList<IProperty<?>> removedProperties = Lists.newLinkedList(
@@ -0,0 +1,249 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.incremental.merge;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import de.cau.cs.kieler.klighd.kgraph.EMapPropertyHolder;
+import de.cau.cs.kieler.klighd.kgraph.KGraphData;
+import de.cau.cs.kieler.klighd.kgraph.KGraphPackage;
+import de.cau.cs.kieler.klighd.krendering.KRendering;
+import de.cau.cs.kieler.klighd.krendering.KRenderingPackage;
+
+/**
+ * Merges the {@link KRendering KRenderings} of a graph element of the new model into the ones of
+ * the corresponding element of the base model in place, instead of replacing them.<br>
+ * <br>
+ * The renderings are merged if both elements have the same number of renderings and these match
+ * structurally, i.e. the renderings and all their contained objects are of the same classes, have
+ * the same numbers of children, points, actions, etc., and carry equal properties. The attributes
+ * of the base renderings are then updated to the new values, which allows the viewers to apply
+ * the changes to the existing figures, e.g. by just re-applying the styles if only a color
+ * changed. The {@link de.cau.cs.kieler.klighd.krendering.KStyle KStyles} of a rendering are
+ * updated in place if they match structurally, too, and are replaced otherwise.
+ *
+ * @author nre
+ */
+final class KRenderingMerger {
+
+    private static final EStructuralFeature PROPERTIES =
+            KGraphPackage.Literals.EMAP_PROPERTY_HOLDER__PROPERTIES;
+
+    private static final EStructuralFeature PERSISTENT_ENTRIES =
+            KGraphPackage.Literals.EMAP_PROPERTY_HOLDER__PERSISTENT_ENTRIES;
+
+    private static final EStructuralFeature STYLES =
+            KRenderingPackage.Literals.KSTYLE_HOLDER__STYLES;
+
+    /**
+     * The objects of the new renderings mapped to their counterparts in the base renderings, used
+     * to redirect references between the objects of a rendering.
+     */
+    private final Map<EObject, EObject> newToBase = new IdentityHashMap<>();
+
+    /**
+     * Merges the renderings contained in the given new data into the renderings contained in the
+     * given base data, if they match structurally. The other data passing the filter are
+     * replaced like before.
+     *
+     * @param baseData
+     *            the data of the element to update to.
+     * @param newData
+     *            the data of the element to update from.
+     * @param filter
+     *            the filter defining which {@link KGraphData} is merged.
+     * @return <code>true</code> if the renderings were merged and the data are up to date,
+     *         <code>false</code> if nothing has been changed since the renderings don't match.
+     */
+    boolean mergeData(final List<KGraphData> baseData, final List<KGraphData> newData,
+            final Predicate<KGraphData> filter) {
+        final List<KRendering> baseRenderings = new ArrayList<>();
+        for (final KGraphData data : baseData) {
+            if (data instanceof KRendering && filter.test(data)) {
+                baseRenderings.add((KRendering) data);
+            }
+        }
+        final List<KRendering> newRenderings = new ArrayList<>();
+        final List<KGraphData> newOtherData = new ArrayList<>();
+        for (final KGraphData data : newData) {
+            if (data instanceof KRendering && filter.test(data)) {
+                newRenderings.add((KRendering) data);
+            } else if (filter.test(data)) {
+                newOtherData.add(data);
+            }
+        }
+
+        if (baseRenderings.isEmpty() || baseRenderings.size() != newRenderings.size()) {
+            return false;
+        }
+        for (int i = 0; i < baseRenderings.size(); i++) {
+            if (!canMerge(baseRenderings.get(i), newRenderings.get(i), newToBase)) {
+                newToBase.clear();
+                return false;
+            }
+        }
+
+        for (int i = 0; i < baseRenderings.size(); i++) {
+            merge(baseRenderings.get(i), newRenderings.get(i));
+        }
+        newToBase.clear();
+
+        baseData.removeIf(data -> !(data instanceof KRendering) && filter.test(data));
+        baseData.addAll(newOtherData);
+        return true;
+    }
+
+    /**
+     * Checks whether the given new object can be merged into the given base object, and records
+     * the corresponding objects in the given map.
+     */
+    private static boolean canMerge(final EObject base, final EObject newObject,
+            final Map<EObject, EObject> correspondences) {
+        if (base.eClass() != newObject.eClass()) {
+            return false;
+        }
+        correspondences.put(newObject, base);
+
+        for (final EStructuralFeature feature : base.eClass().getEAllStructuralFeatures()) {
+            if (feature.isDerived() || feature == PERSISTENT_ENTRIES || feature == STYLES) {
+                // styles are replaced if they don't match, see #merge(EObject, EObject)
+                continue;
+
+            } else if (feature == PROPERTIES) {
+                if (!((EMapPropertyHolder) base).getAllProperties().equals(
+                        ((EMapPropertyHolder) newObject).getAllProperties())) {
+                    return false;
+                }
+
+            } else if (feature instanceof EReference && ((EReference) feature).isContainment()) {
+                if (feature.isMany()) {
+                    final List<?> baseList = (List<?>) base.eGet(feature);
+                    final List<?> newList = (List<?>) newObject.eGet(feature);
+                    if (baseList.size() != newList.size()) {
+                        return false;
+                    }
+                    for (int i = 0; i < baseList.size(); i++) {
+                        if (!canMerge((EObject) baseList.get(i), (EObject) newList.get(i),
+                                correspondences)) {
+                            return false;
+                        }
+                    }
+                } else {
+                    final EObject baseChild = (EObject) base.eGet(feature);
+                    final EObject newChild = (EObject) newObject.eGet(feature);
+                    if (baseChild == null || newChild == null) {
+                        if (baseChild != newChild) {
+                            return false;
+                        }
+                    } else if (!canMerge(baseChild, newChild, correspondences)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates the attributes and references of the given base object to the ones of the given new
+     * object, which has been checked by {@link #canMerge(EObject, EObject, Map)} before.
+     */
+    @SuppressWarnings("unchecked")
+    private void merge(final EObject base, final EObject newObject) {
+        for (final EStructuralFeature feature : base.eClass().getEAllStructuralFeatures()) {
+            if (feature.isDerived() || !feature.isChangeable() || feature == PERSISTENT_ENTRIES
+                    || feature == PROPERTIES) {
+                continue;
+
+            } else if (feature == STYLES) {
+                mergeStyles((List<EObject>) base.eGet(feature),
+                        (List<EObject>) newObject.eGet(feature));
+
+            } else if (feature instanceof EAttribute) {
+                if (feature.isUnsettable() && !newObject.eIsSet(feature)) {
+                    if (base.eIsSet(feature)) {
+                        base.eUnset(feature);
+                    }
+                } else {
+                    final Object newValue = newObject.eGet(feature);
+                    if (!Objects.equals(base.eGet(feature), newValue)) {
+                        base.eSet(feature, newValue);
+                    }
+                }
+
+            } else if (((EReference) feature).isContainment()) {
+                if (feature.isMany()) {
+                    final List<EObject> baseList = (List<EObject>) base.eGet(feature);
+                    final List<EObject> newList = (List<EObject>) newObject.eGet(feature);
+                    for (int i = 0; i < baseList.size(); i++) {
+                        merge(baseList.get(i), newList.get(i));
+                    }
+                } else {
+                    final EObject newChild = (EObject) newObject.eGet(feature);
+                    if (newChild != null) {
+                        merge((EObject) base.eGet(feature), newChild);
+                    }
+                }
+
+            } else if (!((EReference) feature).isContainer()) {
+                if (feature.isMany()) {
+                    final List<EObject> newTargets = new ArrayList<>();
+                    for (final EObject target : (List<EObject>) newObject.eGet(feature)) {
+                        newTargets.add(newToBase.getOrDefault(target, target));
+                    }
+                    if (!base.eGet(feature).equals(newTargets)) {
+                        base.eSet(feature, newTargets);
+                    }
+                } else {
+                    final Object target = newObject.eGet(feature);
+                    final Object newTarget = newToBase.getOrDefault(target, target);
+                    if (base.eGet(feature) != newTarget) {
+                        base.eSet(feature, newTarget);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the given base styles in place if they match the new ones structurally, and
+     * replaces them otherwise.
+     */
+    private void mergeStyles(final List<EObject> baseStyles, final List<EObject> newStyles) {
+        boolean mergeable = baseStyles.size() == newStyles.size();
+        final Map<EObject, EObject> styleCorrespondences = new IdentityHashMap<>();
+        for (int i = 0; mergeable && i < baseStyles.size(); i++) {
+            mergeable = canMerge(baseStyles.get(i), newStyles.get(i), styleCorrespondences);
+        }
+
+        if (mergeable) {
+            newToBase.putAll(styleCorrespondences);
+            for (int i = 0; i < baseStyles.size(); i++) {
+                merge(baseStyles.get(i), newStyles.get(i));
+            }
+        } else {
+            baseStyles.clear();
+            baseStyles.addAll(new ArrayList<>(newStyles));
+        }
+    }
+}
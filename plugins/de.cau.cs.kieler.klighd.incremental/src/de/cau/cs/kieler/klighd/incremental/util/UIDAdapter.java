@@ -12,7 +12,9 @@
  */
 package de.cau.cs.kieler.klighd.incremental.util;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.emf.common.notify.Notification;
@@ -43,7 +45,7 @@ import de.cau.cs.kieler.klighd.util.KlighdPredicates;
  * following fallbacks are used:
  * <dl>
  * <dt>KNode</dt>
- * <dd>Concatenated labels.<br/>
+ * <dd>Concatenated labels, shortened and supplemented by their hash code if they are too long.<br/>
  * If no labels are present, the index in the parent's list of children.</dd>
  * <dt>KEdge</dt>
  * <dd>The source port's and target node's and port's ids, if applicable.</dd>
@@ -52,7 +54,10 @@ import de.cau.cs.kieler.klighd.util.KlighdPredicates;
  * <dt>KPort</dt>
  * <dd>The index in the parent's list of ports.</d>
  * </dl>
- * Any ID clashes are then resolved by consecutive numbering.
+ * Any ID clashes are then resolved by consecutive numbering.<br/>
+ * <br/>
+ * {@link #generateIDs(KNode)} determines the indices of the elements while traversing the graph and remembers the
+ * numbers used for resolving clashes, such that the ids of the whole graph are computed in linear time.
  * 
  * @author csp, nre
  */
@@ -62,10 +67,23 @@ public class UIDAdapter extends EContentAdapter {
             KlighdPredicates.instanceOf(KNode.class, KLabel.class, KEdge.class, KPort.class);
     private static final String ID_SEPARATOR = "$";
     private static final String DANGLING_ELEMENT = "dangling";
+    private static final String COPY_SEPARATOR = ID_SEPARATOR + ID_SEPARATOR + "copy";
+    /** The maximal length of local ids derived from label texts, longer ones are shortened and hashed. */
+    private static final int MAX_LABEL_ID_LENGTH = 64;
+    /** Marker for indices that are not known yet and need to be looked up in the parent's list. */
+    private static final int UNKNOWN_INDEX = -1;
     private BiMap<String, KNode> nodes = HashBiMap.create();
     private BiMap<String, KEdge> edges = HashBiMap.create();
     private BiMap<String, KLabel> labels = HashBiMap.create();
     private BiMap<String, KPort> ports = HashBiMap.create();
+    /**
+     * The numbers to start with when looking for a free copy id of a clashing id, per kind of element. They are never
+     * greater than the lowest free number.
+     */
+    private Map<String, Integer> nodeCopyNumbers = new HashMap<>();
+    private Map<String, Integer> edgeCopyNumbers = new HashMap<>();
+    private Map<String, Integer> labelCopyNumbers = new HashMap<>();
+    private Map<String, Integer> portCopyNumbers = new HashMap<>();
 
     /**
      * Get the associated id.
@@ -319,6 +337,19 @@ public class UIDAdapter extends EContentAdapter {
      * @return the new or existing id, or {@code null} if the id is already taken.
      */
     private String addId(final KNode node) {
+        return addId(node, UNKNOWN_INDEX);
+    }
+
+    /**
+     * Add a new node id to the map like {@link #addId(KNode)}.
+     * 
+     * @param node
+     *            the node to add.
+     * @param index
+     *            the index of the node in its parent's list of children, or {@link #UNKNOWN_INDEX}.
+     * @return the new or existing id, or {@code null} if the id is already taken.
+     */
+    private String addId(final KNode node, final int index) {
         String id = getId(node);
         if (id != null) {
             return id;
@@ -335,11 +366,9 @@ public class UIDAdapter extends EContentAdapter {
             if (identifier != null) {
                 localId = identifier.getId();
             } else if (node.getLabels().size() > 0) {
-                for (KLabel label : node.getLabels()) {
-                    localId += label.getText();
-                }
+                localId = labelId(node);
             } else {
-                localId = "N" + parent.getChildren().indexOf(node);
+                localId = "N" + (index == UNKNOWN_INDEX ? parent.getChildren().indexOf(node) : index);
             }
         }
         id = parentId + ID_SEPARATOR + localId;
@@ -347,7 +376,7 @@ public class UIDAdapter extends EContentAdapter {
             // This is a dangling element and should not be included in the graph. Give it a unique ID anyway.
             id = DANGLING_ELEMENT + node.hashCode();
         }
-        id = resolveIDClash(id, nodes);
+        id = resolveIDClash(id, nodes, nodeCopyNumbers);
         nodes.put(id, node);
         return id;
     }
@@ -396,7 +425,7 @@ public class UIDAdapter extends EContentAdapter {
             }
             id = parentId + ID_SEPARATOR + localId;
         }
-        id = resolveIDClash(id, edges);
+        id = resolveIDClash(id, edges, edgeCopyNumbers);
         edges.put(id, edge);
         return id;
     }
@@ -410,6 +439,19 @@ public class UIDAdapter extends EContentAdapter {
      * @return the new or existing id, or {@code null} if the id is already taken.
      */
     private String addId(final KLabel label) {
+        return addId(label, UNKNOWN_INDEX);
+    }
+
+    /**
+     * Add a new label id to the map like {@link #addId(KLabel)}.
+     * 
+     * @param label
+     *            the label to add.
+     * @param index
+     *            the index of the label in its parent's list of labels, or {@link #UNKNOWN_INDEX}.
+     * @return the new or existing id, or {@code null} if the id is already taken.
+     */
+    private String addId(final KLabel label, final int index) {
         String id = getId(label);
         if (id != null) {
             return id;
@@ -432,11 +474,11 @@ public class UIDAdapter extends EContentAdapter {
             if (identifier != null) {
                 localId = identifier.getId();
             } else {
-                localId = "L" + parent.getLabels().indexOf(label);
+                localId = "L" + (index == UNKNOWN_INDEX ? parent.getLabels().indexOf(label) : index);
             }
             id = parentId + ID_SEPARATOR + localId;
         }
-        id = resolveIDClash(id, labels);
+        id = resolveIDClash(id, labels, labelCopyNumbers);
         labels.put(id, label);
         return id;
     }
@@ -450,6 +492,19 @@ public class UIDAdapter extends EContentAdapter {
      * @return the new or existing id, or {@code null} if the id is already taken.
      */
     private String addId(final KPort port) {
+        return addId(port, UNKNOWN_INDEX);
+    }
+
+    /**
+     * Add a new port id to the map like {@link #addId(KPort)}.
+     * 
+     * @param port
+     *          the port to add.
+     * @param index
+     *          the index of the port in its parent's list of ports, or {@link #UNKNOWN_INDEX}.
+     * @return the new or existing id, or {@code null} if the id is already taken.
+     */
+    private String addId(final KPort port, final int index) {
         String id = getId(port);
         if (id != null) {
             return id;
@@ -465,11 +520,11 @@ public class UIDAdapter extends EContentAdapter {
             if (identifier != null) {
                 localId = identifier.getId();
             } else {
-                localId = "P" + parent.getPorts().indexOf(port);
+                localId = "P" + (index == UNKNOWN_INDEX ? parent.getPorts().indexOf(port) : index);
             }
             id = parentId + ID_SEPARATOR + localId;
         }
-        id = resolveIDClash(id, ports);
+        id = resolveIDClash(id, ports, portCopyNumbers);
         ports.put(id, port);
         return id;
     }
@@ -479,22 +534,73 @@ public class UIDAdapter extends EContentAdapter {
      * 
      * @param id The possibly clashing ID
      * @param elements the map to check the clash in
+     * @param copyNumbers the numbers to start with for the ids in {@code elements}
      * @return an ID that does not clash with any other id in {@code elements}.
      */
-    private String resolveIDClash(final String id, final BiMap<String, ? extends KGraphElement> elements) {
+    private String resolveIDClash(final String id, final BiMap<String, ? extends KGraphElement> elements,
+            final Map<String, Integer> copyNumbers) {
         if (elements.containsKey(id)) {
-            int cnt = 2;
+            int cnt = copyNumbers.getOrDefault(id, 2);
             String copyId;
             do {
-                copyId = id + ID_SEPARATOR + ID_SEPARATOR + "copy" + cnt;
+                copyId = id + COPY_SEPARATOR + cnt;
                 cnt++;
             } while (elements.containsKey(copyId));
+            copyNumbers.put(id, cnt);
             return copyId;
         } else {
             return id;
         }
     }
 
+    /**
+     * Updates the number to start with when resolving clashes of the id the given removed id is a copy of, such that
+     * the removed id's number is found again.
+     * 
+     * @param removedId the removed id, may be {@code null}.
+     * @param copyNumbers the numbers to start with for the ids of the removed element's kind
+     */
+    private void releaseCopyNumber(final String removedId, final Map<String, Integer> copyNumbers) {
+        if (removedId == null) {
+            return;
+        }
+        final int separator = removedId.lastIndexOf(COPY_SEPARATOR);
+        if (separator < 0) {
+            return;
+        }
+        final int number;
+        try {
+            number = Integer.parseInt(removedId.substring(separator + COPY_SEPARATOR.length()));
+        } catch (NumberFormatException e) {
+            // the separator is part of a label text
+            return;
+        }
+        final String id = removedId.substring(0, separator);
+        final Integer next = copyNumbers.get(id);
+        if (next != null && next > number) {
+            copyNumbers.put(id, number);
+        }
+    }
+
+    /**
+     * Concatenates the texts of the given node's labels. Long results are shortened and supplemented by their hash
+     * code in order to keep the ids of deeply nested elements small.
+     * 
+     * @param node the labeled node.
+     * @return the local id derived from the labels.
+     */
+    private String labelId(final KNode node) {
+        final StringBuilder labelTexts = new StringBuilder();
+        for (KLabel label : node.getLabels()) {
+            labelTexts.append(label.getText());
+        }
+        if (labelTexts.length() <= MAX_LABEL_ID_LENGTH) {
+            return labelTexts.toString();
+        }
+        final String texts = labelTexts.toString();
+        return texts.substring(0, MAX_LABEL_ID_LENGTH) + "#" + Integer.toHexString(texts.hashCode());
+    }
+
     /**
      * remove the given node and its associated id.
      * 
@@ -502,7 +608,7 @@ public class UIDAdapter extends EContentAdapter {
      *            the node to remove.
      */
     private void removeId(final KNode node) {
-        nodes.inverse().remove(node);
+        releaseCopyNumber(nodes.inverse().remove(node), nodeCopyNumbers);
     }
 
     /**
@@ -512,7 +618,7 @@ public class UIDAdapter extends EContentAdapter {
      *            the edge to remove.
      */
     private void removeId(final KEdge edge) {
-        edges.inverse().remove(edge);
+        releaseCopyNumber(edges.inverse().remove(edge), edgeCopyNumbers);
     }
 
     /**
@@ -522,7 +628,7 @@ public class UIDAdapter extends EContentAdapter {
      *            the label to remove.
      */
     private void removeId(final KLabel label) {
-        labels.inverse().remove(label);
+        releaseCopyNumber(labels.inverse().remove(label), labelCopyNumbers);
     }
     
     /**
@@ -532,7 +638,7 @@ public class UIDAdapter extends EContentAdapter {
      *          the port to remove.
      */
     private void removeId(final KPort port) {
-        ports.inverse().remove(port);
+        releaseCopyNumber(ports.inverse().remove(port), portCopyNumbers);
     }
 
     /**
@@ -541,20 +647,46 @@ public class UIDAdapter extends EContentAdapter {
      * @param node the node to start generating IDs from.
      */
     public void generateIDs(final KNode node) {
-        addId(node);
+        // edge IDs are composed of the IDs of their target nodes and ports, so generate those first
+        // to be able to pass their indices instead of looking them up for each edge
+        generateIDs(node, UNKNOWN_INDEX);
+        generateEdgeIDs(node);
+    }
+
+    /**
+     * Generate IDs recursively for this {@link KNode} and all its child nodes, ports, and labels,
+     * passing the indices of the elements on the way instead of looking them up.
+     * 
+     * @param node the node to start generating IDs from.
+     * @param index the index of the node in its parent's list of children, or {@link #UNKNOWN_INDEX}.
+     */
+    private void generateIDs(final KNode node, final int index) {
+        addId(node, index);
         
+        int childIndex = 0;
         for (KNode childNode : node.getChildren()) {
-            generateIDs(childNode);
+            generateIDs(childNode, childIndex++);
         }
+        int portIndex = 0;
         for (KPort port : node.getPorts()) {
-            generateIDs(port);
-        }
-        for (KLabel label : node.getLabels()) {
-            generateIDs(label);
+            generateIDs(port, portIndex++);
         }
+        generateLabelIDs(node);
+    }
+
+    /**
+     * Generate IDs recursively for the outgoing {@link KEdge}s of this {@link KNode} and of all its
+     * child nodes.
+     * 
+     * @param node the node to start generating edge IDs from.
+     */
+    private void generateEdgeIDs(final KNode node) {
         for (KEdge edge : node.getOutgoingEdges()) {
             generateIDs(edge);
         }
+        for (KNode childNode : node.getChildren()) {
+            generateEdgeIDs(childNode);
+        }
     }
     
     /**
@@ -563,11 +695,18 @@ public class UIDAdapter extends EContentAdapter {
      * @param port the port to start generating IDs from.
      */
     public void generateIDs(final KPort port) {
-        addId(port);
-        
-        for (KLabel label : port.getLabels()) {
-            generateIDs(label);
-        }
+        generateIDs(port, UNKNOWN_INDEX);
+    }
+
+    /**
+     * Generate IDs recursively for this {@link KPort} and all its child {@link KGraphElement}s.
+     * 
+     * @param port the port to start generating IDs from.
+     * @param index the index of the port in its node's list of ports, or {@link #UNKNOWN_INDEX}.
+     */
+    private void generateIDs(final KPort port, final int index) {
+        addId(port, index);
+        generateLabelIDs(port);
     }
     
     /**
@@ -586,9 +725,18 @@ public class UIDAdapter extends EContentAdapter {
      */
     public void generateIDs(final KEdge edge) {
         addId(edge);
-        
-        for (KLabel label : edge.getLabels()) {
-            generateIDs(label);
+        generateLabelIDs(edge);
+    }
+
+    /**
+     * Generate IDs for the labels of the given element.
+     * 
+     * @param element the labeled element.
+     */
+    private void generateLabelIDs(final KLabeledGraphElement element) {
+        int labelIndex = 0;
+        for (KLabel label : element.getLabels()) {
+            addId(label, labelIndex++);
         }
     }
 
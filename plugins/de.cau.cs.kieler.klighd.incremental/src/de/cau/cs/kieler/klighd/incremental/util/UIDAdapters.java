@@ -25,7 +25,8 @@ import de.cau.cs.kieler.klighd.kgraph.KNode;
  */
 public final class UIDAdapters {
 
-    private static Map<KNode, WeakReference<UIDAdapter>> adapters =
+    /** the adapters of the nodes, access must be synchronized on this map. */
+    private static final Map<KNode, WeakReference<UIDAdapter>> adapters =
             new WeakHashMap<KNode, WeakReference<UIDAdapter>>();
 
     private UIDAdapters() {
@@ -40,20 +41,26 @@ public final class UIDAdapters {
      * @return the existing or newly created adapter.
      */
     public static UIDAdapter retrieveAdapter(final KNode node) {
-        WeakReference<UIDAdapter> candidate = adapters.get(node);
-        // If the map yields a value for node, the node's adapter can't be garbage collected,
-        // thus it's sufficient to test for candidate != null
-        // (and omit the test candidate.get() != null).
-        if (candidate != null) {
-            if (node.eAdapters().contains(candidate.get())) {
-                return candidate.get();
-            } else {
-                adapters.remove(node);
+        synchronized (adapters) {
+            WeakReference<UIDAdapter> candidate = adapters.get(node);
+            // If the map yields a value for node, the node's adapter can't be garbage collected,
+            // thus it's sufficient to test for candidate != null
+            // (and omit the test candidate.get() != null).
+            if (candidate != null) {
+                if (node.eAdapters().contains(candidate.get())) {
+                    return candidate.get();
+                } else {
+                    adapters.remove(node);
+                }
             }
         }
         UIDAdapter newAdapter = new UIDAdapter();
         node.eAdapters().add(newAdapter);
-        adapters.put(node, new WeakReference<UIDAdapter>(newAdapter));
+        synchronized (adapters) {
+            adapters.put(node, new WeakReference<UIDAdapter>(newAdapter));
+        }
+        // the ids are generated outside of the lock, as the adapters of the models of different
+        // diagrams may be built concurrently
         newAdapter.generateIDs(node);
         return newAdapter;
     }
@@ -65,14 +72,16 @@ public final class UIDAdapters {
      *            the node to remove the adapter for.
      */
     public static void removeAdapter(final KNode node) {
-        WeakReference<UIDAdapter> adapter = adapters.get(node);
+        final WeakReference<UIDAdapter> adapter;
+        synchronized (adapters) {
+            adapter = adapters.remove(node);
+        }
         // If the map yields a value for node, the node's adapter can't be garbage collected,
         // thus it's sufficient to test for adapter != null
         // (and omit the test adapter.get() != null).
         if (adapter != null) {
             node.eAdapters().remove(adapter.get());
         }
-        adapters.remove(node);
     }
 
 }
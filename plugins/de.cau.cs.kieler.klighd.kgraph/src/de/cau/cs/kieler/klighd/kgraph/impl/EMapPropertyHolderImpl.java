@@ -14,6 +14,8 @@
 package de.cau.cs.kieler.klighd.kgraph.impl;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -77,6 +79,67 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
      */
 	protected EList<PersistentEntry> persistentEntries;
 
+    /**
+     * The compact storage of the properties used instead of {@link #properties} as long as the
+     * latter has not been created, see {@link #setCompactPropertyStorage(boolean)}.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * @generated NOT
+     */
+    private PropertyTable compactProperties;
+
+    /**
+     * Whether newly set properties are kept in the compact storage.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * @generated NOT
+     */
+    private static volatile boolean compactPropertyStorage = false;
+
+    /**
+     * Configures whether property holders shall keep their properties in a compact array-based
+     * storage rather than in the {@link #getProperties() properties map}, whose entries are
+     * full-fledged EObjects. The compact storage is used by holders that have no properties map yet
+     * as long as no EMF notifications are required. It is transferred into the map as soon as the
+     * map is requested, e.g. by {@link #getProperties()}, {@link #eContents()}, or serialization,
+     * or as soon as a property is set while adapters are attached. Hence, adapters observing the
+     * properties map receive the same notifications as without compact storage.<br>
+     * <br>
+     * Consequently, the compact storage only pays off for view models that are not observed by
+     * content adapters. An {@link org.eclipse.emf.ecore.util.EContentAdapter EContentAdapter}
+     * traverses {@link #eContents()} of each element and thereby transfers all properties into
+     * maps, so in the interactive pipelines, where the viewers and the incremental update strategy
+     * attach such adapters, the view model ends up with the maps right after the synthesis anyway.
+     * Pipelines benefiting are those processing view models without adapters, like the batch
+     * synthesis, layout, and export of diagrams in headless applications, or the synthesis and
+     * layout of models before a viewer is attached.<br>
+     * <br>
+     * Disabling the compact storage does not affect holders already using it.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * 
+     * @param compact
+     *            <code>true</code> if the compact storage shall be used, <code>false</code> if
+     *            all properties shall be kept in the properties map
+     * @generated NOT
+     */
+    public static void setCompactPropertyStorage(final boolean compact) {
+        compactPropertyStorage = compact;
+    }
+
+    /**
+     * Returns whether property holders keep their properties in a compact array-based storage,
+     * see {@link #setCompactPropertyStorage(boolean)}.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * 
+     * @return <code>true</code> if the compact storage is used
+     * @generated NOT
+     */
+    public static boolean isCompactPropertyStorage() {
+        return compactPropertyStorage;
+    }
+
 	/**
      * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
@@ -98,16 +161,61 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
 
 	/**
      * <!-- begin-user-doc -->
+     * Transfers the properties kept in the compact storage, if any, into the created map without
+     * notifying any adapters, see {@link #setCompactPropertyStorage(boolean)}.
 	 * <!-- end-user-doc -->
-     * @generated
+     * @generated NOT
      */
 	public EMap<IProperty<?>, Object> getProperties() {
         if (properties == null) {
             properties = new EcoreEMap<IProperty<?>,Object>(KGraphPackage.Literals.IPROPERTY_TO_OBJECT_MAP, IPropertyToObjectMapImpl.class, this, KGraphPackage.EMAP_PROPERTY_HOLDER__PROPERTIES);
+
+            if (compactProperties != null) {
+                final PropertyTable table = compactProperties;
+                compactProperties = null;
+
+                boolean deliver = this.eDeliver();
+                this.eSetDeliver(false);
+                for (int i = 0; i < table.size(); i++) {
+                    properties.put(table.keyAt(i), table.valueAt(i));
+                }
+                this.eSetDeliver(deliver);
+            }
         }
         return properties;
     }
 
+    /**
+     * Determines whether the properties are to be accessed in the compact storage rather than in
+     * the properties map.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * 
+     * @return <code>true</code> if the compact storage is to be accessed
+     * @generated NOT
+     */
+    private boolean isCompact() {
+        return properties == null && (compactProperties != null || compactPropertyStorage);
+    }
+
+    /**
+     * Puts the given value into the compact storage or the properties map, even if it is
+     * <code>null</code>.
+     * <!-- begin-user-doc -->
+     * <!-- end-user-doc -->
+     * @generated NOT
+     */
+    private void putProperty(final IProperty<?> property, final Object value) {
+        if (isCompact() && !eNotificationRequired()) {
+            if (compactProperties == null) {
+                compactProperties = new PropertyTable();
+            }
+            compactProperties.put(property, value);
+        } else {
+            getProperties().put(property, value);
+        }
+    }
+
 	/**
      * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
@@ -173,9 +281,14 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
      */
     public <T> IPropertyHolder setProperty(final IProperty<? super T> property, final T value) {
         if (value == null) {
-            getProperties().removeKey(property);
+            if (!isCompact() || eNotificationRequired()) {
+                // as in putProperty(...) adapters must be notified of the removal via the map
+                getProperties().removeKey(property);
+            } else if (compactProperties != null) {
+                compactProperties.remove(property);
+            }
         } else {
-            getProperties().put(property, value);
+            putProperty(property, value);
         }
         
         return this;
@@ -188,11 +301,16 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
      */
     @SuppressWarnings("unchecked")
     public <T> T getProperty(IProperty<T> property) {
-        Object value = getProperties().get(property);
+        Object value;
+        if (!isCompact()) {
+            value = getProperties().get(property);
+        } else {
+            value = compactProperties == null ? null : compactProperties.get(property);
+        }
         if (value instanceof IPropertyValueProxy) {
             value = ((IPropertyValueProxy) value).resolveValue(property);
             if (value != null) {
-                getProperties().put(property, value);
+                putProperty(property, value);
                 return (T) value;
             }
         } else if (value != null) {
@@ -213,7 +331,11 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
      * @generated NOT
      */
     public boolean hasProperty(IProperty<?> property) {
-        return getProperties().containsKey(property);
+        if (!isCompact()) {
+            return getProperties().containsKey(property);
+        } else {
+            return compactProperties != null && compactProperties.positionOf(property) >= 0;
+        }
     }
 
     /**
@@ -226,9 +348,22 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
             return this;
         }
 
-        if (holder instanceof EMapPropertyHolder) {
+        if (holder instanceof EMapPropertyHolderImpl && ((EMapPropertyHolderImpl) holder).isCompact()) {
+            PropertyTable table = ((EMapPropertyHolderImpl) holder).compactProperties;
+            for (int i = 0; table != null && i < table.size(); i++) {
+                Object value = table.valueAt(i);
+                if (value instanceof IPropertyValueProxy) {
+                    IPropertyValueProxy proxy = (IPropertyValueProxy) value;
+                    Object newValue = proxy.resolveValue(table.keyAt(i));
+                    if (newValue != null) {
+                        table.setValueAt(i, newValue);
+                        value = newValue;
+                    }
+                }
+                putProperty(table.keyAt(i), value);
+            }
+        } else if (holder instanceof EMapPropertyHolder) {
             EMapPropertyHolder other = (EMapPropertyHolder) holder;
-            EMap<IProperty<?>, Object> ourProps = this.getProperties();
             for (Map.Entry<IProperty<?>, Object> entry : other.getProperties()) {
                 Object value = entry.getValue();
                 if (value instanceof IPropertyValueProxy) {
@@ -239,10 +374,12 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
                         value = newValue;
                     }
                 }
-                ourProps.put(entry.getKey(), value);
+                putProperty(entry.getKey(), value);
             }
         } else {
-            this.getProperties().putAll(holder.getAllProperties());
+            for (Map.Entry<IProperty<?>, Object> entry : holder.getAllProperties().entrySet()) {
+                putProperty(entry.getKey(), entry.getValue());
+            }
         }
 
         return this;
@@ -250,10 +387,32 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
 
 	/**
      * <!-- begin-user-doc -->
+     * In case of the compact storage, see {@link #setCompactPropertyStorage(boolean)}, an
+     * unmodifiable copy of the properties is returned.
 	 * <!-- end-user-doc -->
      * @generated NOT
      */
 	public Map<IProperty<?>, Object> getAllProperties() {
+        if (isCompact()) {
+            if (compactProperties == null) {
+                return Collections.emptyMap();
+            }
+            Map<IProperty<?>, Object> props = new LinkedHashMap<>();
+            for (int i = 0; i < compactProperties.size(); i++) {
+                Object value = compactProperties.valueAt(i);
+                if (value instanceof IPropertyValueProxy) {
+                    // try to resolve the proxy's value, see below
+                    Object newValue = ((IPropertyValueProxy) value).resolveValue(compactProperties.keyAt(i));
+                    if (newValue != null) {
+                        compactProperties.setValueAt(i, newValue);
+                        value = newValue;
+                    }
+                }
+                props.put(compactProperties.keyAt(i), value);
+            }
+            return Collections.unmodifiableMap(props);
+        }
+
         EMap<IProperty<?>, Object> props = getProperties();
         // check for unresolved properties
         for (Map.Entry<IProperty<?>, Object> entry : props) {
@@ -344,13 +503,14 @@ public abstract class EMapPropertyHolderImpl extends EObjectImpl implements EMap
 	/**
      * <!-- begin-user-doc -->
 	 * <!-- end-user-doc -->
-     * @generated
+     * @generated NOT
      */
 	@Override
 	public boolean eIsSet(int featureID) {
         switch (featureID) {
             case KGraphPackage.EMAP_PROPERTY_HOLDER__PROPERTIES:
-                return properties != null && !properties.isEmpty();
+                return properties != null && !properties.isEmpty()
+                        || compactProperties != null && compactProperties.size() > 0;
             case KGraphPackage.EMAP_PROPERTY_HOLDER__PERSISTENT_ENTRIES:
                 return persistentEntries != null && !persistentEntries.isEmpty();
         }
@@ -0,0 +1,185 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.kgraph.impl;
+
+import java.util.Arrays;
+
+import org.eclipse.elk.graph.properties.IProperty;
+
+/**
+ * Compact storage of property values used by {@link EMapPropertyHolderImpl} as long as no
+ * {@link org.eclipse.emf.common.util.EMap EMap} of property entries is required, see
+ * {@link EMapPropertyHolderImpl#setCompactPropertyStorage(boolean)}.<br>
+ * <br>
+ * Keys and values are kept in two arrays in insertion order, which is preserved when the entries
+ * are transferred into an {@code EMap}. The positions of the entries are found via an
+ * open-addressing hash index with linear probing. Keys are compared by identity first and by
+ * {@link Object#equals(Object)} second, since properties with equal ids are considered equal.
+ *
+ * @author nre
+ */
+final class PropertyTable {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private IProperty<?>[] keys = new IProperty<?>[INITIAL_CAPACITY];
+
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /** the hash index, whose slots contain entry positions plus 1, 0 denotes a free slot. */
+    private int[] index = new int[2 * INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param position
+     *            a position between 0 and {@link #size()}
+     * @return the key of the entry at the given position
+     */
+    IProperty<?> keyAt(final int position) {
+        return keys[position];
+    }
+
+    /**
+     * @param position
+     *            a position between 0 and {@link #size()}
+     * @return the value of the entry at the given position
+     */
+    Object valueAt(final int position) {
+        return values[position];
+    }
+
+    /**
+     * @param position
+     *            a position between 0 and {@link #size()}
+     * @param value
+     *            the new value of the entry at the given position
+     */
+    void setValueAt(final int position, final Object value) {
+        values[position] = value;
+    }
+
+    /**
+     * @param key
+     *            the key to look for
+     * @return the position of the entry with the given key, or -1 if there is none
+     */
+    int positionOf(final Object key) {
+        if (key == null) {
+            return -1;
+        }
+        final int mask = index.length - 1;
+        for (int slot = hash(key) & mask;; slot = (slot + 1) & mask) {
+            final int entry = index[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            final IProperty<?> candidate = keys[entry - 1];
+            if (candidate == key || candidate.equals(key)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * @param key
+     *            the key to look for
+     * @return the value of the entry with the given key, or <code>null</code> if there is none
+     */
+    Object get(final Object key) {
+        final int position = positionOf(key);
+        return position < 0 ? null : values[position];
+    }
+
+    /**
+     * Sets the value of the entry with the given key, adds a new entry if there is none yet.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return the previous value of the entry, or <code>null</code> if it has been added
+     */
+    Object put(final IProperty<?> key, final Object value) {
+        final int position = positionOf(key);
+        if (position >= 0) {
+            final Object previous = values[position];
+            values[position] = value;
+            return previous;
+        }
+
+        if (size == keys.length) {
+            final int capacity = 2 * keys.length;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            index = new int[2 * capacity];
+            for (int i = 0; i < size; i++) {
+                addToIndex(i);
+            }
+        }
+        keys[size] = key;
+        values[size] = value;
+        addToIndex(size++);
+        return null;
+    }
+
+    /**
+     * Removes the entry with the given key, if any.
+     *
+     * @param key
+     *            the key
+     * @return the value of the removed entry, or <code>null</code> if there is none
+     */
+    Object remove(final Object key) {
+        final int position = positionOf(key);
+        if (position < 0) {
+            return null;
+        }
+        final Object previous = values[position];
+
+        // keep the insertion order of the remaining entries, the tables are small in general
+        final int moved = size - position - 1;
+        System.arraycopy(keys, position + 1, keys, position, moved);
+        System.arraycopy(values, position + 1, values, position, moved);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+
+        Arrays.fill(index, 0);
+        for (int i = 0; i < size; i++) {
+            addToIndex(i);
+        }
+        return previous;
+    }
+
+    private void addToIndex(final int position) {
+        final int mask = index.length - 1;
+        int slot = hash(keys[position]) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int hash(final Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -193,7 +193,7 @@ public final class KGraphUtil {
         ensureLabel(ele);
 
         if (ele instanceof KNode) {
-            if (!ele.getProperties().containsKey(CoreOptions.NODE_LABELS_PLACEMENT)) {
+            if (!ele.hasProperty(CoreOptions.NODE_LABELS_PLACEMENT)) {
                 // If the node has children, we need to get the label out of the way a bit (we're
                 // not setting it up such that padding is computed to reserve space for the label,
                 // though)
@@ -257,7 +257,7 @@ public final class KGraphUtil {
         
         // Label
         ensureLabel(node);
-        if (!node.getProperties().containsKey(CoreOptions.NODE_LABELS_PLACEMENT)) {
+        if (!node.hasProperty(CoreOptions.NODE_LABELS_PLACEMENT)) {
             // If the node has children, we need to get the label out of the way a bit (we're not
             // setting it up such that padding is computed to reserve space for the label, though)
             if (node.getChildren().isEmpty()) {
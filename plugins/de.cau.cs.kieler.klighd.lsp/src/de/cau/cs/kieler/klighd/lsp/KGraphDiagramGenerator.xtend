@@ -132,6 +132,13 @@ class KGraphDiagramGenerator implements IDiagramGenerator {
 	@Accessors(PUBLIC_GETTER, PUBLIC_SETTER)
 	var boolean activeTracing
     
+    /**
+     * If the elements should get short numeric IDs instead of their hierarchical IDs, see
+     * {@link KGraphElementIdGenerator#KGraphElementIdGenerator(boolean)}. Enabled by setting the system property
+     * {@code klighd.lsp.numericElementIds} to {@code true}.
+     */
+    static val NUMERIC_ELEMENT_IDS = Boolean.getBoolean("klighd.lsp.numericElementIds")
+    
     /**
      * Generates unique IDs for any KGraphElement.
      */
@@ -180,7 +187,7 @@ class KGraphDiagramGenerator implements IDiagramGenerator {
         textMapping = new HashMap
         modelLabels = new ArrayList
         images = new HashSet
-        idGen = new KGraphElementIdGenerator
+        idGen = new KGraphElementIdGenerator(NUMERIC_ELEMENT_IDS)
         edgesToGenerate = new ArrayList
 
         // generate an SGraph root element around the translation of the parent KNode.
@@ -14,48 +14,55 @@ package de.cau.cs.kieler.klighd.lsp
 
 import com.google.common.base.Strings
 import com.google.common.base.Throwables
-import com.google.common.io.ByteStreams
-import com.google.common.reflect.ClassPath
 import com.google.inject.Inject
 import de.cau.cs.kieler.klighd.IAction
 import de.cau.cs.kieler.klighd.IAction.ActionContext
-import de.cau.cs.kieler.klighd.Klighd
 import de.cau.cs.kieler.klighd.KlighdDataManager
 import de.cau.cs.kieler.klighd.ViewContext
 import de.cau.cs.kieler.klighd.kgraph.KLabel
 import de.cau.cs.kieler.klighd.kgraph.KNode
+import de.cau.cs.kieler.klighd.krendering.KFontBold
+import de.cau.cs.kieler.klighd.krendering.KFontItalic
+import de.cau.cs.kieler.klighd.krendering.KFontName
+import de.cau.cs.kieler.klighd.krendering.KFontSize
 import de.cau.cs.kieler.klighd.krendering.KRendering
+import de.cau.cs.kieler.klighd.krendering.KStyleRef
 import de.cau.cs.kieler.klighd.krendering.KText
 import de.cau.cs.kieler.klighd.lsp.interactive.layered.LayeredInteractiveActionHandler
 import de.cau.cs.kieler.klighd.lsp.interactive.rectpacking.RectpackingInteractiveActionHandler
 import de.cau.cs.kieler.klighd.lsp.launch.AbstractLanguageServer
+import de.cau.cs.kieler.klighd.lsp.launch.LanguageServerExecutors
 import de.cau.cs.kieler.klighd.lsp.model.CheckImagesAction
 import de.cau.cs.kieler.klighd.lsp.model.CheckedImagesAction
 import de.cau.cs.kieler.klighd.lsp.model.ComputedTextBoundsAction
+import de.cau.cs.kieler.klighd.lsp.model.IncrementalUpdateModelAction
 import de.cau.cs.kieler.klighd.lsp.model.LayoutOptionUIData
 import de.cau.cs.kieler.klighd.lsp.model.PerformActionAction
 import de.cau.cs.kieler.klighd.lsp.model.RefreshDiagramAction
 import de.cau.cs.kieler.klighd.lsp.model.RefreshLayoutAction
 import de.cau.cs.kieler.klighd.lsp.model.RequestTextBoundsAction
 import de.cau.cs.kieler.klighd.lsp.model.SKGraph
+import de.cau.cs.kieler.klighd.lsp.model.SKLabel
 import de.cau.cs.kieler.klighd.lsp.model.SetSynthesisAction
 import de.cau.cs.kieler.klighd.lsp.model.StoreImagesAction
 import de.cau.cs.kieler.klighd.lsp.model.UpdateDiagramOptionsAction
 import de.cau.cs.kieler.klighd.lsp.model.ValuedSynthesisOption
+import de.cau.cs.kieler.klighd.lsp.utils.ImageResourceCache
+import de.cau.cs.kieler.klighd.lsp.utils.KGraphElementIdGenerator
 import de.cau.cs.kieler.klighd.lsp.utils.KRenderingIdGenerator
+import de.cau.cs.kieler.klighd.lsp.utils.SModelDiffer
 import de.cau.cs.kieler.klighd.lsp.utils.SprottyProperties
 import de.cau.cs.kieler.klighd.microlayout.Bounds
 import de.cau.cs.kieler.klighd.util.KlighdProperties
-import java.io.FileNotFoundException
-import java.io.InputStream
 import java.util.ArrayList
-import java.util.Base64
 import java.util.Collection
+import java.util.HashMap
+import java.util.LinkedHashMap
 import java.util.List
 import java.util.Map
+import java.util.Map.Entry
 import java.util.concurrent.CompletableFuture
 import org.apache.log4j.Logger
-import org.eclipse.core.runtime.Platform
 import org.eclipse.elk.core.data.LayoutMetaDataService
 import org.eclipse.elk.core.data.LayoutOptionData
 import org.eclipse.elk.core.data.LayoutOptionData.Visibility
@@ -63,6 +70,7 @@ import org.eclipse.elk.graph.properties.IProperty
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.sprotty.Action
 import org.eclipse.sprotty.ActionMessage
+import org.eclipse.sprotty.Dimension
 import org.eclipse.sprotty.ILayoutEngine
 import org.eclipse.sprotty.IModelUpdateListener
 import org.eclipse.sprotty.LayoutAction
@@ -86,6 +94,18 @@ import org.eclipse.xtend.lib.annotations.Accessors
 class KGraphDiagramServer extends LanguageAwareDiagramServer {
     static val LOG = Logger.getLogger(KGraphDiagramServer)
     
+    /**
+     * The diagram option the client can set to {@code "true"} to receive model updates as incremental
+     * {@link IncrementalUpdateModelAction}s only containing the changed elements instead of the full model.
+     */
+    public static val OPTION_INCREMENTAL_UPDATES = "incrementalUpdates"
+    
+    /**
+     * The name of the executor loading the images of a new model while the client checks its image cache, keeping the
+     * file and classpath access off the common fork/join pool, see {@link LanguageServerExecutors}.
+     */
+    static val IMAGE_PRELOAD_EXECUTOR = "klighd-image-preload"
+    
     @Inject
     protected LayeredInteractiveActionHandler constraintActionHandler
     
@@ -98,6 +118,9 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
     @Inject
     INotificationHandler notificationHandler
     
+    @Inject
+    protected ImageResourceCache imageCache
+    
     /**
      * Indicates if the stored model is a completely new model and should therefore cause a SetModelAction instead of 
      * an eventual UpdateModelAction.
@@ -119,6 +142,13 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      */
     protected boolean imagesUpdated = false
     
+    /**
+     * Counts the {@link CheckImagesAction}s sent to the client, to ignore the responses to the requests of models that
+     * have already been replaced. The number of a request is sent as its request ID, which the client returns as the
+     * response ID of its {@link CheckedImagesAction}.
+     */
+    protected int imageRequest = 0
+    
     @Accessors(PUBLIC_GETTER)
     protected Object modelLock = new Object
     
@@ -136,6 +166,54 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      */
     protected int revision = 0
     
+    /**
+     * The revision of the last model submitted to the client.
+     */
+    protected int submittedRevision = 0
+    
+    /**
+     * The revision the client reports for its current model. Differs from the {@link #submittedRevision} if the last
+     * model was sent incrementally, as the client keeps the revision of its root in that case.
+     */
+    protected int clientRevision = 0
+    
+    /**
+     * Computes the incremental model updates if enabled via {@link #OPTION_INCREMENTAL_UPDATES}.
+     */
+    protected SModelDiffer modelDiffer = new SModelDiffer
+    
+    /**
+     * The maximum number of text sizes kept in the {@link #textSizeCache}.
+     */
+    static val TEXT_SIZE_CACHE_SIZE = 10000
+    
+    /**
+     * Cache of the sizes of single text lines measured by the client, keyed by their font styles and text as computed
+     * by {@link #getTextSizeKey}. The least recently used sizes are evicted first. Only accessed under the
+     * {@link #modelLock}.
+     */
+    protected Map<String, Dimension> textSizeCache = new LinkedHashMap<String, Dimension>(16, 0.75f, true) {
+        override protected removeEldestEntry(Entry<String, Dimension> eldest) {
+            return size > TEXT_SIZE_CACHE_SIZE
+        }
+    }
+    
+    /**
+     * The cache keys of the texts requested from the client, mapped by the IDs of their labels in the texts-only
+     * diagram.
+     */
+    protected Map<String, String> requestedTextKeys = new HashMap
+    
+    /**
+     * The widths of the lines of the {@link KText}s of the current root, collected before they are applied.
+     */
+    protected Map<KText, float[]> textWidths = new HashMap
+    
+    /**
+     * The heights of the lines of the {@link KText}s of the current root, collected before they are applied.
+     */
+    protected Map<KText, float[]> textHeights = new HashMap
+    
     /**
      * Needed for KeithUpdateModelAction
      * 
@@ -171,9 +249,32 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
                 } else if (texts.empty) {
                     textsUpdated = true
                 } else {
-                    val textDiagram = KGraphDiagramGenerator.generateTextDiagram(texts, newRoot.id)
-                    dispatch(new RequestTextBoundsAction(textDiagram))
-                    // the setOrUpdateModel is then executed after the client returns with its ComputedTextBoundsAction
+                    // Only request the sizes of the texts that have not been measured by the client before.
+                    val textMapping = diagramState.getTextMapping(newRoot.id)
+                    val uncachedTexts = new ArrayList<SKLabel>
+                    textWidths.clear
+                    textHeights.clear
+                    requestedTextKeys = new HashMap
+                    for (label : texts) {
+                        val cacheKey = getTextSizeKey(label)
+                        val size = if (cacheKey !== null) textSizeCache.get(cacheKey)
+                        if (size !== null) {
+                            storeLineSize(textMapping.get(label.id), label.id, size)
+                        } else {
+                            uncachedTexts.add(label)
+                            if (cacheKey !== null) {
+                                requestedTextKeys.put(label.id, cacheKey)
+                            }
+                        }
+                    }
+                    if (uncachedTexts.empty) {
+                        applyTextSizes
+                        textsUpdated = true
+                    } else {
+                        val textDiagram = KGraphDiagramGenerator.generateTextDiagram(uncachedTexts, newRoot.id)
+                        dispatch(new RequestTextBoundsAction(textDiagram))
+                        // the setOrUpdateModel is then executed after the client returns with its ComputedTextBoundsAction
+                    }
                 }
                 
                 // image handling
@@ -183,7 +284,13 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
                 } else if (imageData.empty) {
                     imagesUpdated = true
                 } else {
-                    dispatch(new CheckImagesAction(imageData))
+                    imageRequest++
+                    dispatch(new CheckImagesAction(imageData) => [
+                        requestId = getImageRequestId(imageRequest)
+                    ])
+                    // Load the images while the client checks its cache, so they are ready if they are requested.
+                    CompletableFuture.runAsync([ imageCache.preload(imageData) ],
+                        LanguageServerExecutors.get(IMAGE_PRELOAD_EXECUTOR))
                     // the setOrUpdateModel is then executed after the client confirms it has all images cached.
                 }
                 
@@ -206,7 +313,7 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * @param uri The URI of the model to take the options from.
      */
     def void updateDiagramOptions(String uri) {
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(uri)) {
             val ViewContext viewContext = diagramState.getKGraphContext(uri)
             if (viewContext !== null) {
                 val synthesisOptions = new ArrayList<ValuedSynthesisOption>
@@ -366,10 +473,34 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
     def void doSubmitModel(SModelRoot newRoot, boolean update, Action cause) {
         val ILayoutEngine layoutEngine = getLayoutEngine();
         if (needsServerLayout(newRoot, cause)) {
-            AbstractLanguageServer.addToMainThreadQueue([
+            if (layoutEngine instanceof KGraphLayoutEngine) {
+                // Lay out asynchronously, so that newer models can supersede this one while it is laid out.
+                layoutEngine.scheduleLayout(newRoot, cause).thenAccept [ laidOut |
+                    if (laidOut) {
+                        publishModel(newRoot, update, cause)
+                    }
+                ].exceptionally [ throwable |
+                    LOG.error("Exception while laying out the model.", throwable)
+                    notificationHandler.sendError(Throwables.getStackTraceAsString(throwable))
+                    return null
+                ]
+                return
+            }
+            AbstractLanguageServer.executeDiagramTask([
                 layoutEngine.layout(newRoot, cause)
             ])
         }
+        publishModel(newRoot, update, cause)
+    }
+    
+    /**
+     * Sends the given laid out model to the client, if it is still the newest model.
+     * 
+     * @param newRoot The model to send.
+     * @param update If the model should be sent as an update of the current model on the client.
+     * @param cause The action causing the model to be sent.
+     */
+    protected def void publishModel(SModelRoot newRoot, boolean update, Action cause) {
         synchronized (modelLock) {
             if (newRoot.getRevision() == revision) {
                 var String modelType = newRoot.getType();
@@ -379,11 +510,21 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
                     var SetModelAction response = new SetModelAction(newRoot);
                     response.setResponseId(request.getRequestId());
                     dispatch(response);
+                    snapshotSubmittedModel(newRoot)
                 } else if (update && modelType !== null && modelType.equals(lastSubmittedModelType)) {
-                    dispatch(new UpdateModelAction(newRoot));
+                    val matches = if (incrementalUpdates) modelDiffer.diff(newRoot)
+                    if (matches !== null) {
+                        // The client keeps the revision of its current root.
+                        dispatch(new IncrementalUpdateModelAction(matches))
+                    } else {
+                        dispatch(new UpdateModelAction(newRoot));
+                        clientRevision = newRoot.getRevision()
+                    }
                 } else {
                     dispatch(new SetModelAction(newRoot));
+                    snapshotSubmittedModel(newRoot)
                 }
+                submittedRevision = newRoot.getRevision()
                 lastSubmittedModelType = modelType;
                 var IModelUpdateListener listener = getModelUpdateListener();
                 if (listener !== null) {
@@ -393,10 +534,40 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
         }
     }
     
+    /**
+     * Remembers the given model as the one fully sent to the client to compare incremental updates against.
+     * 
+     * @param newRoot The model sent to the client.
+     */
+    protected def void snapshotSubmittedModel(SModelRoot newRoot) {
+        clientRevision = newRoot.getRevision()
+        if (incrementalUpdates) {
+            modelDiffer.snapshot(newRoot)
+        } else {
+            modelDiffer.reset
+        }
+    }
+    
+    /**
+     * Returns if the client requested incremental model updates via the {@link #OPTION_INCREMENTAL_UPDATES} option.
+     */
+    def boolean isIncrementalUpdates() {
+        return "true" == getOptions.get(OPTION_INCREMENTAL_UPDATES)
+    }
+    
+    /**
+     * Returns if the given revision reported by the client belongs to the current model of this server.
+     * 
+     * @param revision The revision of the model on the client.
+     */
+    protected def boolean isCurrentClientRevision(int revision) {
+        return currentRoot.getRevision() === submittedRevision && revision === clientRevision
+    }
+    
     /**
      * Called when a {@link ComputedTextBoundsAction} is received.
      * Maps the bounds for all texts referenced in the action back to their corresponding {@link KText} elements
-     * and updates the model on the client.
+     * and updates the model on the client. The measured sizes are remembered in the {@link #textSizeCache}.
      */
     protected def handle(ComputedTextBoundsAction action) {
         synchronized (modelLock) {
@@ -408,11 +579,7 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
             // is issued first.
             
             val textMapping = diagramState.getTextMapping(currentRoot.id)
-            // Add the bounds for each label to the text's properties and remember which KTexts have been modified.
-            // Also calculate the widths and heights of all texts on the fly to be applied later.
-            val List<KText> texts = newArrayList
-            val Map<KText, float[]> textWidths = newHashMap
-            val Map<KText, float[]> textHeights = newHashMap 
+            // Remember the size of each line for its KText, together with the already cached lines.
             for (elementAndBound : action.bounds) {
                 val elementId = elementAndBound.elementId
                 val newSize = elementAndBound.newSize
@@ -425,40 +592,13 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
                         "completion of the request. Terminating this request.")
                     return
                 }
-                val index = Integer.parseInt(elementId.split("\\$").last) // Matches the character '$'
-                if (!texts.contains(kText)) {
-                    var container = kText.eContainer
-                    while (container instanceof KRendering) {
-                        container = container.eContainer
-                    }
-                    var String text
-                    if (container instanceof KLabel) {
-                        text = container.text
-                    } else {
-                        text = kText.text
-                    }
-                    if (text !== null) {
-                        var lines = text.split("\\r?\\n", -1).size
-                        texts.add(kText)
-                        val widths = newFloatArrayOfSize(lines)
-                        widths.set(index, newSize.width as float)
-                        textWidths.put(kText, widths)
-                        val heights = newFloatArrayOfSize(lines)
-                        heights.set(index, newSize.height as float)
-                        textHeights.put(kText, heights)
-                    }
-                } else {
-                    textWidths.get(kText).set(index, newSize.width as float)
-                    textHeights.get(kText).set(index, newSize.height as float)
+                storeLineSize(kText, elementId, newSize)
+                val cacheKey = requestedTextKeys.get(elementId)
+                if (cacheKey !== null) {
+                    textSizeCache.put(cacheKey, newSize)
                 }
             }
-            // Apply the text's bounds.
-            for (text : texts) {
-                text.properties.put(KlighdProperties.CALCULATED_TEXT_BOUNDS, 
-                    new Bounds(0, 0, textWidths.get(text).max, textHeights.get(text).fold(0f, [ a, b | a + b ])))
-                text.properties.put(SprottyProperties.CALCULATED_TEXT_LINE_WIDTHS, textWidths.get(text))
-                text.properties.put(SprottyProperties.CALCULATED_TEXT_LINE_HEIGHTS, textHeights.get(text))
-            }
+            applyTextSizes
             textsUpdated = true
             if (imagesUpdated) {
                 setOrUpdateModel
@@ -466,6 +606,109 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
         }
     }
     
+    /**
+     * Remembers the size of a single line of the given {@link KText} to be applied by {@link #applyTextSizes}.
+     * 
+     * @param kText The original text in the model.
+     * @param elementId The ID of the label in the texts-only diagram, ending with the index of the line.
+     * @param size The size of the line.
+     */
+    protected def void storeLineSize(KText kText, String elementId, Dimension size) {
+        val separatorIndex = elementId.lastIndexOf(KGraphElementIdGenerator.ID_SEPARATOR)
+        val index = Integer.parseInt(elementId.substring(separatorIndex + 1))
+        var widths = textWidths.get(kText)
+        var heights = textHeights.get(kText)
+        if (widths === null) {
+            val lines = getLineCount(kText)
+            if (lines < 0) {
+                return
+            }
+            widths = newFloatArrayOfSize(lines)
+            heights = newFloatArrayOfSize(lines)
+            textWidths.put(kText, widths)
+            textHeights.put(kText, heights)
+        }
+        widths.set(index, size.width as float)
+        heights.set(index, size.height as float)
+    }
+    
+    /**
+     * Applies the line sizes remembered by {@link #storeLineSize} to the properties of their {@link KText}s.
+     */
+    protected def void applyTextSizes() {
+        for (entry : textWidths.entrySet) {
+            val text = entry.key
+            val widths = entry.value
+            val heights = textHeights.get(text)
+            var maxWidth = 0f
+            var height = 0f
+            for (i : 0 ..< widths.length) {
+                maxWidth = Math.max(maxWidth, widths.get(i))
+                height += heights.get(i)
+            }
+            text.properties.put(KlighdProperties.CALCULATED_TEXT_BOUNDS, new Bounds(0, 0, maxWidth, height))
+            text.properties.put(SprottyProperties.CALCULATED_TEXT_LINE_WIDTHS, widths)
+            text.properties.put(SprottyProperties.CALCULATED_TEXT_LINE_HEIGHTS, heights)
+        }
+        textWidths.clear
+        textHeights.clear
+    }
+    
+    /**
+     * Returns the number of lines of the given {@link KText}, or -1 if it has no text. KTexts in labels have their
+     * texts stored inside their ancestor {@link KLabel}, not in the KText itself.
+     */
+    protected static def int getLineCount(KText kText) {
+        var container = kText.eContainer
+        while (container instanceof KRendering) {
+            container = container.eContainer
+        }
+        val text = if (container instanceof KLabel) container.text else kText.text
+        if (text === null) {
+            return -1
+        }
+        // Same as text.split("\\r?\\n", -1).size, but without creating the lines.
+        var lines = 1
+        for (i : 0 ..< text.length) {
+            if (text.charAt(i) == '\n'.charAt(0)) {
+                lines++
+            }
+        }
+        return lines
+    }
+    
+    /**
+     * Returns the key the size of the given label of the texts-only diagram is cached under in the
+     * {@link #textSizeCache}, consisting of all font styles and the text. Returns {@code null} if the size of the label
+     * can not be cached, as its styles are not known completely on the server.
+     * 
+     * @param label A label of the texts-only diagram.
+     */
+    protected static def String getTextSizeKey(SKLabel label) {
+        val kText = label.data?.filter(KText)?.head
+        if (kText === null) {
+            return null
+        }
+        val key = new StringBuilder
+        for (style : kText.styles) {
+            if (style.modifierId !== null) {
+                return null
+            }
+            switch (style) {
+                KStyleRef: return null
+                KFontName: key.append('n').append(style.name)
+                KFontSize: key.append('s').append(style.size).append(style.scaleWithZoom)
+                KFontBold: key.append('b').append(style.bold)
+                KFontItalic: key.append('i').append(style.italic)
+                default: {
+                    // Other styles do not influence the size of the text.
+                }
+            }
+            key.append(KGraphElementIdGenerator.ID_SEPARATOR)
+        }
+        return key.append('\n').append(label.text).toString
+    }
+    
     /**
      * Taken from {@code DefaultDiagramServer.handle(RequestModelAction)} to use this getModel.
      * Needed for KeithUpdateModelAction
@@ -510,17 +753,17 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * May cause a {@link UpdateModelAction} to be sent back to the client with an updated model.
      */
     protected def handle(PerformActionAction action) {
-        synchronized (diagramState) {
-            if (currentRoot.getRevision() !== action.revision) {
+        val sourceUri = diagramState.getURIString(clientId)
+        synchronized (diagramState.getLock(sourceUri)) {
+            if (!isCurrentClientRevision(action.revision)) {
                 return
             }
             
-            val sourceUri = diagramState.getURIString(clientId)
             val kGraphElement = diagramState.getIdToKGraphMap(sourceUri).get(action.KGraphElementId)
             val kRendering = KRenderingIdGenerator.findRenderingById(kGraphElement, action.KRenderingId)
             
             val klighdAction = KlighdDataManager.instance.getActionById(action.actionId)
-            val viewer = diagramState.viewer
+            val viewer = diagramState.getViewer(sourceUri) ?: diagramState.viewer
             val actionContext = new ActionContext(viewer, null, kGraphElement, kRendering)
             val actionResult = klighdAction.execute(actionContext)
             if (actionResult.needsSynthesis) {
@@ -537,8 +780,8 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * and invokes an update.
      */
     protected def handle(SetSynthesisAction action) {
-        synchronized (diagramState) {
-            val uri = diagramState.getURIString(clientId)
+        val uri = diagramState.getURIString(clientId)
+        synchronized (diagramState.getLock(uri)) {
             diagramState.putSynthesisId(uri, action.id)
             this.newModel = true
             updateDiagram()
@@ -549,80 +792,50 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * Called when a {@link CheckedImagesAction} is received.
      * Tells the server that the images on the client have been checked if they are cached and requests any non-cached
      * images to be sent.
-     * The requested images are then sent to the client.
+     * The requested images are then sent to the client. They are loaded by the {@link ImageResourceCache} without
+     * holding the {@link #modelLock}.
      */
     protected def handle(CheckedImagesAction action) {
-        synchronized (modelLock) {
-            if (action.notCached.empty) {
-                imagesUpdated = true
-            } else {
-                val images = new ArrayList<Pair<Pair<String, String>, String>>
-                val platformIsRunning = Klighd.IS_PLATFORM_RUNNING;
-                for (notCached : action.notCached) {
-                    try {
-                        val bundle = notCached.key
-                        val path = notCached.value
-                        val InputStream imageStream =
-                            if (platformIsRunning) {
-                                // If the platform is running, the image can be found in the bundle under the resource path.
-                                Platform.getBundle(bundle)
-                                    ?.getResource(path)
-                                    ?.openStream
-                            } else {
-                                // If there is no platform, we have to use the class loader to find the resource.
-                                // With the help of Guava, look for any class from a package with the same name as the
-                                // searched bundle.
-                                val classPath = ClassPath.from(ClassLoader.systemClassLoader)
-                                var class = classPath.getTopLevelClasses(bundle).head?.load
-                                if (class === null) {
-                                    // If there is no such class, try again with packages starting with the bundle name
-                                    class = classPath.getTopLevelClassesRecursive(bundle).head?.load
-                                }
-                                if (class !== null) {
-                                    // Where the class was found, look for the given path in the jar local to that class.
-                                    class.getResourceAsStream("/" + path)
-                                } else {
-                                    null
-                                }
-                                
-                                // Other solution, if the above one does not work in built jars: 
-                                // If the bundle path is added to the classpath, this following line will just work
-                                // without explicitly looking for the bundle (which does not exist as a 'bundle' in the 
-                                // non-Platform-case anyway).
-//                                ClassLoader.getSystemClassLoader.getResourceAsStream(path)
-
-                                // For more information, see
-                                // https://stackoverflow.com/questions/9864267/loading-image-resource
-                                // and
-                                // https://stackoverflow.com/questions/676250/different-ways-of-loading-a-file-as-an-inputstream/676273#676273
-                            }
-                        if (imageStream !== null) {
-                            val imageBytes = ByteStreams.toByteArray(imageStream)
-                            imageStream.close
-                            val imageString = Base64.encoder.encodeToString(imageBytes)
-                            images.add(notCached -> imageString)
-                        } else {
-                            throw new FileNotFoundException("The image for bundle "
-                                + bundle
-                                + " and path "
-                                + path
-                                + " has not been found.")
-                        }
-                    } catch (Exception e) {
-                        // Do not re-throw the exception here, we can still show the diagram, just without the images.
-                        // Do notify the user about the exception, though.
-                        notificationHandler.sendError(Throwables.getStackTraceAsString(e))
-                        e.printStackTrace
-                    }
+        val request = synchronized (modelLock) {
+            imageRequest
+        }
+        // Ignore responses to the requests of older models, their images are not needed anymore. Responses without
+        // ID are taken as answers to the latest request.
+        if (!action.responseId.nullOrEmpty && action.responseId != getImageRequestId(request)) {
+            return
+        }
+        if (!action.notCached.empty) {
+            val images = new ArrayList<Pair<Pair<String, String>, String>>
+            for (notCached : action.notCached) {
+                try {
+                    images.add(notCached -> imageCache.getEncodedImage(notCached.key, notCached.value))
+                } catch (Exception e) {
+                    // Do not re-throw the exception here, we can still show the diagram, just without the images.
+                    // Do notify the user about the exception, though.
+                    notificationHandler.sendError(Throwables.getStackTraceAsString(e))
+                    e.printStackTrace
                 }
-                dispatch(new StoreImagesAction(images))
-                imagesUpdated = true
             }
+            dispatch(new StoreImagesAction(images))
+        }
+        synchronized (modelLock) {
+            if (request !== imageRequest) {
+                // Another model has been prepared in the meantime, which checks its images itself.
+                return
+            }
+            imagesUpdated = true
             if (textsUpdated) {
                 setOrUpdateModel
             }
         }
     }
+    
+    /**
+     * Returns the request ID of the {@link CheckImagesAction} with the given number.
+     */
+    protected static def String getImageRequestId(int request) {
+        return CheckImagesAction.KIND + "_" + request
+    }
 
     /**
      * Called when a {@link RefreshDiagramAction} is received.
@@ -650,8 +863,9 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
     def void selectElements(List<EObject> toBeSelected) {
         val toBeSelectedSModelElementIDs = newArrayList
         
-        synchronized(diagramState) {
-            val map = diagramState.getKGraphToSModelElementMap(diagramState.getURIString(clientId))
+        val uri = diagramState.getURIString(clientId)
+        synchronized (diagramState.getLock(uri)) {
+            val map = diagramState.getKGraphToSModelElementMap(uri)
             toBeSelected.forEach [
                 val sModelElement = map.get(it)
                 if (sModelElement instanceof SModelElement) {
@@ -674,7 +888,7 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * Updates the current diagram.
      */
     def updateDiagram() {
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(diagramState.getURIString(clientId))) {
             val diagramUpdater = diagramLanguageServer.diagramUpdater
             if (diagramUpdater instanceof KGraphDiagramUpdater) {
                 diagramUpdater.updateDiagram(this)
@@ -688,7 +902,7 @@ class KGraphDiagramServer extends LanguageAwareDiagramServer {
      * Updates the layout of the current diagram.
      */
     def updateLayout() {
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(diagramState.getURIString(clientId))) {
             val diagramUpdater = diagramLanguageServer.diagramUpdater
             if (diagramUpdater instanceof KGraphDiagramUpdater) {
                 diagramUpdater.updateLayout(this)
@@ -12,6 +12,9 @@
  */
 package de.cau.cs.kieler.klighd.lsp
 
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheLoader
+import com.google.common.cache.LoadingCache
 import com.google.gson.JsonElement
 import com.google.inject.Singleton
 import de.cau.cs.kieler.klighd.IViewer
@@ -23,17 +26,22 @@ import de.cau.cs.kieler.klighd.krendering.KImage
 import de.cau.cs.kieler.klighd.krendering.KText
 import de.cau.cs.kieler.klighd.lsp.model.ImageData
 import de.cau.cs.kieler.klighd.lsp.model.SKLabel
+import de.cau.cs.kieler.klighd.syntheses.SynthesisMemoizer
 import java.net.URLDecoder
-import java.util.HashMap
-import java.util.HashSet
+import java.util.LinkedHashMap
 import java.util.List
 import java.util.Map
+import java.util.Map.Entry
 import java.util.Set
+import java.util.concurrent.ConcurrentHashMap
 import org.eclipse.elk.core.LayoutConfigurator
 import org.eclipse.sprotty.SModelElement
 
 /**
- * Singleton class to map a URI identifying a graph to their various parts needed for handling KGraph models
+ * Singleton class to map a URI identifying a graph to their various parts needed for handling KGraph models.<br>
+ * All maps are safe for concurrent access. Compound operations on the data of a single URI should be guarded by the
+ * lock returned by {@link #getLock(String)} instead of locking this whole state, so that diagrams of different URIs
+ * can be generated and laid out independently of each other.
  * 
  * @author nre
  */
@@ -43,81 +51,139 @@ class KGraphDiagramState {
     /**
      * A map mapping the URI identifying a graph to the {@link ViewContext} containing that graph.
      */
-    Map<String, ViewContext> kGraphContexts = new HashMap
+    Map<String, ViewContext> kGraphContexts = new ConcurrentHashMap
     
     /**
      * A map that contains a key-value pair for each KGraphElement and its translated SModelElement counterpart.
      * Convenient for finding a specific key KGraphElement faster.
      * Mapped by the URI this map belongs to.
      */
-    Map<String, Map<KGraphElement, SModelElement>> kGraphToSModelElementMap = new HashMap
+    Map<String, Map<KGraphElement, SModelElement>> kGraphToSModelElementMap = new ConcurrentHashMap
     
     /**
      * A map that contains a key-value pair for each ID of a graph element and the {@link KGraphElement} it identifies.
      * Mapped by the URI this map belongs to.
      */
-    Map<String, Map<String, KGraphElement>> idToKGraphElementMap = new HashMap
+    Map<String, Map<String, KGraphElement>> idToKGraphElementMap = new ConcurrentHashMap
     
     /**
      * A set containing the image data for all {@link KImage}s from the source KGraph.
      * Mapped by the URI this map belongs to.
      */
-    Map<String, Set<ImageData>> imageData = new HashMap
+    Map<String, Set<ImageData>> imageData = new ConcurrentHashMap
     
     /**
      * A list containing all texts from the source KGraph in Sprotty labels.
      * Mapped by the URI this map belongs to.
      */
-    Map<String, List<SKLabel>> texts = new HashMap
+    Map<String, List<SKLabel>> texts = new ConcurrentHashMap
     
     /**
      * A map containing all KTexts from the source KGraph under the key of their id.
      * Mapped by the URI this map belongs to.
      */
-    Map<String, Map<String, KText>> textMapping = new HashMap
+    Map<String, Map<String, KText>> textMapping = new ConcurrentHashMap
     
     /**
      * Contains the model of the currently drawn snapshot for the URI of the model, if available.
      */
-    Map<String, Object> snapshotModelMapping = new HashMap
+    Map<String, Object> snapshotModelMapping = new ConcurrentHashMap
     
     /**
      * Contains the layout configurator for the URI of the model.
      */
-    Map<String, LayoutConfigurator> layoutConfigMapping = new HashMap
+    Map<String, LayoutConfigurator> layoutConfigMapping = new ConcurrentHashMap
     
     /**
      * Contains the current synthesis ID for the URI of the model.
      */
-    Map<String, String> synthesisIdMapping = new HashMap
+    Map<String, String> synthesisIdMapping = new ConcurrentHashMap
 
     /**
-     * Contains the {@link IViewer} displaying diagrams.
+     * Contains the {@link IViewer} that displayed the most recently prepared diagram. Written under the
+     * {@link #sharedLock}.
      */
-    IViewer viewer = null
+    volatile IViewer viewer = null
+    
+    /**
+     * The maximum number of viewers kept in the {@link #viewerPool}.
+     */
+    public static val MAX_POOLED_VIEWERS = 8
+    
+    /**
+     * The viewers of the recently shown diagrams, mapped by the URI of the diagram. Keeps their view contexts alive, so
+     * that switching back to a recently shown diagram only needs an update of the view context. Like all other data of
+     * a diagram, the viewer is shared by all clients showing the same URI, so that the view context of the viewer is
+     * always the one stored for the URI. The least recently used viewers are evicted first. Guarded by the
+     * {@link #sharedLock}.
+     */
+    Map<String, IViewer> viewerPool = new LinkedHashMap<String, IViewer>(16, 0.75f, true) {
+        override protected removeEldestEntry(Entry<String, IViewer> eldest) {
+            if (size > MAX_POOLED_VIEWERS) {
+                KGraphDiagramState.discard(eldest.value)
+                return true
+            }
+            return false
+        }
+    }
     
     /**
      * Set containing the used {@link ISynthesis}.
      */
-    Set<ISynthesis> usedSyntheses = new HashSet
+    Set<ISynthesis> usedSyntheses = ConcurrentHashMap.newKeySet
     
     /**
      * Map containing all recently used {@link SynthesisOption}s and their current values.
      */
-    Map<SynthesisOption, Object> recentSynthesisOptions = new HashMap
+    Map<SynthesisOption, Object> recentSynthesisOptions = new ConcurrentHashMap
     
     /**
      * The options predefined by the client that should be used during syntheses and layout.
      */
-    JsonElement clientOptions
+    volatile JsonElement clientOptions
     
     /**
      * A map to map the Sprotty client id to the URI leading to the resource.
      */
-    Map<String, String> uriStringMap = new HashMap
+    Map<String, String> uriStringMap = new ConcurrentHashMap
+    
+    /**
+     * The locks guarding the data of each URI, mapped by the URI they guard. The locks are only weakly referenced, so
+     * they are discarded once no thread uses them anymore and the map does not grow with every URI ever shown.
+     */
+    LoadingCache<String, Object> uriLocks = CacheBuilder.newBuilder.weakValues.build(CacheLoader.from([ String uri |
+        new Object
+    ]))
+    
+    /**
+     * The lock guarding the data shared between all URIs, such as the viewer and the recent synthesis options.
+     */
+    val Object sharedLock = new Object
     
     // ------------ Methods to access or modify the fields -------------
     
+    /**
+     * Returns the lock guarding all data stored for the given URI. Compound operations on the data of a single diagram
+     * should synchronize on this lock.
+     * 
+     * @param uri The identifying URI of the graph.
+     * @return The lock object for that URI, never {@code null}.
+     */
+    def Object getLock(String uri) {
+        if (uri === null) {
+            return sharedLock
+        }
+        return uriLocks.getUnchecked(uri)
+    }
+    
+    /**
+     * Returns the lock guarding the data shared between all URIs, namely the viewer, the used syntheses, the recent
+     * synthesis options and the client options.
+     */
+    def Object getSharedLock() {
+        return sharedLock
+    }
+    
     /**
      * Getter to access the value stored in the kGraphContext map.
      * 
@@ -134,7 +200,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putKGraphContext(String uri, ViewContext value) {
-        kGraphContexts.put(uri, value)
+        putOrRemove(kGraphContexts, uri, value)
     }
     
     /**
@@ -153,7 +219,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putKGraphToSModelElementMap(String uri, Map<KGraphElement, SModelElement> value) {
-        kGraphToSModelElementMap.put(uri, value)
+        putOrRemove(kGraphToSModelElementMap, uri, value)
     }
     
     /**
@@ -172,7 +238,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putIdToKGraphElementMap(String uri, Map<String, KGraphElement> value) {
-        idToKGraphElementMap.put(uri, value)
+        putOrRemove(idToKGraphElementMap, uri, value)
     }
     
     /**
@@ -191,7 +257,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putImageData(String uri, Set<ImageData> value) {
-        imageData.put(uri, value)
+        putOrRemove(imageData, uri, value)
     }
     
     /**
@@ -210,7 +276,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putTexts(String uri, List<SKLabel> value) {
-        texts.put(uri, value)
+        putOrRemove(texts, uri, value)
     }
     
     /**
@@ -229,7 +295,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putTextMapping(String uri, Map<String, KText> value) {
-        textMapping.put(uri, value)
+        putOrRemove(textMapping, uri, value)
     }
     
     /**
@@ -248,7 +314,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putSnapshotModel(String uri, Object value) {
-        snapshotModelMapping.put(uri, value)
+        putOrRemove(snapshotModelMapping, uri, value)
     }
     
     /**
@@ -257,12 +323,7 @@ class KGraphDiagramState {
      * @param uri They identifying URI of the graph to access the value in the map.
      */
     def getLayoutConfig(String uri) {
-        var configurator = layoutConfigMapping.get(uri)
-        if (configurator === null) {
-            configurator = new LayoutConfigurator
-            layoutConfigMapping.put(uri, configurator)
-        }
-        return configurator
+        return layoutConfigMapping.computeIfAbsent(uri, [ new LayoutConfigurator ])
     }
     
     /**
@@ -272,7 +333,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putLayoutConfig(String uri, LayoutConfigurator value) {
-        layoutConfigMapping.put(uri, value)
+        putOrRemove(layoutConfigMapping, uri, value)
     }
     
     /**
@@ -291,7 +352,7 @@ class KGraphDiagramState {
      * @param value The value to be stored in the map.
      */
     def putSynthesisId(String uri, String value) {
-        synthesisIdMapping.put(uri, value)
+        putOrRemove(synthesisIdMapping, uri, value)
     }
     
     /**
@@ -310,7 +371,7 @@ class KGraphDiagramState {
      * @param uri The identifying URI of the graph to be stored in the map.
      */
     def putURIString(String clientId, String uri) {
-        uriStringMap.put(clientId, uri)
+        putOrRemove(uriStringMap, clientId, uri)
     }
     
     /**
@@ -326,7 +387,47 @@ class KGraphDiagramState {
      * @param viewer The new viewer.
      */
     def setViewer(IViewer viewer) {
-        this.viewer = viewer
+        synchronized (sharedLock) {
+            this.viewer = viewer
+        }
+    }
+    
+    /**
+     * Returns the pooled viewer that last displayed the diagram for the given URI.
+     * 
+     * @param uri The identifying URI of the graph.
+     * @return The viewer, or {@code null} if there is no such viewer in the pool.
+     */
+    def IViewer getViewer(String uri) {
+        synchronized (sharedLock) {
+            return viewerPool.get(uri)
+        }
+    }
+    
+    /**
+     * Puts the given viewer into the pool of viewers and sets it as the current viewer.
+     * 
+     * @param uri The identifying URI of the graph displayed by the viewer.
+     * @param viewer The viewer.
+     */
+    def void putViewer(String uri, IViewer viewer) {
+        synchronized (sharedLock) {
+            val previous = viewerPool.put(uri, viewer)
+            if (previous !== viewer) {
+                discard(previous)
+            }
+            this.viewer = viewer
+        }
+    }
+    
+    /**
+     * Discards the memoizer of the view context of a viewer removed from the {@link #viewerPool}, which detaches the
+     * adapters it attached to the input model.
+     */
+    private static def void discard(IViewer viewer) {
+        if (viewer?.viewContext !== null) {
+            SynthesisMemoizer.discard(viewer.viewContext)
+        }
     }
     
     /**
@@ -362,7 +463,7 @@ class KGraphDiagramState {
      * {@link #getRecentSynthesisOptions()}.
      */
     def addRecentSynthesisOption(SynthesisOption option, Object value) {
-        recentSynthesisOptions.put(option, value)
+        putOrRemove(recentSynthesisOptions, option, value)
     }
     
     /**
@@ -390,9 +491,27 @@ class KGraphDiagramState {
             snapshotModelMapping.remove(uri)
             layoutConfigMapping.remove(uri)
             synthesisIdMapping.remove(uri)
-            viewer = null
+            imageData.remove(uri)
             uriStringMap.remove(clientId)
         }
+        synchronized (sharedLock) {
+            if (uri !== null) {
+                viewer = null
+                discard(viewerPool.remove(uri))
+            }
+        }
+    }
+    
+    /**
+     * Puts the value into the concurrent map, or removes the key if the value is {@code null}, as concurrent maps do
+     * not permit {@code null} values.
+     */
+    private static def <K, V> putOrRemove(Map<K, V> map, K key, V value) {
+        if (value === null) {
+            map.remove(key)
+        } else {
+            map.put(key, value)
+        }
     }
     
 }
\ No newline at end of file
@@ -13,6 +13,9 @@
 package de.cau.cs.kieler.klighd.lsp
 
 import com.google.common.base.Throwables
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheLoader
+import com.google.common.cache.LoadingCache
 import com.google.gson.JsonObject
 import com.google.inject.Inject
 import com.google.inject.Provider
@@ -26,6 +29,7 @@ import de.cau.cs.kieler.klighd.lsp.launch.AbstractLanguageServer
 import de.cau.cs.kieler.klighd.lsp.model.LayoutOptionUIData
 import de.cau.cs.kieler.klighd.lsp.model.SKGraph
 import de.cau.cs.kieler.klighd.lsp.model.ValuedSynthesisOption
+import de.cau.cs.kieler.klighd.syntheses.SynthesisMemoizer
 import de.cau.cs.kieler.klighd.util.KlighdSynthesisProperties
 import java.util.ArrayList
 import java.util.Collection
@@ -39,6 +43,7 @@ import org.eclipse.elk.core.data.LayoutOptionData
 import org.eclipse.elk.core.data.LayoutOptionData.Visibility
 import org.eclipse.elk.core.util.Pair
 import org.eclipse.elk.graph.properties.IProperty
+import org.eclipse.elk.graph.properties.Property
 import org.eclipse.emf.common.util.URI
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.sprotty.IDiagramServer
@@ -76,6 +81,13 @@ class KGraphDiagramUpdater extends DiagramUpdater {
     @Inject
     KGraphDiagramState diagramState
     
+    /**
+     * The locks serializing the model preparations of each URI, mapped by the URI. The locks are only weakly
+     * referenced, so they are discarded once no preparation of their URI is running anymore.
+     */
+    val LoadingCache<String, Object> prepareLocks = CacheBuilder.newBuilder.weakValues.build(
+        CacheLoader.from([ String uri | new Object ]))
+    
     /**
      * The handler for sending info, warnings, or errors to the user.
      */
@@ -86,6 +98,12 @@ class KGraphDiagramUpdater extends DiagramUpdater {
      * The key of the client options under that the synthesis options are stored.
      */
     public static String SYNTHESIS_OPTION = 'synthesis'
+    
+    /**
+     * The modification stamp of the input model a view context has last been updated with, see
+     * {@link SynthesisMemoizer#retainModificationStamp(EObject)}.
+     */
+    static val IProperty<Object> INPUT_MODEL_STAMP = new Property<Object>("de.cau.cs.kieler.klighd.lsp.inputModelStamp")
 
     override initialize(DiagramLanguageServer languageServer) {
         this.languageServer = languageServer
@@ -114,7 +132,7 @@ class KGraphDiagramUpdater extends DiagramUpdater {
         return (languageServer as KGraphLanguageServerExtension).doRead(uri) [ resource, ci |
             // Just update the SGraph from the already existing KGraph.
             var ViewContext viewContext = null
-            synchronized(diagramState) {
+            synchronized (diagramState.getLock(uri)) {
                 viewContext = diagramState.getKGraphContext(uri)
             }
             
@@ -140,7 +158,7 @@ class KGraphDiagramUpdater extends DiagramUpdater {
         }
         return (languageServer as KGraphLanguageServerExtension).doRead(uri) [ resource, ci |
             var Object snapshotModel = null
-            synchronized (diagramState) {
+            synchronized (diagramState.getLock(uri)) {
                 snapshotModel = diagramState.getSnapshotModel(uri)
             }
             val model = if (snapshotModel === null) {
@@ -172,15 +190,31 @@ class KGraphDiagramUpdater extends DiagramUpdater {
      * @param model The new model that should be shown for the server.
      * @param uri The identifying URI to access the diagram state maps.
      */
-    synchronized def void prepareModel(KGraphDiagramServer server, Object model, String uri) {
+    def void prepareModel(KGraphDiagramServer server, Object model, String uri) {
+        // Only one model preparation per URI at a time, preparations for different URIs may run concurrently, and so
+        // may their syntheses if concurrent diagram tasks are enabled, see AbstractLanguageServer.executeDiagramTask.
+        // This must not be the lock of the diagram state, as the synthesis below may wait for the main thread.
+        synchronized (prepareLocks.getUnchecked(uri)) {
+            doPrepareModel(server, model, uri)
+        }
+    }
 
+    /**
+     * Does the actual preparation of {@link #prepareModel(KGraphDiagramServer, Object, String)}.
+     */
+    protected def void doPrepareModel(KGraphDiagramServer server, Object model, String uri) {
         val properties = new KlighdSynthesisProperties()
         var SprottyViewer viewer = null
         var String synthesisId
-        synchronized (diagramState) {
-            val iViewer = diagramState.getViewer()
+        // Whether the client switches back to a diagram it has shown before.
+        var switchedBack = false
+        synchronized (diagramState.getLock(uri)) {
+            // Reuse the viewer that last showed this diagram, so its view context only needs an update.
+            val iViewer = diagramState.getViewer(uri)
             if (iViewer instanceof SprottyViewer) {
                 viewer = iViewer
+                viewer.diagramServer = server
+                switchedBack = uri != diagramState.getURIString(server.clientId)
             }
 
             synthesisId = diagramState.getSynthesisId(uri)
@@ -222,12 +256,15 @@ class KGraphDiagramUpdater extends DiagramUpdater {
             viewer.viewContext = viewContext
         }
 
+        // The option values of a reused view context, to detect whether the client changed any of them.
+        val previousOptionValues = if (!modelTypeChanged) getOptionValues(viewContext)
+        
         // Save recent synthesis options to restore later.
         storeCurrentSynthesisOptions()
         // Update the recent synthesis options with all synthesis options configured on the client.
         configureSynthesisOptions(viewContext)
         var Map<SynthesisOption, Object> recentSynthesisOptions = null
-        synchronized (diagramState) {
+        synchronized (diagramState.sharedLock) {
             recentSynthesisOptions = diagramState.recentSynthesisOptions
         }
         properties.configureSynthesisOptionValues(recentSynthesisOptions)
@@ -240,22 +277,48 @@ class KGraphDiagramUpdater extends DiagramUpdater {
             }
         }
         
-        val vc = viewContext
-        // Update the model and with that call the diagram synthesis.
-        AbstractLanguageServer.addToMainThreadQueue([
-            vc.update(model)
-        ])
+        // When switching back to a diagram, its pooled view context is still up to date if it shows the unmodified
+        // model with the same options, so the synthesis can be skipped. Other updates of the diagram shown, e.g.
+        // refreshes or actions requiring a synthesis, always run the synthesis. The model stamp is tracked for EObject
+        // models only, others are always updated. The adapter providing the stamp is detached from the model once the
+        // view context's memoizer is discarded, i.e. when its viewer is removed from the pool of the diagram state.
+        val stamp = if (model instanceof EObject) {
+            SynthesisMemoizer.getMemoizer(viewContext).retainModificationStamp(model)
+        }
+        val upToDate = switchedBack && !modelTypeChanged && stamp !== null && viewContext.inputModel === model
+            && stamp == viewContext.getProperty(INPUT_MODEL_STAMP)
+            && previousOptionValues == getOptionValues(viewContext)
+        viewContext.setProperty(INPUT_MODEL_STAMP, stamp)
+        
+        if (!upToDate) {
+            val vc = viewContext
+            // Update the model and with that call the diagram synthesis.
+            AbstractLanguageServer.executeDiagramTask([
+                vc.update(model)
+            ])
+        }
 
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(uri)) {
             diagramState.putURIString(server.clientId, uri)
             diagramState.putKGraphContext(uri, viewContext)
             diagramState.putSynthesisId(uri, KlighdDataManager.instance.getSynthesisID(viewContext.diagramSynthesis))
             if (viewer !== null) {
-                diagramState.setViewer(viewer)
+                diagramState.putViewer(uri, viewer)
             }
         }
     }
 
+    /**
+     * Returns the current values of the synthesis options displayed for the given view context.
+     */
+    private static def Map<SynthesisOption, Object> getOptionValues(ViewContext viewContext) {
+        val Map<SynthesisOption, Object> values = newHashMap
+        for (option : viewContext.displayedSynthesisOptions) {
+            values.put(option, viewContext.getOptionValue(option))
+        }
+        return values
+    }
+
     /**
      * Generates an {@link SGraph} from the given {@link ViewContext} and the id under which it should be remembered in
      * the {@link KGraphDiagramState}.
@@ -267,7 +330,7 @@ class KGraphDiagramUpdater extends DiagramUpdater {
      * @param cancelIndicator The {@link CancelIndicator} used to tell the diagram translation to stop.
      * @return The generated SGraph
      */
-    synchronized def SGraph createModel(ViewContext viewContext, String uri, CancelIndicator cancelIndicator) {
+    def SGraph createModel(ViewContext viewContext, String uri, CancelIndicator cancelIndicator) {
         // Generate the SGraph model from the KGraph model and store every later relevant part in the
         // diagram state.
         val diagramGenerator = diagramGeneratorProvider.get
@@ -276,16 +339,15 @@ class KGraphDiagramUpdater extends DiagramUpdater {
             shouldSelectText = languageServer.shouldSelectText
         }
         diagramGenerator.activeTracing = shouldSelectText
-        val sGraph = diagramGenerator.toSGraph(viewContext.viewModel, uri, cancelIndicator)
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(uri)) {
+            val sGraph = diagramGenerator.toSGraph(viewContext.viewModel, uri, cancelIndicator)
             diagramState.putKGraphToSModelElementMap(uri, diagramGenerator.getKGraphToSModelElementMap)
             diagramState.putIdToKGraphElementMap(uri, diagramGenerator.idToKGraphElementMap)
             diagramState.putTexts(uri, diagramGenerator.getModelLabels)
             diagramState.putTextMapping(uri, diagramGenerator.getTextMapping)
             diagramState.putImageData(uri, diagramGenerator.images)
+            return sGraph
         }
-
-        return sGraph
     }
 
     /**
@@ -295,7 +357,7 @@ class KGraphDiagramUpdater extends DiagramUpdater {
      * @see de.cau.cs.kieler.klighd.ui.view.DiagramView#storeCurrentSynthesisOptions
      */
     def storeCurrentSynthesisOptions() {
-        synchronized (diagramState) {
+        synchronized (diagramState.sharedLock) {
             val viewer = diagramState.viewer
             if (viewer !== null && viewer.viewContext !== null) {
                 val viewContext = viewer.viewContext
@@ -328,13 +390,9 @@ class KGraphDiagramUpdater extends DiagramUpdater {
      * @param viewContext The view context to compare the synthesis options against.
      */
     def void configureSynthesisOptions(ViewContext viewContext) {
-        var Map<SynthesisOption, Object> recentSynthesisOptions = null
-        synchronized (diagramState) {
-            recentSynthesisOptions = diagramState.recentSynthesisOptions
-        }
         try {
             var JsonObject synthesisOptions
-            synchronized (diagramState) {
+            synchronized (diagramState.sharedLock) {
                 if (diagramState.clientOptions === null) {
                     // Use an empty JSON object if the client does not specify synthesis options during initialization.
                     LOG.info("No client-side synthesis options provided. Fallback to empty options.")
@@ -357,7 +415,7 @@ class KGraphDiagramUpdater extends DiagramUpdater {
                                                  : optionValue.isString  ? optionValue.asString
                     KGraphLanguageServerExtension.configureOption(matchedOption, optionValueObject, viewContext)
                     // Store the option with the new value in the recent options.
-                    recentSynthesisOptions.put(matchedOption, viewContext.getOptionValue(matchedOption))
+                    diagramState.addRecentSynthesisOption(matchedOption, viewContext.getOptionValue(matchedOption))
                     configuredOptions.add(optionId)
                 }
             }
@@ -106,7 +106,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
         oldClientIds.forEach[ didClose ]
         val initializationOptions = params.initializationOptions
         if (initializationOptions instanceof JsonObject) {
-            synchronized (diagramState) {
+            synchronized (diagramState.sharedLock) {
                 diagramState.clientOptions = initializationOptions.get(CLIENT_DIAGRAM_OPTIONS_PROPERTY)
             }
         }
@@ -115,7 +115,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
     
     override didClose(String clientId) {
         // Clear the diagramState of this client id additional to the default use of this method.
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(diagramState.getURIString(clientId))) {
             diagramState.remove(clientId)
         }
         super.didClose(clientId)
@@ -186,7 +186,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
     override setSynthesisOptions(SetSynthesisOptionsParam param) {
         val decodedUri = URLDecoder.decode(param.uri, "UTF-8")
         doRead(decodedUri) [ resource, ci |
-            synchronized (diagramState) {
+            synchronized (diagramState.getLock(decodedUri)) {
                 val ViewContext viewContext = diagramState.getKGraphContext(decodedUri)
                 if (viewContext === null) {
                     sendErrorAndThrow(new IllegalStateException("The diagram has already been closed."))
@@ -230,7 +230,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
     override setLayoutOptions(SetLayoutOptionsParam param) {
         val decodedUri = URLDecoder.decode(param.uri, "UTF-8")
         doRead(decodedUri) [ resource, ci |
-            synchronized (diagramState) {
+            synchronized (diagramState.getLock(decodedUri)) {
                 val LayoutConfigurator layoutConfig = diagramState.getLayoutConfig(decodedUri)
                 if (layoutConfig === null) {
                     throw new IllegalStateException("The diagram has already been closed")
@@ -272,7 +272,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
     override performAction(PerformActionParam param) {
         val decodedUri = URLDecoder.decode(param.uri, "UTF-8")
         try {
-            synchronized (diagramState) {
+            synchronized (diagramState.getLock(decodedUri)) {
                 // Find the action and execute it.
                 val klighdAction = KlighdDataManager.instance.getActionById(param.actionId)
                 val viewer = diagramState.viewer
@@ -407,7 +407,7 @@ class KGraphLanguageServerExtension extends SyncDiagramLanguageServer
         
         val diagramServer = diagramServerManager.getDiagramServer('keith-diagram', clientId)
         if (diagramServer instanceof KGraphDiagramServer) {
-            synchronized (diagramState) {
+            synchronized (diagramState.getLock(uri)) {
                 diagramState.putSnapshotModel(uri, model)
             }
             diagramServer.initializeOptions(#{
@@ -14,11 +14,17 @@ package de.cau.cs.kieler.klighd.lsp
 
 import com.google.inject.Inject
 import de.cau.cs.kieler.klighd.LightDiagramLayoutConfig
+import de.cau.cs.kieler.klighd.lsp.launch.AbstractLanguageServer
+import de.cau.cs.kieler.klighd.lsp.launch.LanguageServerExecutors
 import de.cau.cs.kieler.klighd.lsp.utils.KGraphMappingUtil
 import de.cau.cs.kieler.klighd.lsp.utils.RenderingPreparer
 import java.io.ByteArrayOutputStream
 import java.util.ArrayList
+import java.util.Map
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
 import org.apache.log4j.Logger
+import org.eclipse.elk.core.util.IElkCancelIndicator
 import org.eclipse.elk.graph.ElkNode
 import org.eclipse.emf.common.util.URI
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl
@@ -43,12 +49,80 @@ class KGraphLayoutEngine extends ElkLayoutEngine {
 	
 	public static val LOG = Logger.getLogger(KGraphLayoutEngine)
 	
+    /**
+     * If the renderings should be prepared in parallel after the layout, see
+     * {@link RenderingPreparer#prepareRenderingParallel}. Enabled by setting the system property
+     * {@code klighd.lsp.parallelRenderingPreparation} to {@code true}.
+     */
+    static val PARALLEL_RENDERING_PREPARATION = Boolean.getBoolean("klighd.lsp.parallelRenderingPreparation")
+    
+    /**
+     * The name of the executor performing the scheduled layouts or waiting for them to be performed on the main thread,
+     * see {@link LanguageServerExecutors}.
+     */
+    static val LAYOUT_EXECUTOR = "klighd-layout"
+    
+    /**
+     * The token of the newest scheduled layout for each diagram, mapped by the ID of the diagram's root. All older
+     * layouts for the same diagram are superseded.
+     */
+    val Map<String, Object> newestLayouts = new ConcurrentHashMap
+	
 	override layout(SModelRoot root, Action cause) {
-	    synchronized (diagramState) {
+	    layout(root, cause, [ false ])
+	}
+	
+    /**
+     * Schedules the layout of the given root to be performed asynchronously on the main thread, or only under the
+     * lock of the diagram if concurrent diagram tasks are enabled, see {@link AbstractLanguageServer#executeDiagramTask}.
+     * Scheduling a newer layout for the same diagram supersedes this layout: If it did not start yet it is skipped,
+     * otherwise it is canceled. Only the newest layout of each diagram should therefore be published.
+     * 
+     * @param root The root of the diagram to lay out.
+     * @param cause The action causing the layout.
+     * @return A future completing with {@code true} if the layout was performed and with {@code false} if it was
+     *      superseded by a newer layout.
+     */
+    def CompletableFuture<Boolean> scheduleLayout(SModelRoot root, Action cause) {
+        val id = root.id
+        val token = new Object
+        newestLayouts.put(id, token)
+        val IElkCancelIndicator cancelIndicator = [ newestLayouts.get(id) !== token ]
+        return CompletableFuture.supplyAsync([
+            try {
+                if (cancelIndicator.isCanceled) {
+                    return false
+                }
+                AbstractLanguageServer.executeDiagramTask([
+                    layout(root, cause, cancelIndicator)
+                ])
+                return !cancelIndicator.isCanceled
+            } finally {
+                newestLayouts.remove(id, token)
+            }
+        ], LanguageServerExecutors.get(LAYOUT_EXECUTOR))
+    }
+    
+    /**
+     * Performs the layout of the given root, unless the given {@code cancelIndicator} tells that the layout has been
+     * superseded.
+     * 
+     * @param root The root of the diagram to lay out.
+     * @param cause The action causing the layout.
+     * @param cancelIndicator Indicates if the layout should be canceled.
+     */
+    def void layout(SModelRoot root, Action cause, IElkCancelIndicator cancelIndicator) {
+	    synchronized (diagramState.getLock(root.id)) {
+            if (cancelIndicator.isCanceled) {
+                // Superseded while waiting for the lock.
+                return
+            }
     	    if (root instanceof SGraph) {
     	        // The layout is executed on the KGraph, not the SGraph. So get the KGraph belonging to this SGraph from
     	        // the KGraphContext.
-                onlyLayoutOnKGraph(root.id)
+                if (!onlyLayoutOnKGraph(root.id, cancelIndicator)) {
+                    return
+                }
 
                 // map layouted KGraph to SGraph
                 KGraphMappingUtil.mapLayout(diagramState.getKGraphToSModelElementMap(root.id))
@@ -62,6 +136,18 @@ class KGraphLayoutEngine extends ElkLayoutEngine {
      * @param uri The identifying URI of the graph.
      */
     def onlyLayoutOnKGraph(String uri) {
+        onlyLayoutOnKGraph(uri, [ false ])
+    }
+
+    /**
+     * Performs the layout only on the KGraph without mapping it to a SGraph, unless it is canceled by the given
+     * {@code cancelIndicator}.
+     * 
+     * @param uri The identifying URI of the graph.
+     * @param cancelIndicator Indicates if the layout should be canceled.
+     * @return {@code true} if the layout was performed completely, {@code false} if it was canceled.
+     */
+    def boolean onlyLayoutOnKGraph(String uri, IElkCancelIndicator cancelIndicator) {
         val kGraphContext = diagramState.getKGraphContext(uri)
 
         // layout of KGraph
@@ -73,11 +159,21 @@ class KGraphLayoutEngine extends ElkLayoutEngine {
         var configurators = new ArrayList
         configurators.add(configurator)
         lightDiagramLayoutConfig.options(configurators)
+        lightDiagramLayoutConfig.cancelIndicator(cancelIndicator)
 
         synchronized (kGraphContext.viewModel) {
             lightDiagramLayoutConfig.performLayout
-            RenderingPreparer.prepareRendering(kGraphContext.viewModel)
+            if (cancelIndicator.isCanceled) {
+                // The rendering is prepared by the newer layout.
+                return false
+            }
+            if (PARALLEL_RENDERING_PREPARATION) {
+                RenderingPreparer.prepareRenderingParallel(kGraphContext.viewModel)
+            } else {
+                RenderingPreparer.prepareRendering(kGraphContext.viewModel)
+            }
         }
+        return true
     }
 
     override protected applyEngine(ElkNode elkGraph) {
@@ -33,7 +33,7 @@ class LSPUtil {
     static def getRoot(KGraphDiagramState diagramState, String uri) {
 
         var ViewContext viewContext = null
-        synchronized (diagramState) {
+        synchronized (diagramState.getLock(uri)) {
             viewContext = diagramState.getKGraphContext(uri)
         }
 
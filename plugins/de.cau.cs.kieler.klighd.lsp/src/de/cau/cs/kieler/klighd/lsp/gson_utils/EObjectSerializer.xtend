@@ -33,8 +33,13 @@ import de.cau.cs.kieler.klighd.util.KlighdProperties
 import java.lang.reflect.Field
 import java.lang.reflect.Modifier
 import java.lang.reflect.Type
+import java.util.ArrayList
+import java.util.List
+import java.util.Map
+import java.util.concurrent.ConcurrentHashMap
 import org.eclipse.emf.ecore.EObject
 import org.eclipse.emf.ecore.impl.EObjectImpl
+import org.eclipse.xtend.lib.annotations.Accessors
 
 /**
  * Serializer that serializes any sub class of {@link EMapPropertyHolder} via reflection while ignoring fields of the
@@ -48,88 +53,137 @@ import org.eclipse.emf.ecore.impl.EObjectImpl
  */
 class EObjectSerializer implements JsonSerializer<EObject> {
     
+    /**
+     * The serialization plans of all classes serialized so far. Each plan is calculated once per class, so that the
+     * reflective field lookup and the checks for skipped fields and type fields are not repeated for each instance.
+     */
+    val Map<Class<?>, ClassSerializationPlan> serializationPlans = new ConcurrentHashMap
+    
     override serialize(EObject source, Type typeOfSrc, JsonSerializationContext context) {
-        var Class<? extends EObject> class = source.class
-            if (shouldSkipClass(class)) {
-                return JsonNull.INSTANCE
-            }
+        val plan = getPlan(source.class)
+        if (plan.skip) {
+            return JsonNull.INSTANCE
+        }
         val jsonObject = new JsonObject
-        // run over all super classes (until the class equals EMapPropertyHolder or EObject, but not all the way until Object!)
-        while (class !== EMapPropertyHolderImpl && class !== EObjectImpl) {
-            for (field : class.declaredFields) {
-                if (specialHandling(field)) {
-                    handle(field)
-                } else if (!shouldSkipField(field)) {
-                    field.accessible = true
-                    // Add all fields of this class and its super classes if their content is not null.
-                    val content = field.get(source)
-                    if (content !== null) {
-                        jsonObject.add(field.name, context.serialize(content))
-                    }
-                }
-            }
-            // Add a "type" field for all classes that would be ambiguous otherwise.
-            if (needsTypeField(class)) {
-                if (jsonObject.get("type") === null) {
-                    jsonObject.add("type", context.serialize(class.simpleName))
+        forEachMember(source, plan, [ name, content | jsonObject.add(name, context.serialize(content)) ])
+        return jsonObject
+    }
+    
+    /**
+     * Returns the serialization plan for the given class, calculating it on its first request.
+     * 
+     * @param c The class of the objects to serialize.
+     */
+    def ClassSerializationPlan getPlan(Class<? extends EObject> c) {
+        return serializationPlans.computeIfAbsent(c, [ createPlan(it as Class<? extends EObject>) ])
+    }
+    
+    /**
+     * Calls the {@code acceptor} with the name and content of each member of the {@code source} to be serialized, in
+     * their order of serialization. Members with {@code null} content are omitted.
+     * 
+     * @param source The object to serialize.
+     * @param plan The serialization plan for the class of the {@code source}, see {@link #getPlan}.
+     * @param acceptor The acceptor of the names and contents of the members.
+     */
+    def void forEachMember(EObject source, ClassSerializationPlan plan, (String, Object)=>void acceptor) {
+        var hasType = false
+        for (step : plan.steps) {
+            if (step instanceof Field) {
+                // Add all fields of this class and its super classes if their content is not null.
+                val content = step.get(source)
+                if (content !== null) {
+                    acceptor.apply(step.name, content)
+                    hasType = hasType || step.name == "type"
                 }
+            } else if (!hasType) {
+                // Add a "type" field for all classes that would be ambiguous otherwise.
+                acceptor.apply("type", step)
+                hasType = true
             }
-            // This cast is safe, because when the class equals EObject, the while loop will exit.
-            class = class.superclass as Class<? extends EObject>
         }
         
         // A more efficient testing of properties depending on the sources class.
-        if (KRendering.isAssignableFrom(source.class)) {
+        if (plan.rendering) {
             val propertyHolder = source as KRendering
             // TODO: put these properties back in a 'properties' field containing these sub fields.
             if (source.class === KRenderingRefImpl) {
                 // Only KRenderingRefs have the bounds- and decoration maps.
                 if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_BOUNDS_MAP)) {
-                    jsonObject.add("calculatedBoundsMap", context.serialize(
-                        propertyHolder.getProperty(SprottyProperties.CALCULATED_BOUNDS_MAP)))
+                    acceptor.apply("calculatedBoundsMap",
+                        propertyHolder.getProperty(SprottyProperties.CALCULATED_BOUNDS_MAP))
                 }
                 if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_DECORATION_MAP)) {
-                    jsonObject.add("calculatedDecorationMap", context.serialize(
-                        propertyHolder.getProperty(SprottyProperties.CALCULATED_DECORATION_MAP)))
+                    acceptor.apply("calculatedDecorationMap",
+                        propertyHolder.getProperty(SprottyProperties.CALCULATED_DECORATION_MAP))
                 }
             } else {
                 // All other renderings contain calculatedBounds and -Decoration.
                 if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_BOUNDS)) {
-                    jsonObject.add("calculatedBounds", context.serialize(
-                        propertyHolder.getProperty(SprottyProperties.CALCULATED_BOUNDS)))
+                    acceptor.apply("calculatedBounds", propertyHolder.getProperty(SprottyProperties.CALCULATED_BOUNDS))
                 }
                 if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_DECORATION)) {
-                    jsonObject.add("calculatedDecoration", context.serialize(
-                        propertyHolder.getProperty(SprottyProperties.CALCULATED_DECORATION)))
+                    acceptor.apply("calculatedDecoration",
+                        propertyHolder.getProperty(SprottyProperties.CALCULATED_DECORATION))
                 }
                 if (source.class === KTextImpl) {
                     // Only KTexts have the additional calculatedTextBounds and calculatedTextLineWidths/Heights
                     // properties.
                     if (propertyHolder.hasProperty(KlighdProperties.CALCULATED_TEXT_BOUNDS)) {
-                        jsonObject.add("calculatedTextBounds", context.serialize(
-                            propertyHolder.getProperty(KlighdProperties.CALCULATED_TEXT_BOUNDS)))
+                        acceptor.apply("calculatedTextBounds",
+                            propertyHolder.getProperty(KlighdProperties.CALCULATED_TEXT_BOUNDS))
                     }
                     if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_TEXT_LINE_WIDTHS)) {
-                        jsonObject.add("calculatedTextLineWidths", context.serialize(
-                            propertyHolder.<float[]>getProperty(SprottyProperties.CALCULATED_TEXT_LINE_WIDTHS)))
+                        acceptor.apply("calculatedTextLineWidths",
+                            propertyHolder.<float[]>getProperty(SprottyProperties.CALCULATED_TEXT_LINE_WIDTHS))
                     }
                     if (propertyHolder.hasProperty(SprottyProperties.CALCULATED_TEXT_LINE_HEIGHTS)) {
-                        jsonObject.add("calculatedTextLineHeights", context.serialize(
-                            propertyHolder.<float[]>getProperty(SprottyProperties.CALCULATED_TEXT_LINE_HEIGHTS)))
+                        acceptor.apply("calculatedTextLineHeights",
+                            propertyHolder.<float[]>getProperty(SprottyProperties.CALCULATED_TEXT_LINE_HEIGHTS))
                     }
                 }
             }
             // All renderings may have tooltips and rendering IDs again.
             if (propertyHolder.hasProperty(KlighdProperties.TOOLTIP)) {
-                jsonObject.add("tooltip", context.serialize(
-                    propertyHolder.getProperty(KlighdProperties.TOOLTIP)))
+                acceptor.apply("tooltip", propertyHolder.getProperty(KlighdProperties.TOOLTIP))
             }
             if (propertyHolder.hasProperty(SprottyProperties.RENDERING_ID)) {
-                jsonObject.add("renderingId", context.serialize(
-                    propertyHolder.getProperty(SprottyProperties.RENDERING_ID)))
+                acceptor.apply("renderingId", propertyHolder.getProperty(SprottyProperties.RENDERING_ID))
             }
         }
-        return jsonObject
+    }
+    
+    /**
+     * Calculates the serialization plan for the given class. The plan contains all fields to be serialized in their
+     * order of serialization, interleaved with the simple names of the classes that need to be added as a "type" field.
+     * 
+     * @param c The class to calculate the plan for.
+     */
+    protected def ClassSerializationPlan createPlan(Class<? extends EObject> c) {
+        val plan = new ClassSerializationPlan
+        plan.skip = shouldSkipClass(c)
+        plan.rendering = KRendering.isAssignableFrom(c)
+        if (plan.skip) {
+            return plan
+        }
+        var Class<? extends EObject> class = c
+        // run over all super classes (until the class equals EMapPropertyHolder or EObject, but not all the way until Object!)
+        while (class !== EMapPropertyHolderImpl && class !== EObjectImpl) {
+            for (field : class.declaredFields) {
+                if (specialHandling(field)) {
+                    handle(field)
+                } else if (!shouldSkipField(field)) {
+                    field.accessible = true
+                    plan.steps.add(field)
+                }
+            }
+            if (needsTypeField(class)) {
+                plan.steps.add(class.simpleName)
+            }
+            // This cast is safe, because when the class equals EObject, the while loop will exit.
+            class = class.superclass as Class<? extends EObject>
+        }
+        return plan
     }
     
     /**
@@ -175,4 +229,27 @@ class EObjectSerializer implements JsonSerializer<EObject> {
     def handle(Field f) {
         
     }
-}
\ No newline at end of file
+}
+
+/**
+ * The precalculated serialization steps for a single class, see {@link EObjectSerializer#createPlan}.
+ * 
+ * @author nre
+ */
+@Accessors
+class ClassSerializationPlan {
+    /**
+     * If instances of the class are skipped completely.
+     */
+    boolean skip
+    
+    /**
+     * If the class is a {@link KRendering}, whose calculated properties need to be serialized as well.
+     */
+    boolean rendering
+    
+    /**
+     * The accessible {@link Field}s to serialize and the {@link String} values of the "type" fields to add, in order.
+     */
+    List<Object> steps = new ArrayList
+}
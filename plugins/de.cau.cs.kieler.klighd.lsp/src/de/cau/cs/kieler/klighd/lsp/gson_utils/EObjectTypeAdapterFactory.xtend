@@ -0,0 +1,106 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.lsp.gson_utils
+
+import com.google.gson.Gson
+import com.google.gson.TypeAdapter
+import com.google.gson.TypeAdapterFactory
+import com.google.gson.reflect.TypeToken
+import com.google.gson.stream.JsonReader
+import com.google.gson.stream.JsonWriter
+import java.io.IOException
+import org.eclipse.emf.ecore.EObject
+
+/**
+ * Type adapter factory that serializes any {@link EObject} the same way as the {@link EObjectSerializer}, but writes
+ * the members directly to the {@link JsonWriter} instead of building a {@link com.google.gson.JsonObject} tree first.
+ * Large rendering trees therefore do not need to be held as a JSON tree in memory during serialization.
+ * Deserialization is left to the next type adapter available for the type.
+ *
+ * @author nre
+ */
+class EObjectTypeAdapterFactory implements TypeAdapterFactory {
+
+    /**
+     * The serializer defining which members of the EObjects are serialized.
+     */
+    val EObjectSerializer serializer
+
+    new() {
+        this(new EObjectSerializer)
+    }
+
+    new(EObjectSerializer serializer) {
+        this.serializer = serializer
+    }
+
+    override <T> create(Gson gson, TypeToken<T> type) {
+        if (!EObject.isAssignableFrom(type.rawType)) {
+            return null
+        }
+        return new EObjectTypeAdapter(gson, serializer, [ gson.getDelegateAdapter(this, type) as TypeAdapter<EObject> ])
+            as TypeAdapter<T>
+    }
+}
+
+/**
+ * Streaming type adapter for {@link EObject}s created by the {@link EObjectTypeAdapterFactory}.
+ *
+ * @author nre
+ */
+class EObjectTypeAdapter extends TypeAdapter<EObject> {
+
+    val Gson gson
+
+    val EObjectSerializer serializer
+
+    /**
+     * Provides the adapter used for deserialization. Only requested on demand, as the reflective analysis of the
+     * EObject classes is not needed for serialization.
+     */
+    val ()=>TypeAdapter<EObject> delegateProvider
+
+    new(Gson gson, EObjectSerializer serializer, ()=>TypeAdapter<EObject> delegateProvider) {
+        this.gson = gson
+        this.serializer = serializer
+        this.delegateProvider = delegateProvider
+    }
+
+    override write(JsonWriter out, EObject value) throws IOException {
+        if (value === null) {
+            out.nullValue
+            return
+        }
+        val plan = serializer.getPlan(value.class)
+        if (plan.skip) {
+            out.nullValue
+            return
+        }
+
+        out.beginObject
+        serializer.forEachMember(value, plan, [ name, content |
+            out.name(name)
+            if (content === null) {
+                out.nullValue
+            } else {
+                // Same as the JsonSerializationContext does it: serialize with the runtime type of the content.
+                (gson.getAdapter(content.class) as TypeAdapter<Object>).write(out, content)
+            }
+        ])
+        out.endObject
+    }
+
+    override read(JsonReader in) throws IOException {
+        return delegateProvider.apply.read(in)
+    }
+}
@@ -30,7 +30,6 @@ import de.cau.cs.kieler.klighd.lsp.model.RefreshDiagramAction
 import de.cau.cs.kieler.klighd.lsp.model.RefreshLayoutAction
 import de.cau.cs.kieler.klighd.lsp.model.SetSynthesisAction
 import java.awt.geom.Point2D
-import org.eclipse.emf.ecore.EObject
 import org.eclipse.sprotty.server.json.ActionTypeAdapter
 
 /**
@@ -66,7 +65,7 @@ class KGraphTypeAdapterUtil {
             ]
         )
         .registerTypeAdapter(Point2D, new Point2DTypeAdapter)
-        .registerTypeHierarchyAdapter(EObject, new EObjectSerializer)
+        .registerTypeAdapterFactory(new EObjectTypeAdapterFactory)
         .registerTypeAdapter(SynthesisOption, new SynthesisOptionSerializer)
     }
 }
@@ -55,6 +55,13 @@ abstract class AbstractLanguageServer implements Runnable {
      * Queue to execute SWT or AWT calls on the main Thread.
      */
     static val BlockingQueue<Consumer<Void>> mainThreadQueue = new LinkedBlockingQueue<Consumer<Void>>()
+    
+    /**
+     * Whether diagram syntheses and layouts are executed on the calling thread instead of the main thread, see
+     * {@link #executeDiagramTask(Consumer)}. Enabled by setting the system property
+     * {@code klighd.lsp.concurrentDiagramTasks} to {@code true}.
+     */
+    static volatile boolean concurrentDiagramTasks = Boolean.getBoolean("klighd.lsp.concurrentDiagramTasks")
 
     /**
      * Configure this the launch of this language server with the language registration, a language server creator and
@@ -116,6 +123,41 @@ abstract class AbstractLanguageServer implements Runnable {
         }
     }
     
+    /**
+     * Executes a diagram synthesis or layout. By default, the function is executed on the main thread like any function
+     * added via {@link #addToMainThreadQueue(Consumer)}, so the syntheses and layouts of all diagrams are executed one
+     * after another. If concurrent diagram tasks are enabled, see {@link #setConcurrentDiagramTasks(boolean)}, the
+     * function is executed on the calling thread instead, so that the tasks of different diagrams, which are guarded
+     * by their own per-URI locks, run in parallel. This requires the syntheses and layouts not to make any SWT or AWT
+     * calls that have to be made on the main thread, as on MacOS X without {@code -Djava.awt.headless=true}.<br>
+     * This method will wait until the function is executed.
+     */
+    static def executeDiagramTask(Consumer<Object> f) {
+        if (concurrentDiagramTasks) {
+            f.accept(null)
+        } else {
+            addToMainThreadQueue(f)
+        }
+    }
+    
+    /**
+     * Configures whether diagram syntheses and layouts are executed on the calling thread instead of the main thread,
+     * see {@link #executeDiagramTask(Consumer)}.
+     * 
+     * @param concurrent {@code true} if the tasks of different diagrams may run concurrently.
+     */
+    static def setConcurrentDiagramTasks(boolean concurrent) {
+        concurrentDiagramTasks = concurrent
+    }
+    
+    /**
+     * Returns whether diagram syntheses and layouts are executed on the calling thread instead of the main thread,
+     * see {@link #setConcurrentDiagramTasks(boolean)}.
+     */
+    static def isConcurrentDiagramTasks() {
+        return concurrentDiagramTasks
+    }
+    
     /**
      * Starts the language server.
      */
@@ -147,6 +147,8 @@ abstract class AbstractLsCreator implements ILsCreator {
         while (!future.done) {
             Thread.sleep(10_000l)
         }
+        // The client disconnected, stop all background work of this language server.
+        LanguageServerExecutors.shutdown
         onReload
     }
     
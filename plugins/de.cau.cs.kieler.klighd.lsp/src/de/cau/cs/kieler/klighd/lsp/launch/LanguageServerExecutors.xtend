@@ -0,0 +1,76 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.lsp.launch
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder
+import java.util.HashMap
+import java.util.Map
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+
+/**
+ * Provides the executors performing background work of the language server, such as scheduled layouts or the
+ * preloading of images. Each executor has a bounded number of named daemon threads, so that a burst of requests does
+ * not create arbitrarily many threads and the threads never keep the JVM alive. All executors are shut down via
+ * {@link #shutdown()} when the language server exits, later requests create new executors.
+ *
+ * @author nre
+ */
+class LanguageServerExecutors {
+
+    /**
+     * The number of threads of each executor.
+     */
+    public static val THREADS = Runtime.runtime.availableProcessors
+
+    /**
+     * The time in seconds after which idle threads of the executors terminate.
+     */
+    static val KEEP_ALIVE_SECONDS = 60
+
+    /**
+     * The executors created so far, mapped by their names.
+     */
+    static val Map<String, ExecutorService> executors = new HashMap
+
+    /**
+     * Returns the executor with the given name, a new one is created if there is none yet or it has been shut down.
+     *
+     * @param name The name of the executor, used as the prefix of the names of its threads.
+     * @return The executor.
+     */
+    static synchronized def ExecutorService get(String name) {
+        var executor = executors.get(name)
+        if (executor === null || executor.isShutdown) {
+            val threadFactory = new ThreadFactoryBuilder().setNameFormat(name + "-%d").setDaemon(true).build
+            val pool = new ThreadPoolExecutor(THREADS, THREADS, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue, threadFactory)
+            pool.allowCoreThreadTimeOut(true)
+            executor = pool
+            executors.put(name, executor)
+        }
+        return executor
+    }
+
+    /**
+     * Shuts down all executors, interrupting their running tasks.
+     */
+    static synchronized def void shutdown() {
+        for (executor : executors.values) {
+            executor.shutdownNow
+        }
+        executors.clear
+    }
+}
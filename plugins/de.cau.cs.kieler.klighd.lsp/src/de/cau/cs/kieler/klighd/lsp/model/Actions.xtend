@@ -21,6 +21,7 @@ import org.eclipse.sprotty.Action
 import org.eclipse.sprotty.ElementAndBounds
 import org.eclipse.sprotty.RequestAction
 import org.eclipse.sprotty.ResponseAction
+import org.eclipse.sprotty.SModelElement
 import org.eclipse.sprotty.SModelRoot
 import org.eclipse.sprotty.UpdateModelAction
 import org.eclipse.xtend.lib.annotations.Accessors
@@ -318,4 +319,48 @@ public class KeithUpdateModelAction extends UpdateModelAction {
         this.newRoot = newRoot
         this.cause = cause
     }
-}
\ No newline at end of file
+}
+
+/**
+ * Updates the model on the client by only transmitting the elements that have been added, removed or changed since the
+ * last model sent to the client. Serialized like a Sprotty {@link UpdateModelAction} without a new root, so the client
+ * applies the {@code matches} to its current model.
+ * 
+ * @author nre
+ */
+@Accessors
+@EqualsHashCode
+@ToString(skipNulls = true)
+class IncrementalUpdateModelAction implements Action {
+    public static val KIND = 'updateModel'
+    String kind = KIND
+    
+    List<ElementMatch> matches
+    Boolean animate
+    
+    new() {}
+    new(Consumer<IncrementalUpdateModelAction> initializer) {
+        initializer.accept(this)
+    }
+    
+    new(List<ElementMatch> matches) {
+        this.matches = matches
+    }
+}
+
+/**
+ * A match between an element of the model on the client ({@code left}) and an element of the new model
+ * ({@code right}). Only {@code left} is set for removed elements, only {@code right} for added ones. Changed elements
+ * have both set and are replaced including their children.
+ * 
+ * @author nre
+ */
+@Accessors
+@EqualsHashCode
+@ToString(skipNulls = true)
+class ElementMatch {
+    SModelElement left
+    SModelElement right
+    String leftParentId
+    String rightParentId
+}
@@ -0,0 +1,194 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.lsp.utils
+
+import com.google.common.io.ByteStreams
+import com.google.common.reflect.ClassPath
+import com.google.inject.Singleton
+import de.cau.cs.kieler.klighd.Klighd
+import de.cau.cs.kieler.klighd.lsp.model.ImageData
+import java.io.FileNotFoundException
+import java.io.IOException
+import java.io.InputStream
+import java.util.Base64
+import java.util.Collection
+import java.util.LinkedHashMap
+import java.util.Map
+import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
+import org.apache.log4j.Logger
+import org.eclipse.core.runtime.Platform
+
+/**
+ * Loads the images of {@link KImage KImages} as Base64 encoded strings to be sent to the client. The encoded images are
+ * kept in a cache keyed by their bundle and path, where the least recently used images are evicted first once the
+ * cache exceeds {@link #MAX_CACHED_CHARACTERS}. Without a running platform, the class found for each bundle is
+ * remembered as well, so the class path only needs to be scanned once.
+ *
+ * @author nre
+ */
+@Singleton
+class ImageResourceCache {
+    static val LOG = Logger.getLogger(ImageResourceCache)
+
+    /**
+     * The maximum number of characters of all encoded images kept in the cache.
+     */
+    public static val MAX_CACHED_CHARACTERS = 32 * 1024 * 1024
+
+    /**
+     * The encoded images, mapped by their bundle and path. Only accessed while synchronized on this map.
+     */
+    val Map<Pair<String, String>, String> encodedImages = new LinkedHashMap(16, 0.75f, true)
+
+    /**
+     * The number of characters of all images in the {@link #encodedImages}.
+     */
+    long cachedCharacters = 0
+
+    /**
+     * The classes whose class loader finds the resources of a bundle, mapped by the bundle name. Only used if the
+     * platform is not running.
+     */
+    val Map<String, Optional<Class<?>>> bundleClasses = new ConcurrentHashMap
+
+    /**
+     * The class path of the system class loader, scanned on first use.
+     */
+    volatile ClassPath classPath
+
+    /**
+     * Returns the Base64 encoded image found under the given path in the given bundle. Loads the image if it is not
+     * cached yet.
+     *
+     * @param bundle The name of the bundle containing the image.
+     * @param path The path of the image relative to the bundle.
+     * @return The encoded image.
+     * @throws IOException If the image does not exist or can not be read.
+     */
+    def String getEncodedImage(String bundle, String path) throws IOException {
+        val key = bundle -> path
+        synchronized (encodedImages) {
+            val cached = encodedImages.get(key)
+            if (cached !== null) {
+                return cached
+            }
+        }
+
+        val imageStream = openStream(bundle, path)
+        if (imageStream === null) {
+            throw new FileNotFoundException("The image for bundle "
+                + bundle
+                + " and path "
+                + path
+                + " has not been found.")
+        }
+        val imageString = try {
+            Base64.encoder.encodeToString(ByteStreams.toByteArray(imageStream))
+        } finally {
+            imageStream.close
+        }
+
+        synchronized (encodedImages) {
+            val previous = encodedImages.put(key, imageString)
+            if (previous !== null) {
+                cachedCharacters -= previous.length
+            }
+            cachedCharacters += imageString.length
+            // Evict the least recently used images, but always keep the one just loaded.
+            val iterator = encodedImages.entrySet.iterator
+            while (cachedCharacters > MAX_CACHED_CHARACTERS && encodedImages.size > 1) {
+                val eldest = iterator.next
+                cachedCharacters -= eldest.value.length
+                iterator.remove
+            }
+        }
+        return imageString
+    }
+
+    /**
+     * Loads all given images into the cache that are not cached yet. Images that can not be loaded are skipped, the
+     * error is reported once they are requested via {@link #getEncodedImage}.
+     *
+     * @param images The images to load.
+     */
+    def void preload(Collection<ImageData> images) {
+        for (image : images) {
+            try {
+                getEncodedImage(image.bundleName, image.imagePath)
+            } catch (Exception e) {
+                LOG.debug("Could not preload the image " + image.imagePath + " in bundle " + image.bundleName, e)
+            }
+        }
+    }
+
+    /**
+     * Opens the stream of the image found under the given path in the given bundle.
+     *
+     * @return The stream, or {@code null} if the image was not found.
+     */
+    protected def InputStream openStream(String bundle, String path) throws IOException {
+        if (Klighd.IS_PLATFORM_RUNNING) {
+            // If the platform is running, the image can be found in the bundle under the resource path.
+            return Platform.getBundle(bundle)
+                ?.getResource(path)
+                ?.openStream
+        }
+        // If there is no platform, we have to use the class loader to find the resource.
+        // Where a class of the bundle was found, look for the given path in the jar local to that class.
+        // Other solution, if this one does not work in built jars:
+        // If the bundle path is added to the classpath, the following line will just work without explicitly looking
+        // for the bundle (which does not exist as a 'bundle' in the non-Platform-case anyway).
+        // ClassLoader.getSystemClassLoader.getResourceAsStream(path)
+        // For more information, see
+        // https://stackoverflow.com/questions/9864267/loading-image-resource
+        // and
+        // https://stackoverflow.com/questions/676250/different-ways-of-loading-a-file-as-an-inputstream/676273#676273
+        return getBundleClass(bundle)?.getResourceAsStream("/" + path)
+    }
+
+    /**
+     * Returns any class from a package with the same name as the given bundle, or from a package starting with the
+     * bundle name if there is no such class. The result is remembered for later requests.
+     *
+     * @param bundle The name of the bundle.
+     * @return The class, or {@code null} if no class of the bundle was found.
+     */
+    protected def Class<?> getBundleClass(String bundle) throws IOException {
+        var bundleClass = bundleClasses.get(bundle)
+        if (bundleClass === null) {
+            // With the help of Guava, look for any class from a package with the same name as the searched bundle.
+            val classPath = getClassPath
+            var class = classPath.getTopLevelClasses(bundle).head?.load
+            if (class === null) {
+                // If there is no such class, try again with packages starting with the bundle name
+                class = classPath.getTopLevelClassesRecursive(bundle).head?.load
+            }
+            bundleClass = Optional.ofNullable(class)
+            bundleClasses.put(bundle, bundleClass)
+        }
+        return bundleClass.orElse(null)
+    }
+
+    /**
+     * Returns the class path of the system class loader, scanning it on first use.
+     */
+    protected def ClassPath getClassPath() throws IOException {
+        var result = classPath
+        if (result === null) {
+            result = ClassPath.from(ClassLoader.systemClassLoader)
+            classPath = result
+        }
+        return result
+    }
+}
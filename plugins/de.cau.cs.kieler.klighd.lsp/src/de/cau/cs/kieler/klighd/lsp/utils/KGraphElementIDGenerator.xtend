@@ -23,15 +23,20 @@ import de.cau.cs.kieler.klighd.krendering.KPolyline
 import de.cau.cs.kieler.klighd.krendering.KRendering
 import de.cau.cs.kieler.klighd.krendering.KRenderingRef
 import java.util.HashMap
+import java.util.HashSet
+import java.util.List
 import java.util.Map
+import java.util.Set
 import org.eclipse.xtend.lib.annotations.Accessors
 
 import static extension de.cau.cs.kieler.klighd.lsp.utils.SprottyProperties.*
 
 /**
  * Class for generating unique IDs for any {@link KGraphElement}. Use a single instance of this and call getId() for all
- * the elements you need IDs for. IDs will be unique, assuming that hashCode() on KGraphElements returns unique hashes
- * per instance.
+ * the elements you need IDs for. IDs are built from the path of the element in the graph hierarchy, where each element
+ * is named by its {@link KIdentifier} or, if it has none, by its position among its siblings. The IDs are therefore
+ * deterministic and stay the same for the same element between syntheses.<br>
+ * Optionally, the IDs can be shortened to a number per element, see {@link #KGraphElementIdGenerator(boolean)}.
  * 
  * @author nre
  */
@@ -48,6 +53,31 @@ class KGraphElementIdGenerator {
     @Accessors(PUBLIC_GETTER)
     Map<String, KGraphElement> idToElementMap
     
+    /**
+     * The hierarchical IDs of all elements, if different from the IDs in the {@link #elementToIdMap}.
+     */
+    Map<KGraphElement, String> elementToPathMap
+    
+    /**
+     * All hierarchical IDs that have already been generated.
+     */
+    Set<String> usedPaths
+    
+    /**
+     * The last counter used to make a hierarchical ID unique, mapped by the ID before adding the counter.
+     */
+    Map<String, Integer> copyCounters
+    
+    /**
+     * The position of the elements among their siblings in the same containment list.
+     */
+    Map<KGraphElement, Integer> positions
+    
+    /**
+     * If the hierarchical IDs should be replaced by a number per element.
+     */
+    val boolean numericIds
+    
     int danglingElements = 0
     
     /**
@@ -81,8 +111,24 @@ class KGraphElementIdGenerator {
     public static final char LABEL_SEPARATOR = 'L'
     
     new() {
+        this(false)
+    }
+    
+    /**
+     * Creates a new ID generator.
+     * 
+     * @param numericIds If {@code true}, each element gets an ID consisting of a single number in the order the IDs
+     *      are requested, instead of its full hierarchical ID. These IDs are shorter, but only stay the same between
+     *      syntheses if the graph and the order of the requests do not change.
+     */
+    new(boolean numericIds) {
+        this.numericIds = numericIds
         elementToIdMap = new HashMap
         idToElementMap = new HashMap
+        elementToPathMap = if (numericIds) new HashMap else elementToIdMap
+        usedPaths = if (numericIds) new HashSet else idToElementMap.keySet
+        copyCounters = new HashMap
+        positions = new HashMap
     }
     
     /**
@@ -95,38 +141,49 @@ class KGraphElementIdGenerator {
         if (element === null) {
             return ""
         }
-        var String id = null
         
         // if the ID was already calculated, use that
-        if (elementToIdMap.get(element) !== null) {
-            return elementToIdMap.get(element)
+        val knownId = elementToIdMap.get(element)
+        if (knownId !== null) {
+            return knownId
+        }
+        
+        val path = getPath(element)
+        val id = if (numericIds) "" + ID_SEPARATOR + idToElementMap.size else path
+        elementToIdMap.put(element, id)
+        idToElementMap.put(id, element)
+        return id
+    }
+    
+    /**
+     * Returns the hierarchical ID of the given element, generating it if necessary.
+     */
+    private def String getPath(KGraphElement element) {
+        var path = elementToPathMap.get(element)
+        if (path !== null) {
+            return path
         }
         
         // the root node is just called $root
         val parent = element.eContainer as KGraphElement
-        var String parentId = null
-        if (parent !== null) {
-            parentId = getId(parent)
-        } else {
-            id = ID_SEPARATOR + 'root'
-            if (idToElementMap.get(id) !== null) {
+        if (parent === null) {
+            path = ID_SEPARATOR + 'root'
+            if (usedPaths.contains(path)) {
                 // The graph already contains a root node, this is a connected node dangling without a parent and will
                 // therefore not be displayed in any graph. Generate a unique ID anyway.
-                id = ID_SEPARATOR + DANGLING + danglingElements++
+                path = ID_SEPARATOR + DANGLING + danglingElements++
             }
-            elementToIdMap.put(element, id)
-            idToElementMap.put(id, element)
-            return id
+            rememberPath(element, path)
+            return path
         }
+        // Make sure the parent is known before this element, also with numeric IDs.
+        getId(parent)
+        val parentPath = elementToPathMap.get(parent)
         
         // use a prefix depending on the class of the element + the {@link KIdentifier} as id if an identifier is
         // defined, otherwise make up a new id based on the position in the model hierarchy with a Separator not
         // appearing in the {@link KIdentifier} (the ID Separator).
-        var String elementId = null
-        
-        val identifier = element.data.filter(KIdentifier)
         var char elementSeparator
-        
         switch (element) {
             KNode: {
                 elementSeparator = NODE_SEPARATOR
@@ -145,21 +202,54 @@ class KGraphElementIdGenerator {
             }
         }
         
-        if (identifier.empty) {
-            elementId = "" + ID_SEPARATOR + elementSeparator + element.hashCode
+        val identifier = element.getData(KIdentifier)
+        val builder = new StringBuilder(parentPath).append(ID_SEPARATOR)
+        if (identifier === null) {
+            builder.append(ID_SEPARATOR).append(elementSeparator).append(getPosition(element))
         } else {
-            elementId = elementSeparator + identifier.head.id
+            builder.append(elementSeparator).append(identifier.id)
         }
+        val basePath = builder.toString
         
-        val baseId = parentId + ID_SEPARATOR + elementId
         // If the KIdentifier is not unique between its siblings, make the ID unique with a counter in the end.
-        id = baseId
-        for (var cnt = 2; idToElementMap.containsKey(id); cnt++) {
-            id = baseId + ID_SEPARATOR + ID_SEPARATOR + "copy" + cnt
+        path = basePath
+        if (usedPaths.contains(path)) {
+            var cnt = copyCounters.getOrDefault(basePath, 1)
+            do {
+                cnt++
+                path = basePath + ID_SEPARATOR + ID_SEPARATOR + "copy" + cnt
+            } while (usedPaths.contains(path))
+            copyCounters.put(basePath, cnt)
         }
-        elementToIdMap.put(element, id)
-        idToElementMap.put(id, element)
-        return id
+        rememberPath(element, path)
+        return path
+    }
+    
+    /**
+     * Remembers the given hierarchical ID of the given element.
+     */
+    private def void rememberPath(KGraphElement element, String path) {
+        if (numericIds) {
+            elementToPathMap.put(element, path)
+            usedPaths.add(path)
+        }
+        // Otherwise, the path is the ID and is remembered by getId.
+    }
+    
+    /**
+     * Returns the position of the given element in the containment list of its parent. The positions of all its
+     * siblings are remembered at the same time, so each list only needs to be traversed once.
+     */
+    private def int getPosition(KGraphElement element) {
+        var position = positions.get(element)
+        if (position === null) {
+            val siblings = element.eContainer.eGet(element.eContainingFeature) as List<?>
+            for (var i = 0; i < siblings.size; i++) {
+                positions.put(siblings.get(i) as KGraphElement, i)
+            }
+            position = positions.get(element)
+        }
+        return position
     }
     
 }
@@ -14,6 +14,7 @@ package de.cau.cs.kieler.klighd.lsp.utils
 
 import com.google.common.base.Predicate
 import com.google.common.base.Strings
+import com.google.common.collect.Iterators
 import de.cau.cs.kieler.klighd.IStyleModifier.StyleModificationContext
 import de.cau.cs.kieler.klighd.KlighdDataManager
 import de.cau.cs.kieler.klighd.kgraph.KEdge
@@ -42,8 +43,12 @@ import de.cau.cs.kieler.klighd.microlayout.PlacementUtil
 import java.awt.geom.Point2D
 import java.util.ArrayList
 import java.util.HashMap
+import java.util.HashSet
 import java.util.List
 import java.util.Map
+import java.util.Set
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.RecursiveAction
 
 import static com.google.common.collect.Iterables.filter
 
@@ -71,16 +76,91 @@ final class RenderingPreparer {
      * @param element The parent element containing the graph to calculate all rendering bounds for.
      */
     static def void prepareRendering(KGraphElement element) {
+        prepareRendering(element, true)
+    }
+    
+    /**
+     * Does the same as {@link #prepareRendering(KGraphElement)}, but prepares the subtrees of hierarchical nodes in
+     * parallel in the common {@link ForkJoinPool}. The IDs of all {@link KRenderingLibrary KRenderingLibraries} are
+     * generated first, as {@link KRenderingRef}s in any subtree may refer to them. Elements referring to library
+     * renderings that contain {@link KRenderingRef}s themselves are prepared sequentially afterwards, in the same order
+     * as by {@link #prepareRendering(KGraphElement)}, as the maps of these shared references are written for each
+     * element using them.
+     * 
+     * @param root The root node of the graph to calculate all rendering bounds for.
+     */
+    static def void prepareRenderingParallel(KNode root) {
+        val List<KGraphElement> sequentialElements = new ArrayList
+        prepareLibraries(root, sequentialElements)
+        ForkJoinPool.commonPool.invoke(new PrepareRenderingTask(root, new HashSet(sequentialElements)))
+        for (element : sequentialElements) {
+            prepareElementRendering(element, false)
+        }
+    }
+    
+    /**
+     * Prepares the renderings of the given element and all its children, see {@link #prepareRendering(KGraphElement)}.
+     * 
+     * @param element The parent element containing the graph to calculate all rendering bounds for.
+     * @param withLibraries If the IDs of the renderings in {@link KRenderingLibrary KRenderingLibraries} should be
+     *      generated as well.
+     */
+    package static def void prepareRendering(KGraphElement element, boolean withLibraries) {
+        prepareRendering(element, withLibraries, emptySet)
+    }
+    
+    /**
+     * Prepares the renderings of the given element and all its children, see {@link #prepareRendering(KGraphElement)},
+     * except for the given skipped elements.
+     * 
+     * @param element The parent element containing the graph to calculate all rendering bounds for.
+     * @param withLibraries If the IDs of the renderings in {@link KRenderingLibrary KRenderingLibraries} should be
+     *      generated as well.
+     * @param skippedElements The elements whose renderings are not to be prepared, their children are prepared though.
+     */
+    package static def void prepareRendering(KGraphElement element, boolean withLibraries,
+        Set<KGraphElement> skippedElements) {
+        if (!skippedElements.contains(element)) {
+            prepareElementRendering(element, withLibraries)
+        }
+        
+        // Recursively call this method for every child KGraphElement of this.
+        // (all labels, child nodes, outgoing edges and ports)
+        
+        if (element instanceof KLabeledGraphElement) {
+            for (label : element.labels) {
+                prepareRendering(label, withLibraries, skippedElements)
+            }
+        }
+        if (element instanceof KNode) {
+            for (node : element.children) {
+                prepareRendering(node, withLibraries, skippedElements)
+            }
+            for (edge : element.outgoingEdges) {
+                prepareRendering(edge, withLibraries, skippedElements)
+            }
+            for (port : element.ports) {
+                prepareRendering(port, withLibraries, skippedElements)
+            }
+        }
+    }
+    
+    /**
+     * Prepares the renderings of the given element only, without its children.
+     * 
+     * @param element The element to calculate all rendering bounds for.
+     * @param withLibraries If the IDs of the renderings in {@link KRenderingLibrary KRenderingLibraries} should be
+     *      generated as well.
+     */
+    package static def void prepareElementRendering(KGraphElement element, boolean withLibraries) {
         // calculate the sizes of all renderings:
         for (data : element.data) {
             switch(data) {
                 KRenderingLibrary: {
                     // The library needs to generate ids for all later KRenderingRefs to refer to, but no own bounds,
                     // since these are generic renderings.
-                    for (rendering : data.renderings) {
-                        if (rendering instanceof KRendering) {
-                            KRenderingIdGenerator.generateIdsRecursive(rendering)
-                        }
+                    if (withLibraries) {
+                        generateIds(data)
                     }
                 }
                 KRenderingRef: {
@@ -104,24 +184,84 @@ final class RenderingPreparer {
                 }
             }
         }
-        
-        // Recursively call this method for every child KGraphElement of this.
-        // (all labels, child nodes, outgoing edges and ports)
-        
+    }
+    
+    /**
+     * Generates the IDs of all renderings in the {@link KRenderingLibrary KRenderingLibraries} of the given element
+     * and all its descendants and collects the elements whose renderings need to be prepared sequentially, see
+     * {@link #writesSharedRenderings(KGraphElement)}.
+     * 
+     * @param element The element.
+     * @param sequentialElements The list to add the elements to be prepared sequentially to, in the order of
+     *      {@link #prepareRendering(KGraphElement)}.
+     */
+    private static def void prepareLibraries(KGraphElement element, List<KGraphElement> sequentialElements) {
+        for (data : element.data) {
+            if (data instanceof KRenderingLibrary) {
+                generateIds(data)
+            }
+        }
+        if (writesSharedRenderings(element)) {
+            sequentialElements.add(element)
+        }
         if (element instanceof KLabeledGraphElement) {
             for (label : element.labels) {
-                prepareRendering(label)
+                prepareLibraries(label, sequentialElements)
             }
         }
         if (element instanceof KNode) {
             for (node : element.children) {
-                prepareRendering(node)
+                prepareLibraries(node, sequentialElements)
             }
             for (edge : element.outgoingEdges) {
-                prepareRendering(edge)
+                prepareLibraries(edge, sequentialElements)
             }
             for (port : element.ports) {
-                prepareRendering(port)
+                prepareLibraries(port, sequentialElements)
+            }
+        }
+    }
+    
+    /**
+     * Determines whether preparing the renderings of the given element writes to renderings shared with other
+     * elements. This is the case if the element refers to a library rendering that is or contains a
+     * {@link KRenderingRef}, as the calculated bounds and decoration maps are stored in the properties of each
+     * {@link KRenderingRef} visited.
+     */
+    private static def boolean writesSharedRenderings(KGraphElement element) {
+        for (data : element.data) {
+            if (data instanceof KRendering) {
+                if (data instanceof KRenderingRef && refersToRenderingRefs(data as KRenderingRef)) {
+                    return true
+                }
+                val contents = data.eAllContents
+                while (contents.hasNext) {
+                    val content = contents.next
+                    if (content instanceof KRenderingRef && refersToRenderingRefs(content as KRenderingRef)) {
+                        return true
+                    }
+                }
+            }
+        }
+        return false
+    }
+    
+    /**
+     * Determines whether the rendering referenced by the given reference is or contains a {@link KRenderingRef}.
+     */
+    private static def boolean refersToRenderingRefs(KRenderingRef ref) {
+        val referenced = ref.rendering
+        return referenced instanceof KRenderingRef
+            || referenced !== null && Iterators.any(referenced.eAllContents, [ it instanceof KRenderingRef ])
+    }
+    
+    /**
+     * Generates the IDs of all renderings in the given library.
+     */
+    private static def void generateIds(KRenderingLibrary library) {
+        for (rendering : library.renderings) {
+            if (rendering instanceof KRendering) {
+                KRenderingIdGenerator.generateIdsRecursive(rendering)
             }
         }
     }
@@ -423,7 +563,12 @@ final class RenderingPreparer {
         }
     };
 
-    static val StyleModificationContext singletonModContext = new StyleModificationContext();
+    /**
+     * The context handed to the style modifiers, one for each thread preparing renderings.
+     */
+    static val ThreadLocal<StyleModificationContext> modContext = ThreadLocal.withInitial [
+        new StyleModificationContext
+    ]
     
     /**
      * @see de.cau.cs.kieler.klighd.piccolo.internal.controller.AbstractKGERenderingController#processModifiableStyles
@@ -438,11 +583,63 @@ final class RenderingPreparer {
 
         var boolean deliver
         for (s : localModifiedStyles) {
-            deliver  = s.eDeliver();
-            s.eSetDeliver(false);
-            KlighdDataManager.getInstance().getStyleModifierById(s.getModifierId()).modify(
-                singletonModContext.configure(s, parent));
-            s.eSetDeliver(deliver);
+            // Styles of referenced renderings may be modified for several elements at once in parallel mode.
+            synchronized (s) {
+                deliver  = s.eDeliver();
+                s.eSetDeliver(false);
+                KlighdDataManager.getInstance().getStyleModifierById(s.getModifierId()).modify(
+                    modContext.get.configure(s, parent));
+                s.eSetDeliver(deliver);
+            }
+        }
+    }
+}
+
+/**
+ * Fork/join task preparing the renderings of a {@link KNode} and all its descendants for the
+ * {@link RenderingPreparer#prepareRenderingParallel(KNode)}. The subtrees of all hierarchical child nodes are prepared
+ * in their own tasks, all other elements directly in this task.
+ * 
+ * @author nre
+ */
+class PrepareRenderingTask extends RecursiveAction {
+    
+    /**
+     * The node to prepare.
+     */
+    val KNode node
+    
+    /**
+     * The elements that are prepared sequentially and therefore skipped by the tasks.
+     */
+    val Set<KGraphElement> skippedElements
+    
+    new(KNode node, Set<KGraphElement> skippedElements) {
+        this.node = node
+        this.skippedElements = skippedElements
+    }
+    
+    override protected compute() {
+        if (!skippedElements.contains(node)) {
+            RenderingPreparer.prepareElementRendering(node, false)
+        }
+        for (label : node.labels) {
+            RenderingPreparer.prepareRendering(label, false, skippedElements)
+        }
+        for (edge : node.outgoingEdges) {
+            RenderingPreparer.prepareRendering(edge, false, skippedElements)
+        }
+        for (port : node.ports) {
+            RenderingPreparer.prepareRendering(port, false, skippedElements)
+        }
+        val subtasks = new ArrayList<PrepareRenderingTask>
+        for (child : node.children) {
+            if (child.children.empty) {
+                RenderingPreparer.prepareRendering(child, false, skippedElements)
+            } else {
+                subtasks.add(new PrepareRenderingTask(child, skippedElements))
+            }
         }
+        invokeAll(subtasks)
     }
-}
\ No newline at end of file
+}
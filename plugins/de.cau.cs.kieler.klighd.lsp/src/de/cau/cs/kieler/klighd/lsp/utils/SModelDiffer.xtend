@@ -0,0 +1,231 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.lsp.utils
+
+import com.google.common.hash.HashCode
+import com.google.common.hash.Hashing
+import com.google.common.hash.HashingOutputStream
+import com.google.common.io.ByteStreams
+import com.google.gson.ExclusionStrategy
+import com.google.gson.FieldAttributes
+import com.google.gson.Gson
+import com.google.gson.GsonBuilder
+import de.cau.cs.kieler.klighd.lsp.gson_utils.KGraphTypeAdapterUtil
+import de.cau.cs.kieler.klighd.lsp.model.ElementMatch
+import java.io.OutputStreamWriter
+import java.nio.charset.StandardCharsets
+import java.util.ArrayList
+import java.util.HashMap
+import java.util.HashSet
+import java.util.List
+import java.util.Map
+import java.util.Set
+import org.eclipse.sprotty.SModelElement
+import org.eclipse.sprotty.SModelRoot
+
+/**
+ * Computes the differences between the model last sent to the client and a new model, so that only added, removed and
+ * changed elements need to be transmitted. Elements are matched by their IDs generated by the
+ * {@link KGraphElementIdGenerator}.<br>
+ * The last sent model is remembered as a snapshot of hashes of the serialized elements (without their children), as
+ * the renderings of the view model are modified in place by later layouts and can therefore not be compared to
+ * directly. Only the hashes are kept instead of the serialized elements to not retain a second copy of the model.
+ *
+ * @author nre
+ */
+class SModelDiffer {
+
+    /**
+     * The Gson used to serialize single elements for comparison. Excludes the children of the elements, as they are
+     * compared individually, and the revision of the root, as it changes with every model.
+     */
+    static val Gson SHALLOW_GSON = KGraphTypeAdapterUtil.configureGson(new GsonBuilder)
+        .addSerializationExclusionStrategy(new ExclusionStrategy {
+            override shouldSkipClass(Class<?> clazz) {
+                return false
+            }
+
+            override shouldSkipField(FieldAttributes f) {
+                return f.declaringClass === SModelElement && f.name == "children"
+                    || f.declaringClass === SModelRoot && f.name == "revision"
+            }
+        }).create
+
+    /**
+     * The ID of the root of the last snapshot.
+     */
+    String snapshotRootId
+
+    /**
+     * The hash of the serialized root of the last snapshot.
+     */
+    HashCode snapshotRoot
+
+    /**
+     * The hashes of the serialized elements of the last snapshot, mapped by their IDs.
+     */
+    Map<String, HashCode> snapshotElements = new HashMap
+
+    /**
+     * The parent IDs of the elements of the last snapshot, mapped by the IDs of the elements.
+     */
+    Map<String, String> snapshotParentIds = new HashMap
+
+    /**
+     * The types of the elements of the last snapshot, mapped by the IDs of the elements.
+     */
+    Map<String, String> snapshotTypes = new HashMap
+
+    /**
+     * Computes the matches needed to transform the last snapshot into the given {@code newRoot} and remembers the new
+     * root as the next snapshot.
+     *
+     * @param newRoot The model that is about to be sent to the client.
+     * @return The matches describing the changes, or {@code null} if there is no comparable snapshot or the root
+     *      itself changed, so that the full model needs to be sent.
+     */
+    def List<ElementMatch> diff(SModelRoot newRoot) {
+        val oldRootId = snapshotRootId
+        val oldRoot = snapshotRoot
+        val oldElements = snapshotElements
+        val oldParentIds = snapshotParentIds
+        val oldTypes = snapshotTypes
+        snapshot(newRoot)
+
+        if (oldRoot === null || oldRootId != newRoot.id || oldRoot != snapshotRoot) {
+            return null
+        }
+
+        val List<ElementMatch> matches = new ArrayList
+        // The IDs of all elements that are kept unchanged in place, apart from their children.
+        val Set<String> handledIds = new HashSet
+        handledIds.add(newRoot.id)
+        // The IDs of all old elements that are replaced by a match.
+        val Set<String> matchedIds = new HashSet
+        collectMatches(newRoot, oldElements, oldParentIds, oldTypes, matches, handledIds, matchedIds)
+
+        // Remove all old elements whose parent is kept but that do not exist anymore or moved into a replaced or added
+        // parent, as such elements are not visited above. Elements within replaced or removed parents are removed
+        // together with their parent, elements moved into a kept parent are replaced by their match already.
+        for (oldId : oldElements.keySet) {
+            val oldParentId = oldParentIds.get(oldId)
+            if (handledIds.contains(oldParentId) && !matchedIds.contains(oldId)
+                && snapshotParentIds.get(oldId) != oldParentId) {
+                matches.add(new ElementMatch => [
+                    left = createReference(oldId, oldTypes.get(oldId))
+                    leftParentId = oldParentId
+                ])
+            }
+        }
+        return matches
+    }
+
+    /**
+     * Remembers the given root as the snapshot to compare the next model to.
+     *
+     * @param root The model sent to the client.
+     */
+    def void snapshot(SModelRoot root) {
+        snapshotRootId = root.id
+        snapshotRoot = hash(root)
+        snapshotElements = new HashMap
+        snapshotParentIds = new HashMap
+        snapshotTypes = new HashMap
+        collectSnapshot(root)
+    }
+
+    /**
+     * Forgets the last snapshot, so that the next diff requires the full model to be sent.
+     */
+    def void reset() {
+        snapshotRootId = null
+        snapshotRoot = null
+        snapshotElements = new HashMap
+        snapshotParentIds = new HashMap
+        snapshotTypes = new HashMap
+    }
+
+    /**
+     * Recursively adds all children of the given parent to the current snapshot.
+     */
+    private def void collectSnapshot(SModelElement parent) {
+        if (parent.children === null) {
+            return
+        }
+        for (child : parent.children) {
+            snapshotElements.put(child.id, hash(child))
+            snapshotParentIds.put(child.id, parent.id)
+            snapshotTypes.put(child.id, child.type)
+            collectSnapshot(child)
+        }
+    }
+
+    /**
+     * Recursively compares the children of the given new parent with the old snapshot and adds a match for each added
+     * or changed element. The children of added or changed elements are not visited, as they are transmitted together
+     * with their parent.
+     */
+    private def void collectMatches(SModelElement newParent, Map<String, HashCode> oldElements,
+        Map<String, String> oldParentIds, Map<String, String> oldTypes, List<ElementMatch> matches,
+        Set<String> handledIds, Set<String> matchedIds) {
+        if (newParent.children === null) {
+            return
+        }
+        for (child : newParent.children) {
+            val oldElement = oldElements.get(child.id)
+            if (oldElement === null) {
+                // Added element.
+                matches.add(new ElementMatch => [
+                    right = child
+                    rightParentId = newParent.id
+                ])
+            } else if (oldParentIds.get(child.id) != newParent.id || oldElement != snapshotElements.get(child.id)) {
+                // Moved or changed element, replace it including its children.
+                val oldParentId = oldParentIds.get(child.id)
+                matchedIds.add(child.id)
+                matches.add(new ElementMatch => [
+                    left = createReference(child.id, oldTypes.get(child.id))
+                    leftParentId = oldParentId
+                    right = child
+                    rightParentId = newParent.id
+                ])
+            } else {
+                // Unchanged element, only its children may have changed.
+                handledIds.add(child.id)
+                collectMatches(child, oldElements, oldParentIds, oldTypes, matches, handledIds, matchedIds)
+            }
+        }
+    }
+
+    /**
+     * Computes a hash of the shallow serialization of the given element, which is streamed into the hash function
+     * without building the serialized form in memory.
+     */
+    private static def HashCode hash(SModelElement element) {
+        val out = new HashingOutputStream(Hashing.murmur3_128, ByteStreams.nullOutputStream)
+        val writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)
+        SHALLOW_GSON.toJson(element, writer)
+        writer.flush
+        return out.hash
+    }
+
+    /**
+     * Creates an element only referencing the element with the given ID on the client.
+     */
+    private static def SModelElement createReference(String id, String type) {
+        return new SModelElement => [
+            it.id = id
+            it.type = type
+        ]
+    }
+}
@@ -16,9 +16,12 @@ package de.cau.cs.kieler.klighd.piccolo.internal.controller;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -38,8 +41,6 @@ import org.eclipse.ui.PlatformUI;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Maps;
@@ -160,6 +161,10 @@ public class DiagramController {
     /** indicates whether scheduled diagram element updates must be executed via this display. */
     private final Display display;
 
+    /** the time in milliseconds that may be spent on updating diagram elements per frame. */
+    private int renderingUpdateBudget =
+            KlighdProperties.RENDERING_UPDATE_BUDGET.getDefault().intValue();
+
 
     /**
      * Constructs a diagram controller for the given KGraph.
@@ -184,6 +189,9 @@ public class DiagramController {
         camera.initClipsPortAndLabelsVisibility(
                 !getProperty(viewContext, KlighdProperties.SHOW_CLIPPED_PORTS).booleanValue(),
                 !getProperty(viewContext, KlighdProperties.SHOW_CLIPPED_LABELS).booleanValue());
+
+        this.renderingUpdateBudget =
+                getProperty(viewContext, KlighdProperties.RENDERING_UPDATE_BUDGET).intValue();
     }
     
     private static <T> T getProperty(ViewContext context, IProperty<T> property) {
@@ -832,33 +840,91 @@ public class DiagramController {
         recordedChanges.put(node, change);
     }
 
-    private final Set<AbstractKGERenderingController<?, ?>> dirtyDiagramElements = Sets.newHashSet();
+    private final Set<AbstractKGERenderingController<?, ?>> dirtyDiagramElements =
+            Sets.newLinkedHashSet();
     private final Map<AbstractKGERenderingController<?, ?>, ElementMovement> dirtyDiagramElementStyles =
-            Maps.newHashMap();
+            Maps.newLinkedHashMap();
 
     void scheduleRenderingUpdate(final AbstractKGERenderingController<?, ?> controller) {
-        renderingUpdater.cancel();
-
         synchronized (dirtyDiagramElements) {
             dirtyDiagramElements.add(controller);
         }
 
-        renderingUpdater.schedule(RENDERING_UPDATER_DELAY);
+        scheduleUpdatePass();
     }
 
     void scheduleStylesUpdate(final AbstractKGERenderingController<?, ?> controller,
             final ElementMovement movement) {
-        renderingUpdater.cancel();
-
         synchronized (dirtyDiagramElementStyles) {
             dirtyDiagramElementStyles.put(controller, movement);
         }
 
-        renderingUpdater.schedule(RENDERING_UPDATER_DELAY);
+        scheduleUpdatePass();
     }
 
     private static final int RENDERING_UPDATER_DELAY = 5; /* ms */
 
+    /** the targeted time between two update passes, corresponds to about 60 frames per second. */
+    private static final long FRAME_INTERVAL = TimeUnit.MILLISECONDS.toNanos(16);
+
+    /** indicates whether an update pass is scheduled via {@link #display}. */
+    private final AtomicBoolean updatePassScheduled = new AtomicBoolean(false);
+
+    /** the start time of the latest update pass in nanoseconds, accessed by the UI thread only. */
+    private long lastUpdatePassStart = System.nanoTime() - FRAME_INTERVAL;
+
+    /**
+     * Schedules the update of the dirty diagram elements. If a {@link #display} is available all
+     * changes arriving within the same frame are coalesced into one update pass that is executed by
+     * the UI thread at the next frame boundary, otherwise {@link #renderingUpdater} performs the
+     * updates shortly after the last change.
+     */
+    private void scheduleUpdatePass() {
+        if (display == null) {
+            renderingUpdater.cancel();
+            renderingUpdater.schedule(RENDERING_UPDATER_DELAY);
+
+        } else if (updatePassScheduled.compareAndSet(false, true)) {
+            // 'timerExec' must be called by the UI thread
+            if (Display.getCurrent() == display) {
+                timeUpdatePass();
+            } else if (!display.isDisposed()) {
+                display.asyncExec(this::timeUpdatePass);
+            }
+        }
+    }
+
+    /**
+     * Registers {@link #updatePass} to be executed one frame interval after the start of the
+     * previous pass, must be called by the UI thread.
+     */
+    private void timeUpdatePass() {
+        if (display.isDisposed()) {
+            return;
+        }
+        final long delay = Math.max(0, lastUpdatePassStart + FRAME_INTERVAL - System.nanoTime());
+        display.timerExec((int) TimeUnit.NANOSECONDS.toMillis(delay), updatePass);
+    }
+
+    private final Runnable updatePass = new Runnable() {
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run() {
+            lastUpdatePassStart = System.nanoTime();
+
+            // reset the flag before performing the updates such that changes made by other
+            //  threads meanwhile schedule a further pass
+            updatePassScheduled.set(false);
+
+            final boolean pending = performUpdates(true);
+            if (pending && updatePassScheduled.compareAndSet(false, true)) {
+                timeUpdatePass();
+            }
+        }
+    };
+
     private final Job renderingUpdater = new Job("KLighD DiagramElementUpdater") {
 
         /* Constructor */ {
@@ -867,48 +933,69 @@ public class DiagramController {
 
         @Override
         protected IStatus run(final IProgressMonitor monitor) {
-            if (display != null) {
-                display.asyncExec(diagramUpdateRunnable);
-
-            } else {
-                // if no SWT display is required just execute 'diagramUpdateRunnable'
-                //  (within this job's worker thread)
-                diagramUpdateRunnable.run();
-            }
+            // no SWT display is required so just perform all updates
+            //  (within this job's worker thread)
+            performUpdates(false);
 
             return Status.OK_STATUS;
         }
+    };
 
-        private final Runnable diagramUpdateRunnable = new Runnable() {
-
-            /**
-             * {@inheritDoc}
-             */
-            public void run() {
-                final Set<AbstractKGERenderingController<?, ?>> copy;
-                final Map<AbstractKGERenderingController<?, ?>, ElementMovement> copyStyles;
-
-                synchronized (dirtyDiagramElements) {
-                    copy = ImmutableSet.copyOf(dirtyDiagramElements);
-                    dirtyDiagramElements.clear();
-                }
-
-                synchronized (dirtyDiagramElementStyles) {
-                    copyStyles = ImmutableMap.copyOf(dirtyDiagramElementStyles);
-                    dirtyDiagramElementStyles.clear();
+    /**
+     * Updates the renderings and afterwards the styles of the dirty diagram elements in the order
+     * they have been reported. If <code>limited</code> is <code>true</code> the updates are stopped
+     * as soon as the {@link KlighdProperties#RENDERING_UPDATE_BUDGET} is exceeded, while at least
+     * one element is updated anyway.
+     *
+     * @param limited
+     *            whether the update budget applies
+     * @return <code>true</code> if there are still dirty diagram elements left
+     */
+    private boolean performUpdates(final boolean limited) {
+        final long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(renderingUpdateBudget);
+        boolean performed = false;
+
+        while (!performed || !limited || System.nanoTime() - deadline < 0) {
+            final AbstractKGERenderingController<?, ?> ctrl;
+            synchronized (dirtyDiagramElements) {
+                final Iterator<AbstractKGERenderingController<?, ?>> it =
+                        dirtyDiagramElements.iterator();
+                if (!it.hasNext()) {
+                    break;
                 }
+                ctrl = it.next();
+                it.remove();
+            }
+            ctrl.updateRendering();
+            performed = true;
+        }
 
-                for (final AbstractKGERenderingController<?, ?> ctrl : copy) {
-                    ctrl.updateRendering();
+        while (!performed || !limited || System.nanoTime() - deadline < 0) {
+            final Map.Entry<AbstractKGERenderingController<?, ?>, ElementMovement> ctrl;
+            synchronized (dirtyDiagramElementStyles) {
+                final Iterator<Map.Entry<AbstractKGERenderingController<?, ?>, ElementMovement>> it =
+                        dirtyDiagramElementStyles.entrySet().iterator();
+                if (!it.hasNext()) {
+                    break;
                 }
+                final Map.Entry<AbstractKGERenderingController<?, ?>, ElementMovement> next = it.next();
+                ctrl = Maps.immutableEntry(next.getKey(), next.getValue());
+                it.remove();
+            }
+            ctrl.getKey().updateStyles(ctrl.getValue());
+            performed = true;
+        }
 
-                for (final Map.Entry<AbstractKGERenderingController<?, ?>, ElementMovement> ctrl
-                        : copyStyles.entrySet()) {
-                    ctrl.getKey().updateStyles(ctrl.getValue());
-                }
+        synchronized (dirtyDiagramElements) {
+            if (!dirtyDiagramElements.isEmpty()) {
+                return true;
             }
-        };
-    };
+        }
+        synchronized (dirtyDiagramElementStyles) {
+            return !dirtyDiagramElementStyles.isEmpty();
+        }
+    }
 
 
     /**
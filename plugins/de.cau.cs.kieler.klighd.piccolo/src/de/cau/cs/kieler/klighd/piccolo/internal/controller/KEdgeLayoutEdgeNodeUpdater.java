@@ -26,6 +26,7 @@ import org.eclipse.emf.common.notify.Notifier;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EContentAdapter;
 
+import de.cau.cs.kieler.klighd.internal.macrolayout.KlighdDiagramLayoutConnector;
 import de.cau.cs.kieler.klighd.kgraph.KEdge;
 import de.cau.cs.kieler.klighd.kgraph.KEdgeLayout;
 import de.cau.cs.kieler.klighd.kgraph.KGraphPackage;
@@ -102,6 +103,14 @@ class KEdgeLayoutEdgeNodeUpdater extends EContentAdapter {
         }
 
         if (edL != null) {
+            if (notification.getNewValue()
+                    == KlighdDiagramLayoutConnector.LAYOUT_DATA_UNCHANGED_VALUE
+                    && (edgeRep.getVisible() || !controller.isRecording())) {
+                // the layout did not change the edge's points, so there is nothing to update,
+                //  unless the edge is still invisible and is to be faded in by the recorded change
+                return;
+            }
+
             if (controller.isRecording()) {
                 controller.recordChange(edgeRep, Pair.of(
                         getBendPoints(edL, renderedAsPolyline), getJunctionPoints(edL)));
@@ -290,7 +290,7 @@ public class KNodeNode extends KNodeAbstractNode implements
             // in case the diagram is clipped to this node, ignore non-force changes,
             //  and keep the existing setup
             final KNode node = getViewModelElement();
-            if (node.getProperties().containsKey(KlighdProperties.SHOW_CLIPPED_PORTS)) {
+            if (node.hasProperty(KlighdProperties.SHOW_CLIPPED_PORTS)) {
                 this.portsHiddenWhenClipped = !node.getProperty(KlighdProperties.SHOW_CLIPPED_PORTS);
             } else {
                 this.portsHiddenWhenClipped = portsHidden;
@@ -315,7 +315,7 @@ public class KNodeNode extends KNodeAbstractNode implements
             // in case the diagram is clipped to this node, ignore non-force changes,
             //  and keep the existing setup
             final KNode node = getViewModelElement();
-            if (node.getProperties().containsKey(KlighdProperties.SHOW_CLIPPED_LABELS)) {
+            if (node.hasProperty(KlighdProperties.SHOW_CLIPPED_LABELS)) {
                 this.labelsHiddenWhenClipped = !node.getProperty(KlighdProperties.SHOW_CLIPPED_LABELS);
             } else {
                 this.labelsHiddenWhenClipped = labelsHidden;
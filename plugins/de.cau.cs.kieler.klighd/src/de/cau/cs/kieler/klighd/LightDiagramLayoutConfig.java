@@ -17,6 +17,7 @@ import java.util.List;
 import org.eclipse.elk.core.LayoutConfigurator;
 import org.eclipse.elk.core.math.KVector;
 import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.util.IElkCancelIndicator;
 import org.eclipse.elk.graph.properties.IPropertyHolder;
 
 import de.cau.cs.kieler.klighd.kgraph.KGraphElement;
@@ -103,6 +104,16 @@ public class LightDiagramLayoutConfig {
      */
     private Object model;
 
+    /**
+     * {@link IElkCancelIndicator} telling the layout to stop, e.g. because it has been superseded.
+     */
+    private IElkCancelIndicator cancelIndicator;
+
+    /**
+     * The {@link KNode} whose subtree is to be laid out, if the layout shall be restricted to it.
+     */
+    private KNode layoutScope;
+
     /**
      * Creates a configuration for a {@link ViewContext}.
      * 
@@ -263,6 +274,36 @@ public class LightDiagramLayoutConfig {
         return this;
     }
 
+    /**
+     * {@link IElkCancelIndicator} that is asked during the layout whether the layout should be
+     * canceled.
+     * 
+     * @param theCancelIndicator
+     *            the {@link IElkCancelIndicator}
+     * @return the configuration
+     */
+    public LightDiagramLayoutConfig cancelIndicator(final IElkCancelIndicator theCancelIndicator) {
+        this.cancelIndicator = theCancelIndicator;
+        return this;
+    }
+
+    /**
+     * Restricts the layout to the subtree of the given node, e.g. after the node has been expanded
+     * or collapsed. Only the content of that node is laid out by its configured layout algorithm.
+     * Its ancestors keep the positions of their children, i.e. unaffected siblings of the node and
+     * of its ancestors stay in place, and are just resized to the changed size of the node.
+     * Elements outside of the node's subtree and its ancestors' children are not touched at all.
+     * 
+     * @param theLayoutScope
+     *            the {@link KNode} whose subtree is to be laid out, <code>null</code> to lay out
+     *            the whole diagram
+     * @return the configuration
+     */
+    public LightDiagramLayoutConfig layoutScope(final KNode theLayoutScope) {
+        this.layoutScope = theLayoutScope;
+        return this;
+    }
+
     ///////////////////////////////////////////////////////////
     // Reading the configuration in LightDiagramServices
 
@@ -379,6 +420,24 @@ public class LightDiagramLayoutConfig {
         return this.properties != null ? this.properties : KlighdSynthesisProperties.emptyConfig();
     }
 
+    /**
+     * The {@link IElkCancelIndicator} telling the layout to stop.
+     * 
+     * @return the {@link IElkCancelIndicator} or <code>null</code> if none has been configured.
+     */
+    IElkCancelIndicator cancelIndicator() {
+        return this.cancelIndicator;
+    }
+
+    /**
+     * The {@link KNode} whose subtree the layout is restricted to.
+     * 
+     * @return the {@link KNode}, or <code>null</code> if the whole diagram is to be laid out
+     */
+    KNode layoutScope() {
+        return this.layoutScope;
+    }
+
     /**
      * The {@link ViewContext} this layout is related to.
      * 
@@ -17,6 +17,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -25,6 +26,7 @@ import org.eclipse.elk.core.options.CoreOptions;
 import org.eclipse.elk.core.service.DiagramLayoutEngine;
 import org.eclipse.elk.core.service.DiagramLayoutEngine.Parameters;
 import org.eclipse.elk.core.service.ElkServicePlugin;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
 import org.eclipse.elk.core.util.IElkCancelIndicator;
 import org.eclipse.elk.core.util.IElkProgressMonitor;
 import org.eclipse.elk.core.util.IGraphElementVisitor;
@@ -43,6 +45,7 @@ import de.cau.cs.kieler.klighd.KlighdDataManager.OffscreenRendererDescriptor;
 import de.cau.cs.kieler.klighd.internal.ILayoutConfigProvider;
 import de.cau.cs.kieler.klighd.internal.ILayoutRecorder;
 import de.cau.cs.kieler.klighd.internal.macrolayout.KlighdLayoutSetup;
+import de.cau.cs.kieler.klighd.internal.macrolayout.ScopedLayoutConfigurator;
 import de.cau.cs.kieler.klighd.internal.util.KlighdInternalProperties;
 import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.util.KlighdSynthesisProperties;
@@ -61,6 +64,15 @@ public final class LightDiagramServices {
             Lists.newArrayList(CoreOptions.ANIMATE, CoreOptions.ANIM_TIME_FACTOR,
                     CoreOptions.MIN_ANIM_TIME, CoreOptions.MAX_ANIM_TIME);
 
+    /** The number of layout runs performed by {@link #layoutDiagram(LightDiagramLayoutConfig)}. */
+    private static final LongAdder LAYOUT_RUNS = new LongAdder();
+
+    /** The accumulated time spent on setting up the layout runs, in nanoseconds. */
+    private static final LongAdder LAYOUT_SETUP_TIME = new LongAdder();
+
+    /** The accumulated time spent in the {@link DiagramLayoutEngine}, in nanoseconds. */
+    private static final LongAdder LAYOUT_EXECUTION_TIME = new LongAdder();
+
     /**
      * A private constructor to prevent instantiation.
      */
@@ -175,19 +187,30 @@ public final class LightDiagramServices {
         final KNode viewModel = theViewContext.getViewModel();
 
         if (viewModel != null) {
+            final long setupStart = System.nanoTime();
+
             theViewContext.setProperty(KlighdInternalProperties.NEXT_ZOOM_STYLE,
                     config.zoomStyle());
             theViewContext.setProperty(KlighdInternalProperties.NEXT_FOCUS_ELEMENT,
                     config.focusElement());
             theViewContext.setProperty(KlighdInternalProperties.PREVIOUS_POSITION,
                     config.previousPosition());
+            theViewContext.setProperty(KlighdInternalProperties.NEXT_LAYOUT_SCOPE,
+                    config.layoutScope());
     
             // Activate the ELK Service plug-in so all layout options are loaded
             ElkServicePlugin.getInstance();
     
             // Our parameters for the layout run
             Parameters layoutParameters = new Parameters();
-            final LayoutConfigurator extendedConfigurator = (LayoutConfigurator) layoutParameters.addLayoutRun();
+            final LayoutConfigurator extendedConfigurator;
+            if (config.layoutScope() != null) {
+                // lets the ancestors of the layout scope keep their children's positions
+                extendedConfigurator = new ScopedLayoutConfigurator();
+                layoutParameters.addLayoutRun(extendedConfigurator);
+            } else {
+                extendedConfigurator = (LayoutConfigurator) layoutParameters.addLayoutRun();
+            }
     
             // Animation
             final boolean doAnimate = config.animate() != null ? config.animate().booleanValue()
@@ -211,7 +234,7 @@ public final class LightDiagramServices {
             // Copy global properties from root node. This might overwrite
             // options defined by the LightDiagramLayoutConfig
             for (@SuppressWarnings("rawtypes") IProperty property : GLOBALOPTIONS) {
-                if (viewModel.getProperties().containsKey(property)) {
+                if (viewModel.hasProperty(property)) {
                     layoutParameters.getGlobalSettings().setProperty(
                             property, viewModel.getProperty(property));
                 }
@@ -243,23 +266,44 @@ public final class LightDiagramServices {
             // but is required for non-eclipse-platform-based usages
             // for the sake of simplicity I decided to go that way in both scenarios
             //  (with _and_ without a running eclipse platform)
-            final DiagramLayoutEngine engine = new KlighdLayoutSetup().getDiagramLayoutEngine();
+            // the engine is created once and shared, as creating its injector is comparatively
+            //  expensive and would otherwise be paid for each layout run
+            final DiagramLayoutEngine engine = KlighdLayoutSetup.getSharedDiagramLayoutEngine();
             final IStatus status;
             
+            final IElkCancelIndicator configuredCancelIndicator = config.cancelIndicator();
+
+            final long executionStart = System.nanoTime();
+            LAYOUT_SETUP_TIME.add(executionStart - setupStart);
+
             if (Klighd.IS_PLATFORM_RUNNING) {
-                final IElkCancelIndicator cancelationIndicator =
-                        thePart != null ? new DispositionAwareCancelationHandle(thePart) : null;
+                final IElkCancelIndicator cancelationIndicator;
+                if (thePart != null && configuredCancelIndicator != null) {
+                    final IElkCancelIndicator dispositionIndicator =
+                            new DispositionAwareCancelationHandle(thePart);
+                    cancelationIndicator = () -> dispositionIndicator.isCanceled()
+                            || configuredCancelIndicator.isCanceled();
+                } else if (thePart != null) {
+                    cancelationIndicator = new DispositionAwareCancelationHandle(thePart);
+                } else {
+                    cancelationIndicator = configuredCancelIndicator;
+                }
 
                 status = engine.layout(thePart, diagramPart, cancelationIndicator, layoutParameters)
                         .getProperty(DiagramLayoutEngine.MAPPING_STATUS);
 
             } else {
-                final IElkProgressMonitor progressMonitor = new NullElkProgressMonitor();
+                final IElkProgressMonitor progressMonitor = configuredCancelIndicator != null
+                        ? new CancelableProgressMonitor(configuredCancelIndicator)
+                        : new NullElkProgressMonitor();
 
                 status = engine.layout(thePart, diagramPart, progressMonitor, layoutParameters)
                         .getProperty(DiagramLayoutEngine.MAPPING_STATUS);
             }
 
+            LAYOUT_EXECUTION_TIME.add(System.nanoTime() - executionStart);
+            LAYOUT_RUNS.increment();
+
             if (status != null && !status.isOK()) {
                 Klighd.log(status);
             }
@@ -271,6 +315,49 @@ public final class LightDiagramServices {
         
     }
 
+    /**
+     * Returns the number of layout runs performed by
+     * {@link #layoutDiagram(LightDiagramLayoutConfig)} since the last
+     * {@link #resetLayoutStatistics()}.
+     * 
+     * @return the number of layout runs
+     */
+    public static long getLayoutRuns() {
+        return LAYOUT_RUNS.sum();
+    }
+
+    /**
+     * Returns the accumulated time spent on setting up the layout runs since the last
+     * {@link #resetLayoutStatistics()}, i.e. on assembling the layout configuration and on
+     * obtaining the {@link DiagramLayoutEngine}.
+     * 
+     * @return the setup time in nanoseconds
+     */
+    public static long getLayoutSetupTime() {
+        return LAYOUT_SETUP_TIME.sum();
+    }
+
+    /**
+     * Returns the accumulated time spent in the {@link DiagramLayoutEngine} since the last
+     * {@link #resetLayoutStatistics()}, i.e. on building the layout graph, running ELK, and
+     * applying the layout.
+     * 
+     * @return the execution time in nanoseconds
+     */
+    public static long getLayoutExecutionTime() {
+        return LAYOUT_EXECUTION_TIME.sum();
+    }
+
+    /**
+     * Resets the numbers provided by {@link #getLayoutRuns()}, {@link #getLayoutSetupTime()}, and
+     * {@link #getLayoutExecutionTime()}.
+     */
+    public static void resetLayoutStatistics() {
+        LAYOUT_RUNS.reset();
+        LAYOUT_SETUP_TIME.reset();
+        LAYOUT_EXECUTION_TIME.reset();
+    }
+
     private static Pair<IDiagramWorkbenchPart, ViewContext> determineDWPandVC(
             final IDiagramWorkbenchPart workbenchPart, final ViewContext viewContext) {
 
@@ -329,6 +416,33 @@ public final class LightDiagramServices {
         }
     }
 
+    /**
+     * A progress monitor that reports the layout as canceled as soon as the given
+     * {@link IElkCancelIndicator} does, for layouts without a running platform.
+     */
+    private static final class CancelableProgressMonitor extends BasicProgressMonitor {
+
+        private final IElkCancelIndicator cancelIndicator;
+
+        /**
+         * Constructor.
+         *
+         * @param cancelIndicator
+         *            the {@link IElkCancelIndicator} to ask for cancellation
+         */
+        private CancelableProgressMonitor(final IElkCancelIndicator cancelIndicator) {
+            this.cancelIndicator = cancelIndicator;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isCanceled() {
+            return cancelIndicator.isCanceled();
+        }
+    }
+
     /* ---------------------------------------- */
     /*     diagram zooming API                  */
     /* ---------------------------------------- */
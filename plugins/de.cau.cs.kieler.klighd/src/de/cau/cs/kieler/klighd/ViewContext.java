@@ -45,6 +45,7 @@ import de.cau.cs.kieler.klighd.kgraph.KGraphElement;
 import de.cau.cs.kieler.klighd.kgraph.KGraphPackage;
 import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+import de.cau.cs.kieler.klighd.krendering.KRenderingInterner;
 import de.cau.cs.kieler.klighd.syntheses.DuplicatingDiagramSynthesis;
 import de.cau.cs.kieler.klighd.util.KlighdProperties;
 import de.cau.cs.kieler.klighd.util.KlighdSynthesisProperties;
@@ -480,6 +481,11 @@ public class ViewContext extends MapPropertyHolder {
             return false;
         }
 
+        if (newViewModel != this.viewModel
+                && this.getProperty(KlighdSynthesisProperties.INTERN_RENDERINGS)) {
+            KRenderingInterner.internRenderings(newViewModel);
+        }
+
         chosenUpdateStrategy.update(this.viewModel, newViewModel, this);
 
         final KNode clipNode = this.getProperty(KlighdProperties.CLIP);
@@ -0,0 +1,455 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.internal.macrolayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.elk.core.IGraphLayoutEngine;
+import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.math.KVector;
+import org.eclipse.elk.core.math.KVectorChain;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.options.PortSide;
+import org.eclipse.elk.core.util.IElkProgressMonitor;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkConnectableShape;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.elk.graph.properties.Property;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import de.cau.cs.kieler.klighd.KlighdDataManager;
+import de.cau.cs.kieler.klighd.KlighdOptions;
+import de.cau.cs.kieler.klighd.labels.management.LabelManagementResult;
+import de.cau.cs.kieler.klighd.util.LayoutResultCache;
+
+/**
+ * {@link IGraphLayoutEngine} reusing the results stored in the {@link LayoutResultCache} for
+ * layout graphs marked with {@link #USE_CACHE}, and delegating to a
+ * {@link RecursiveGraphLayoutEngine} otherwise.<br>
+ * <br>
+ * The cache is looked up by a SHA-256 fingerprint of the layout graph that covers its structure,
+ * the positions and sizes of its elements, the label texts, and the values of all layout options
+ * configured on its elements. Values without a stable string representation render the
+ * fingerprint unique and, hence, prevent the reuse of results. The stored results contain the
+ * positions and sizes of the graph elements, the edge routes, and the layout output evaluated by
+ * the {@link KlighdDiagramLayoutConnector}. Since the properties to be preserved in the view
+ * model, see {@link KlighdDataManager#getPreservedProperties()}, are not part of those results,
+ * no results are reused if any such properties are registered.
+ *
+ * @author nre
+ */
+public class CachingGraphLayoutEngine implements IGraphLayoutEngine {
+
+    /**
+     * Marks the root of a layout graph whose layout result is to be looked up in and stored in
+     * the {@link LayoutResultCache}.
+     */
+    public static final IProperty<Boolean> USE_CACHE = new Property<Boolean>(
+            "klighd.layout.useCache", false);
+
+    /** the version of the fingerprints and result encoding, to be increased on changes. */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NO_VALUE = -1;
+
+    private final RecursiveGraphLayoutEngine delegate = new RecursiveGraphLayoutEngine();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void layout(final ElkNode layoutGraph, final IElkProgressMonitor progressMonitor) {
+        if (!layoutGraph.getProperty(USE_CACHE)
+                || !KlighdDataManager.getInstance().getPreservedProperties().isEmpty()) {
+            delegate.layout(layoutGraph, progressMonitor);
+            return;
+        }
+
+        final List<ElkGraphElement> elements = new ArrayList<>();
+        collectElements(layoutGraph, elements);
+
+        final LayoutResultCache cache = LayoutResultCache.getInstance();
+        final String fingerprint = fingerprint(elements);
+        final byte[] result = cache.get(fingerprint);
+
+        if (result != null) {
+            progressMonitor.begin("Apply cached layout", 1);
+            try {
+                applyResult(elements, new DataInputStream(new ByteArrayInputStream(result)));
+            } catch (final IOException e) {
+                // can only be caused by a corrupted result in the disk store,
+                //  which is replaced by the new one
+                delegate.layout(layoutGraph, progressMonitor.subTask(1));
+                cache.put(fingerprint, recordResult(elements));
+            }
+            progressMonitor.done();
+        } else {
+            delegate.layout(layoutGraph, progressMonitor);
+            cache.put(fingerprint, recordResult(elements));
+        }
+    }
+
+    /**
+     * Collects all elements of the given graph in a deterministic order, which the fingerprint
+     * and the encoding of the results are based on.
+     */
+    private static void collectElements(final ElkNode node, final List<ElkGraphElement> elements) {
+        elements.add(node);
+        elements.addAll(node.getLabels());
+        for (final ElkPort port : node.getPorts()) {
+            elements.add(port);
+            elements.addAll(port.getLabels());
+        }
+        for (final ElkNode child : node.getChildren()) {
+            collectElements(child, elements);
+        }
+        for (final ElkEdge edge : node.getContainedEdges()) {
+            elements.add(edge);
+            elements.addAll(edge.getLabels());
+        }
+    }
+
+    /**
+     * Computes the fingerprint of the graph consisting of the given elements.
+     *
+     * @param elements
+     *            the elements as collected by {@link #collectElements(ElkNode, List)}
+     * @return the fingerprint as hexadecimal string
+     */
+    private static String fingerprint(final List<ElkGraphElement> elements) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is to be supported by every Java platform
+            throw new IllegalStateException(e);
+        }
+
+        final Map<ElkConnectableShape, Integer> indices = new HashMap<>();
+        for (final ElkGraphElement element : elements) {
+            if (element instanceof ElkConnectableShape) {
+                indices.put((ElkConnectableShape) element, indices.size());
+            }
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new DigestOutputStream(ByteStreams.nullOutputStream(), digest))) {
+            out.writeInt(FORMAT_VERSION);
+
+            for (final ElkGraphElement element : elements) {
+                if (element instanceof ElkNode) {
+                    final ElkNode node = (ElkNode) element;
+                    out.writeChar('N');
+                    out.writeInt(node.getLabels().size());
+                    out.writeInt(node.getPorts().size());
+                    out.writeInt(node.getChildren().size());
+                    out.writeInt(node.getContainedEdges().size());
+
+                } else if (element instanceof ElkPort) {
+                    out.writeChar('P');
+                    out.writeInt(((ElkPort) element).getLabels().size());
+
+                } else if (element instanceof ElkLabel) {
+                    out.writeChar('L');
+                    writeString(out, ((ElkLabel) element).getText());
+
+                } else if (element instanceof ElkEdge) {
+                    final ElkEdge edge = (ElkEdge) element;
+                    out.writeChar('E');
+                    out.writeInt(edge.getLabels().size());
+                    writeIndices(out, edge.getSources(), indices);
+                    writeIndices(out, edge.getTargets(), indices);
+                    writeSection(out, edge.getSections().isEmpty() ? null
+                            : edge.getSections().get(0));
+                }
+
+                if (element instanceof ElkShape) {
+                    writeShape(out, (ElkShape) element);
+                }
+                writeOptions(out, element);
+            }
+        } catch (final IOException e) {
+            // cannot happen as nothing is actually written
+            throw new IllegalStateException(e);
+        }
+
+        return BaseEncoding.base16().lowerCase().encode(digest.digest());
+    }
+
+    private static void writeIndices(final DataOutput out, final List<ElkConnectableShape> shapes,
+            final Map<ElkConnectableShape, Integer> indices) throws IOException {
+        out.writeInt(shapes.size());
+        for (final ElkConnectableShape shape : shapes) {
+            final Integer index = indices.get(shape);
+            out.writeInt(index != null ? index : NO_VALUE);
+        }
+    }
+
+    /**
+     * Writes the ids and string representations of the values of all registered layout options
+     * configured on the given element, ordered by their ids.
+     */
+    private static void writeOptions(final DataOutput out, final ElkGraphElement element)
+            throws IOException {
+        final LayoutMetaDataService metaDataService = LayoutMetaDataService.getInstance();
+        final List<Entry<IProperty<?>, Object>> options = new ArrayList<>();
+        for (final Entry<IProperty<?>, Object> entry : element.getAllProperties().entrySet()) {
+            if (metaDataService.getOptionData(entry.getKey().getId()) != null) {
+                options.add(entry);
+            }
+        }
+        options.sort(Comparator.comparing(entry -> entry.getKey().getId()));
+
+        out.writeInt(options.size());
+        for (final Entry<IProperty<?>, Object> option : options) {
+            writeString(out, option.getKey().getId());
+            writeString(out, String.valueOf(option.getValue()));
+        }
+    }
+
+    /**
+     * Encodes the layout result of the graph consisting of the given elements.
+     *
+     * @param elements
+     *            the elements as collected by {@link #collectElements(ElkNode, List)}
+     * @return the encoded result
+     */
+    private static byte[] recordResult(final List<ElkGraphElement> elements) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (final ElkGraphElement element : elements) {
+                if (element instanceof ElkShape) {
+                    writeShape(out, (ElkShape) element);
+                }
+
+                if (element instanceof ElkNode) {
+                    out.writeDouble(element.getProperty(CoreOptions.SCALE_FACTOR));
+
+                } else if (element instanceof ElkPort) {
+                    out.writeInt(element.getProperty(CoreOptions.PORT_SIDE).ordinal());
+
+                } else if (element instanceof ElkLabel) {
+                    writeString(out, ((ElkLabel) element).getText());
+                    out.writeInt(
+                            element.getProperty(KlighdOptions.LABELS_MANAGEMENT_RESULT).ordinal());
+
+                } else if (element instanceof ElkEdge) {
+                    final ElkEdge edge = (ElkEdge) element;
+                    final KVectorChain junctionPoints =
+                            edge.getProperty(CoreOptions.JUNCTION_POINTS);
+                    if (junctionPoints == null) {
+                        out.writeInt(NO_VALUE);
+                    } else {
+                        out.writeInt(junctionPoints.size());
+                        for (final KVector point : junctionPoints) {
+                            out.writeDouble(point.x);
+                            out.writeDouble(point.y);
+                        }
+                    }
+                    writeSection(out, edge.getSections().isEmpty() ? null
+                            : edge.getSections().get(0));
+                }
+            }
+        } catch (final IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Applies the given encoded layout result to the graph consisting of the given elements. The
+     * whole result is decoded before any element is changed, so the graph is left untouched if
+     * the result does not fit it.
+     *
+     * @param elements
+     *            the elements as collected by {@link #collectElements(ElkNode, List)}
+     * @param in
+     *            the encoded result
+     * @throws IOException
+     *             if the encoded result does not fit the graph
+     */
+    private static void applyResult(final List<ElkGraphElement> elements,
+            final DataInputStream in) throws IOException {
+        final List<Runnable> updates = new ArrayList<>();
+        for (final ElkGraphElement element : elements) {
+            if (element instanceof ElkShape) {
+                final ElkShape shape = (ElkShape) element;
+                final double x = in.readDouble();
+                final double y = in.readDouble();
+                final double width = in.readDouble();
+                final double height = in.readDouble();
+                updates.add(() -> {
+                    shape.setLocation(x, y);
+                    shape.setDimensions(width, height);
+                });
+            }
+
+            if (element instanceof ElkNode) {
+                final double scaleFactor = in.readDouble();
+                updates.add(() -> element.setProperty(CoreOptions.SCALE_FACTOR, scaleFactor));
+
+            } else if (element instanceof ElkPort) {
+                final PortSide side = readEnum(in, PortSide.values());
+                updates.add(() -> element.setProperty(CoreOptions.PORT_SIDE, side));
+
+            } else if (element instanceof ElkLabel) {
+                final String text = readString(in);
+                final LabelManagementResult result = readEnum(in, LabelManagementResult.values());
+                updates.add(() -> {
+                    ((ElkLabel) element).setText(text);
+                    element.setProperty(KlighdOptions.LABELS_MANAGEMENT_RESULT, result);
+                });
+
+            } else if (element instanceof ElkEdge) {
+                final ElkEdge edge = (ElkEdge) element;
+                final int junctionPointCount = in.readInt();
+                if (junctionPointCount != NO_VALUE) {
+                    final KVectorChain junctionPoints = new KVectorChain();
+                    for (int i = 0; i < junctionPointCount; i++) {
+                        junctionPoints.add(in.readDouble(), in.readDouble());
+                    }
+                    updates.add(
+                            () -> edge.setProperty(CoreOptions.JUNCTION_POINTS, junctionPoints));
+                }
+                final double[] section = readSection(in);
+                updates.add(() -> applySection(edge, section));
+            }
+        }
+        if (in.read() != -1) {
+            throw new IOException("The layout result is longer than expected.");
+        }
+
+        for (final Runnable update : updates) {
+            update.run();
+        }
+    }
+
+    private static void writeShape(final DataOutput out, final ElkShape shape)
+            throws IOException {
+        out.writeDouble(shape.getX());
+        out.writeDouble(shape.getY());
+        out.writeDouble(shape.getWidth());
+        out.writeDouble(shape.getHeight());
+    }
+
+    private static void writeSection(final DataOutput out, final ElkEdgeSection section)
+            throws IOException {
+        if (section == null) {
+            out.writeInt(NO_VALUE);
+            return;
+        }
+        out.writeInt(section.getBendPoints().size());
+        out.writeDouble(section.getStartX());
+        out.writeDouble(section.getStartY());
+        for (final ElkBendPoint bendPoint : section.getBendPoints()) {
+            out.writeDouble(bendPoint.getX());
+            out.writeDouble(bendPoint.getY());
+        }
+        out.writeDouble(section.getEndX());
+        out.writeDouble(section.getEndY());
+    }
+
+    /**
+     * Reads a section written by {@link #writeSection(DataOutput, ElkEdgeSection)}.
+     *
+     * @return the coordinates of the start point, the bend points, and the end point, or
+     *         <code>null</code> if there is no section
+     */
+    private static double[] readSection(final DataInput in) throws IOException {
+        final int bendPointCount = in.readInt();
+        if (bendPointCount == NO_VALUE) {
+            return null;
+        } else if (bendPointCount < 0) {
+            throw new IOException("Invalid number of bend points " + bendPointCount + ".");
+        }
+        final double[] coordinates = new double[2 * bendPointCount + 4];
+        for (int i = 0; i < coordinates.length; i++) {
+            coordinates[i] = in.readDouble();
+        }
+        return coordinates;
+    }
+
+    private static void applySection(final ElkEdge edge, final double[] coordinates) {
+        if (coordinates == null) {
+            edge.getSections().clear();
+            return;
+        }
+        final ElkEdgeSection section = ElkGraphUtil.firstEdgeSection(edge, true, true);
+        section.setStartLocation(coordinates[0], coordinates[1]);
+        final int end = coordinates.length - 2;
+        for (int i = 2; i < end; i += 2) {
+            ElkGraphUtil.createBendPoint(section, coordinates[i], coordinates[i + 1]);
+        }
+        section.setEndLocation(coordinates[end], coordinates[end + 1]);
+    }
+
+    private static void writeString(final DataOutput out, final String string)
+            throws IOException {
+        if (string == null) {
+            out.writeInt(NO_VALUE);
+        } else {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInput in) throws IOException {
+        final int length = in.readInt();
+        if (length == NO_VALUE) {
+            return null;
+        } else if (length < 0) {
+            throw new IOException("Invalid string length " + length + ".");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static <E extends Enum<E>> E readEnum(final DataInput in, final E[] values)
+            throws IOException {
+        final int ordinal = in.readInt();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Invalid enumeration literal " + ordinal + ".");
+        }
+        return values[ordinal];
+    }
+}
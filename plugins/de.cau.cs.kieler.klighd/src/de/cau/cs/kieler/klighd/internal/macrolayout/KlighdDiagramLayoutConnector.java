@@ -12,13 +12,20 @@
  */
 package de.cau.cs.kieler.klighd.internal.macrolayout;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.eclipse.elk.core.math.KVector;
+import org.eclipse.elk.core.math.KVectorChain;
 import org.eclipse.elk.core.options.CoreOptions;
 import org.eclipse.elk.core.service.IDiagramLayoutConnector;
 import org.eclipse.elk.core.service.LayoutMapping;
@@ -119,12 +126,28 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
      */
     public static final Object LAYOUT_DATA_UNCHANGED_VALUE = new Object();
 
+    /**
+     * The maximal difference between a coordinate computed by the layout algorithm and the one
+     * currently stored in the view model for which the latter is kept, in order to avoid
+     * unnecessary diagram updates caused by rounding errors.
+     */
+    private static final float LAYOUT_EPSILON = 1e-3f;
+
     /** the list of edges found in the graph. */
     private static final IProperty<List<KEdge>> EDGES =
             new Property<>("krendering.layout.edges");
     /** edges that have been excluded from the layout. */
     private static final IProperty<List<KEdge>> EXCLUDED_EDGES =
             new Property<>("krendering.layout.excludedEdges");
+    /** junction points of the edges before the layout run, for detecting changes. */
+    private static final IProperty<Map<KEdge, KVectorChain>> PREVIOUS_JUNCTION_POINTS =
+            new Property<>("krendering.layout.previousJunctionPoints");
+    /** the node whose subtree the layout is restricted to, if any. */
+    private static final IProperty<KNode> LAYOUT_SCOPE =
+            new Property<>("krendering.layout.scope");
+    /** sizes of nodes and labels estimated in advance, see {@link SizeEstimationTask}. */
+    private static final IProperty<Map<KGraphElement, Bounds>> SIZE_ESTIMATES =
+            new Property<>("krendering.layout.sizeEstimates");
     /**
      * A property that is used to tell KIML about the workbench part this layout manager is
      * responsible for. Note that this property is not referred to by KIML immediately, it rather
@@ -182,13 +205,20 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
 
         final boolean performSizeEstimation = viewContext == null
                 ? true : !viewContext.getProperty(KlighdSynthesisProperties.SUPPRESS_SIZE_ESTIMATION);
+        final boolean parallelSizeEstimation = viewContext != null
+                && viewContext.getProperty(KlighdSynthesisProperties.PARALLEL_SIZE_ESTIMATION);
+
+        final KNode layoutScope = viewContext == null ? null
+                : viewContext.getProperty(KlighdInternalProperties.NEXT_LAYOUT_SCOPE);
 
         // create the mapping
-        final LayoutMapping mapping = buildLayoutGraph(
-                viewModel, performSizeEstimation, workbenchPart);
+        final LayoutMapping mapping = buildLayoutGraph(viewModel, performSizeEstimation,
+                parallelSizeEstimation, layoutScope, workbenchPart);
 
         if (viewContext != null) {
             mapping.setProperty(WORKBENCH_PART, viewContext.getDiagramWorkbenchPart());
+            mapping.getLayoutGraph().setProperty(CachingGraphLayoutEngine.USE_CACHE,
+                    viewContext.getProperty(KlighdSynthesisProperties.LAYOUT_CACHING));
             
             // remember the layout recorder if any
             mapping.setProperty(KlighdInternalProperties.RECORDER, viewContext.getLayoutRecorder());
@@ -210,15 +240,56 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
      */
     public LayoutMapping buildLayoutGraph(final KNode viewModel,
             final boolean performSizeEstimation, final IWorkbenchPart workbenchPart) {
+        return buildLayoutGraph(viewModel, performSizeEstimation, false, null, workbenchPart);
+    }
+
+    /**
+     * Builds a layout graph from the given graph.
+     *
+     * @param viewModel
+     *            the graph to build the layout graph from
+     * @param performSizeEstimation
+     *            whether the size of nodes & labels should be automatically estimated.
+     * @param parallelSizeEstimation
+     *            whether the sizes of nodes & labels of independent subtrees should be estimated
+     *            in parallel before the layout graph is built, only relevant if
+     *            <code>performSizeEstimation</code> is <code>true</code>
+     * @param layoutScope
+     *            the node whose subtree the layout graph is to be restricted to, or
+     *            <code>null</code> for the whole graph; the graph then contains the subtree of
+     *            <code>layoutScope</code>, its ancestors, and their children, where the
+     *            ancestors are marked with {@link ScopedLayoutConfigurator#FIXED}
+     * @param workbenchPart
+     *            the workbenchPart in which the layout takes place, if any
+     * @return the layout graph mapping
+     */
+    public LayoutMapping buildLayoutGraph(final KNode viewModel,
+            final boolean performSizeEstimation, final boolean parallelSizeEstimation,
+            final KNode layoutScope, final IWorkbenchPart workbenchPart) {
         
         final LayoutMapping mapping = new LayoutMapping(workbenchPart);
         mapping.setProperty(EDGES, new LinkedList<KEdge>());
 
+        if (layoutScope != null && KGraphUtil.isDescendant(layoutScope, viewModel)) {
+            mapping.setProperty(LAYOUT_SCOPE, layoutScope);
+        }
+
+        if (performSizeEstimation && parallelSizeEstimation) {
+            // estimate all sizes on the fork/join pool first, the layout graph itself
+            //  is built sequentially afterwards and just picks up the estimated sizes
+            final Map<KGraphElement, Bounds> estimates = new ConcurrentHashMap<>();
+            ForkJoinPool.commonPool().invoke(new SizeEstimationTask(viewModel, estimates));
+            mapping.setProperty(SIZE_ESTIMATES, estimates);
+        }
+
         // set the parent element
         mapping.setParentElement(viewModel);
 
         final ElkNode layoutGraph = ElkGraphUtil.createGraph();
         shapeLayoutToLayoutGraph(viewModel, layoutGraph);
+        if (mapping.getProperty(LAYOUT_SCOPE) != null) {
+            layoutGraph.setProperty(ScopedLayoutConfigurator.FIXED, true);
+        }
 
         mapping.getGraphMap().put(layoutGraph, viewModel);
         mapping.setLayoutGraph(layoutGraph);
@@ -285,29 +356,9 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
             layoutNode.setIdentifier(id.getId());
         }
 
-        // first check whether children of 'node' shall be taken into account at all.
-        // note that all KNodes of a view model are set 'POPULATED' except the
-        //  explicitly (e.g. initially) collapsed ones.
-        // note the special implementation of 'IS_POPULATED' in case no RenderingContextData
-        //  are attached to 'node'; the predicate returns 'true' in that particular case.
-        // this is required for applying layout to view models that aren't shown by a viewer
-        //  and whose (compound) nodes are not tagged to be 'populated'. This may happen in
-        //  batch tests, for example.
-        final boolean isPopulated = RenderingContextData.IS_POPULATED.apply(node);
-
-        // determine the corresponding rendering
-        final Predicate<KRendering> filter = isPopulated ? KlighdPredicates.isExpandedRendering()
-                : Predicates.not(KlighdPredicates.isExpandedRendering());
-        // apply the class-based filter, than the above defined 'filter'
-        //  if none is found, just take the first KRendering in the 'data' list
-        final KRendering displayedRendering = Iterators.find(
-                Iterators.filter(node.getData().iterator(), KRendering.class),
-                filter, node.getData(KRendering.class));
-
-        // consider 'node' a compound node if it is populated AND has active children
-        //  will be false if all children are inactive and not added to the layout graph later on
-        final boolean isCompoundNode = isPopulated
-                && Iterables.any(node.getChildren(), RenderingContextData.IS_ACTIVE);
+        final boolean isPopulated = isPopulated(node);
+        final KRendering displayedRendering = getDisplayedRendering(node, isPopulated);
+        final boolean isCompoundNode = isCompoundNode(node, isPopulated);
         
         // there is layoutData attached to the node,
         // so take that as node layout instead of the default-layout
@@ -315,21 +366,7 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
 
         // In the following the minimal width and height of the node is determined, which
         //  is used as a basis for the size estimation (necessary for grid-based micro layouts).
-
-        // We start with standard minimal bounds given in the related constant.
-        Bounds minSize = Bounds.of(KlighdConstants.MINIMAL_NODE_BOUNDS);
-        // check the definition of the minimal size property
-        final boolean minNodeSizeIsSet = node.getProperties().containsKey(
-                KlighdProperties.MINIMAL_NODE_SIZE);
-
-        if (minNodeSizeIsSet) {
-            // if the minimal node size is given in terms of the dedicated property, use its values
-            minSize = Bounds.of(node.getProperty(KlighdProperties.MINIMAL_NODE_SIZE));
-        } else if (!isCompoundNode || node.getProperty(INITIAL_NODE_SIZE)) {
-            // otherwise, if the node is a non-compound one or the size is not yet modified by KIML
-            //  take the component-wise maximum of the standard bounds and 'nodelayout's values
-            minSize = Bounds.max(minSize, Bounds.of(node.getWidth(), node.getHeight()));
-        }
+        final Bounds minSize = getMinimalNodeSize(node, isCompoundNode);
 
         // explicitly store the determined minimal node size in the layout data of the node
         //  note that this information will be removed or overwritten by the update strategies
@@ -348,7 +385,9 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
             // ... calculate the minimal required size based on the determined 'minSize' bounds
             final Bounds size;
             if (performSizeEstimation) {
-                size = Bounds.max(minSize, PlacementUtil.estimateSize(displayedRendering, minSize));
+                final Bounds estimate = getSizeEstimate(mapping, node);
+                size = estimate != null ? estimate
+                        : estimateNodeSize(displayedRendering, minSize);
             } else {
                 size = minSize;
             }
@@ -395,7 +434,17 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         }
 
         // process the child as new parent
-        if (isCompoundNode) {
+        //  in case of a scoped layout, the children of nodes outside of the scope's subtree and
+        //  the scope's ancestors are not taken into account, those nodes just keep their size
+        final KNode layoutScope = mapping.getProperty(LAYOUT_SCOPE);
+        if (isCompoundNode && layoutScope != null) {
+            if (KGraphUtil.isDescendant(layoutScope, node)) {
+                layoutNode.setProperty(ScopedLayoutConfigurator.FIXED, true);
+                processNodes(mapping, node, layoutNode, performSizeEstimation);
+            } else if (node == layoutScope || KGraphUtil.isDescendant(node, layoutScope)) {
+                processNodes(mapping, node, layoutNode, performSizeEstimation);
+            }
+        } else if (isCompoundNode) {
             processNodes(mapping, node, layoutNode, performSizeEstimation);
         }
 
@@ -405,6 +454,202 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
                 Iterables.filter(node.getOutgoingEdges(), RenderingContextData.IS_ACTIVE));
     }
 
+    /**
+     * Determines whether the children of the given node shall be taken into account at all.
+     * 
+     * @param node
+     *            the node
+     * @return <code>true</code> if the node is populated
+     */
+    private static boolean isPopulated(final KNode node) {
+        // note that all KNodes of a view model are set 'POPULATED' except the
+        //  explicitly (e.g. initially) collapsed ones.
+        // note the special implementation of 'IS_POPULATED' in case no RenderingContextData
+        //  are attached to 'node'; the predicate returns 'true' in that particular case.
+        // this is required for applying layout to view models that aren't shown by a viewer
+        //  and whose (compound) nodes are not tagged to be 'populated'. This may happen in
+        //  batch tests, for example.
+        return RenderingContextData.IS_POPULATED.apply(node);
+    }
+
+    /**
+     * Determines the rendering displayed for the given node in its current expansion state.
+     * 
+     * @param node
+     *            the node
+     * @param isPopulated
+     *            whether the node is populated, see {@link #isPopulated(KNode)}
+     * @return the displayed rendering, or <code>null</code> if the node has no rendering
+     */
+    private static KRendering getDisplayedRendering(final KNode node, final boolean isPopulated) {
+        // determine the corresponding rendering
+        final Predicate<KRendering> filter = isPopulated ? KlighdPredicates.isExpandedRendering()
+                : Predicates.not(KlighdPredicates.isExpandedRendering());
+        // apply the class-based filter, than the above defined 'filter'
+        //  if none is found, just take the first KRendering in the 'data' list
+        return Iterators.find(
+                Iterators.filter(node.getData().iterator(), KRendering.class),
+                filter, node.getData(KRendering.class));
+    }
+
+    /**
+     * Determines whether the given node is a compound node in the layout graph.
+     * 
+     * @param node
+     *            the node
+     * @param isPopulated
+     *            whether the node is populated, see {@link #isPopulated(KNode)}
+     * @return <code>true</code> if the node's children are part of the layout graph
+     */
+    private static boolean isCompoundNode(final KNode node, final boolean isPopulated) {
+        // consider 'node' a compound node if it is populated AND has active children
+        //  will be false if all children are inactive and not added to the layout graph later on
+        return isPopulated && Iterables.any(node.getChildren(), RenderingContextData.IS_ACTIVE);
+    }
+
+    /**
+     * Determines the minimal size of the given node, which is used as a basis for the size
+     * estimation (necessary for grid-based micro layouts).
+     * 
+     * @param node
+     *            the node
+     * @param isCompoundNode
+     *            whether the node is a compound node, see {@link #isCompoundNode(KNode, boolean)}
+     * @return the minimal size
+     */
+    private static Bounds getMinimalNodeSize(final KNode node, final boolean isCompoundNode) {
+        // We start with standard minimal bounds given in the related constant.
+        Bounds minSize = Bounds.of(KlighdConstants.MINIMAL_NODE_BOUNDS);
+        // check the definition of the minimal size property
+        final boolean minNodeSizeIsSet = node.hasProperty(
+                KlighdProperties.MINIMAL_NODE_SIZE);
+
+        if (minNodeSizeIsSet) {
+            // if the minimal node size is given in terms of the dedicated property, use its values
+            minSize = Bounds.of(node.getProperty(KlighdProperties.MINIMAL_NODE_SIZE));
+        } else if (!isCompoundNode || node.getProperty(INITIAL_NODE_SIZE)) {
+            // otherwise, if the node is a non-compound one or the size is not yet modified by KIML
+            //  take the component-wise maximum of the standard bounds and 'nodelayout's values
+            minSize = Bounds.max(minSize, Bounds.of(node.getWidth(), node.getHeight()));
+        }
+        return minSize;
+    }
+
+    /**
+     * Estimates the minimal size of a node showing the given rendering.
+     * 
+     * @param displayedRendering
+     *            the rendering displayed for the node
+     * @param minSize
+     *            the minimal size of the node, see {@link #getMinimalNodeSize(KNode, boolean)}
+     * @return the estimated size, at least <code>minSize</code>
+     */
+    private static Bounds estimateNodeSize(final KRendering displayedRendering,
+            final Bounds minSize) {
+        return Bounds.max(minSize, PlacementUtil.estimateSize(displayedRendering, minSize));
+    }
+
+    /**
+     * Estimates the minimal size of the given label's root rendering.
+     * 
+     * @param rootRendering
+     *            the root rendering of the label
+     * @return the estimated size
+     */
+    private static Bounds estimateLabelSize(final KRendering rootRendering) {
+        return PlacementUtil.estimateSize(rootRendering, new Bounds(0, 0));
+    }
+
+    /**
+     * Returns the size of the given node or label estimated in advance by a
+     * {@link SizeEstimationTask}, if any.
+     * 
+     * @param mapping
+     *            the layout mapping
+     * @param element
+     *            the node or label
+     * @return the estimated size, or <code>null</code> if it has not been estimated in advance
+     */
+    private static Bounds getSizeEstimate(final LayoutMapping mapping,
+            final KGraphElement element) {
+        final Map<KGraphElement, Bounds> estimates = mapping.getProperty(SIZE_ESTIMATES);
+        return estimates != null ? estimates.get(element) : null;
+    }
+
+    /**
+     * Estimates the sizes of all nodes and labels of the layout graph below a certain parent node
+     * in advance. The estimation only reads the view model, so the subtrees of the parent's
+     * compound child nodes are processed in parallel by forked tasks. The layout graph is built
+     * afterwards as usual, picking up the estimated sizes via
+     * {@link KlighdDiagramLayoutConnector#getSizeEstimate(LayoutMapping, KGraphElement)
+     * getSizeEstimate(LayoutMapping, KGraphElement)}.
+     */
+    private static final class SizeEstimationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final KNode parent;
+
+        private final Map<KGraphElement, Bounds> estimates;
+
+        /**
+         * Constructor.
+         * 
+         * @param parent
+         *            the parent whose children's and descendants' sizes are to be estimated
+         * @param estimates
+         *            the map to put the estimated sizes into, must allow concurrent modifications
+         */
+        private SizeEstimationTask(final KNode parent, final Map<KGraphElement, Bounds> estimates) {
+            this.parent = parent;
+            this.estimates = estimates;
+        }
+
+        @Override
+        protected void compute() {
+            final List<SizeEstimationTask> subtasks = Lists.newArrayList();
+
+            // visit the same elements that 'processNodes' and 'createNode' put into the graph
+            for (final KNode node : Iterables.filter(parent.getChildren(), NODE_FILTER)) {
+                final boolean isPopulated = isPopulated(node);
+                final KRendering displayedRendering = getDisplayedRendering(node, isPopulated);
+                final boolean isCompoundNode = isCompoundNode(node, isPopulated);
+
+                if (displayedRendering != null) {
+                    estimates.put(node, estimateNodeSize(displayedRendering,
+                            getMinimalNodeSize(node, isCompoundNode)));
+                }
+
+                for (final KPort port
+                        : Iterables.filter(node.getPorts(), RenderingContextData.IS_ACTIVE)) {
+                    estimateLabels(port.getLabels());
+                }
+                estimateLabels(Iterables.filter(node.getLabels(), RenderingContextData.IS_ACTIVE));
+
+                for (final KEdge edge : Iterables.filter(node.getOutgoingEdges(),
+                        RenderingContextData.IS_ACTIVE)) {
+                    estimateLabels(
+                            Iterables.filter(edge.getLabels(), RenderingContextData.IS_ACTIVE));
+                }
+
+                if (isCompoundNode) {
+                    subtasks.add(new SizeEstimationTask(node, estimates));
+                }
+            }
+
+            invokeAll(subtasks);
+        }
+
+        private void estimateLabels(final Iterable<KLabel> labels) {
+            for (final KLabel label : labels) {
+                final KRendering rootRendering = label.getData(KRendering.class);
+                if (rootRendering != null) {
+                    estimates.put(label, estimateLabelSize(rootRendering));
+                }
+            }
+        }
+    }
+
     /**
      * Creates a layout port for the port attached to the given layout node.
      *
@@ -518,6 +763,18 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         // make sure to clear old junction points
         // the new layouter might not calculate any and we don't want
         // any floating junction points in the diagram
+        // remember them anyway in order to detect whether they changed while applying the layout
+        final Object junctionPoints = edge.hasProperty(CoreOptions.JUNCTION_POINTS)
+                ? edge.getProperty(CoreOptions.JUNCTION_POINTS) : null;
+        if (junctionPoints instanceof KVectorChain && !((KVectorChain) junctionPoints).isEmpty()) {
+            Map<KEdge, KVectorChain> previousJunctionPoints =
+                    mapping.getProperty(PREVIOUS_JUNCTION_POINTS);
+            if (previousJunctionPoints == null) {
+                previousJunctionPoints = new HashMap<>();
+                mapping.setProperty(PREVIOUS_JUNCTION_POINTS, previousJunctionPoints);
+            }
+            previousJunctionPoints.put(edge, (KVectorChain) junctionPoints);
+        }
         edge.setProperty(CoreOptions.JUNCTION_POINTS, null);
 
         // delete the old EDGE_ROUTING return value
@@ -583,7 +840,9 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         if (rootRendering != null) {
             if (estimateSize) {
                 // calculate the minimal size need for the rendering ...
-                final Bounds minSize = PlacementUtil.estimateSize(rootRendering, new Bounds(0, 0));
+                final Bounds estimate = getSizeEstimate(mapping, label);
+                final Bounds minSize = estimate != null ? estimate
+                        : estimateLabelSize(rootRendering);
                 
                 final double minWidth = minSize.getWidth() > layoutLabel.getWidth()
                         ? minSize.getWidth()
@@ -814,18 +1073,18 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
             
             if (sourceShape instanceof ElkNode) {
                 final double scale = sourceShape.getProperty(CoreOptions.SCALE_FACTOR);
-                targetShapeLayout.setPos(
+                setPos(targetShapeLayout,
                         (float) (sourceShape.getX() + offset.x),
                         (float) (sourceShape.getY() + offset.y));
-                targetShapeLayout.setSize(
+                setSize(targetShapeLayout,
                         (float) (sourceShape.getWidth() / scale),
                         (float) (sourceShape.getHeight() / scale));
             } else if (sourceShape instanceof ElkPort || sourceShape instanceof ElkLabel) {
                 final double scale = ModelingUtil.eContainerOfType(sourceShape, ElkNode.class).getProperty(CoreOptions.SCALE_FACTOR);
-                targetShapeLayout.setPos(
+                setPos(targetShapeLayout,
                         (float) (sourceShape.getX() / scale),
                         (float) (sourceShape.getY() / scale));
-                targetShapeLayout.setSize(
+                setSize(targetShapeLayout,
                         (float) (sourceShape.getWidth() / scale),
                         (float) (sourceShape.getHeight() / scale));
 
@@ -837,10 +1096,10 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
             }
 
         } else {
-            targetShapeLayout.setPos(
+            setPos(targetShapeLayout,
                     (float) (sourceShape.getX() + offset.x),
                     (float) (sourceShape.getY() + offset.y));
-            targetShapeLayout.setSize(
+            setSize(targetShapeLayout,
                     (float) sourceShape.getWidth(),
                     (float) sourceShape.getHeight());
         }
@@ -865,6 +1124,70 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         }
     }
 
+    /**
+     * Sets the position of the given shape layout unless it differs from the current one by at
+     * most {@link #LAYOUT_EPSILON} in both dimensions.
+     */
+    private static void setPos(final KShapeLayout shapeLayout, final float x, final float y) {
+        if (Math.abs(shapeLayout.getXpos() - x) > LAYOUT_EPSILON
+                || Math.abs(shapeLayout.getYpos() - y) > LAYOUT_EPSILON) {
+            shapeLayout.setPos(x, y);
+        }
+    }
+
+    /**
+     * Sets the size of the given shape layout unless it differs from the current one by at
+     * most {@link #LAYOUT_EPSILON} in both dimensions.
+     */
+    private static void setSize(final KShapeLayout shapeLayout, final float width,
+            final float height) {
+        if (Math.abs(shapeLayout.getWidth() - width) > LAYOUT_EPSILON
+                || Math.abs(shapeLayout.getHeight() - height) > LAYOUT_EPSILON) {
+            shapeLayout.setSize(width, height);
+        }
+    }
+
+    /**
+     * Sets the position of the given point unless it differs from the current one by at most
+     * {@link #LAYOUT_EPSILON} in both dimensions. The point does not notify any listeners.
+     * 
+     * @return <code>true</code> if the position has been changed
+     */
+    private static boolean setPos(final KPoint point, final double x, final double y) {
+        if (Math.abs(point.getX() - x) > LAYOUT_EPSILON
+                || Math.abs(point.getY() - y) > LAYOUT_EPSILON) {
+            final boolean deliver = point.eDeliver();
+            point.eSetDeliver(false);
+            point.setPos((float) x, (float) y);
+            point.eSetDeliver(deliver);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the given junction points differ by more than {@link #LAYOUT_EPSILON}.
+     */
+    private static boolean junctionPointsChanged(final KVectorChain oldPoints,
+            final KVectorChain newPoints) {
+        final int oldSize = oldPoints == null ? 0 : oldPoints.size();
+        final int newSize = newPoints == null ? 0 : newPoints.size();
+        if (oldSize != newSize) {
+            return true;
+        } else if (oldSize == 0) {
+            return false;
+        }
+        final Iterator<KVector> newIter = newPoints.iterator();
+        for (final KVector oldPoint : oldPoints) {
+            final KVector newPoint = newIter.next();
+            if (Math.abs(oldPoint.x - newPoint.x) > LAYOUT_EPSILON
+                    || Math.abs(oldPoint.y - newPoint.y) > LAYOUT_EPSILON) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Transfers information from one edge layout to the other.
      *
@@ -965,6 +1288,7 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         // to avoid unnecessary diagram refresh cycles
         final boolean deliver = viewModelEdge.eDeliver();
         viewModelEdge.eSetDeliver(false);
+        boolean changed = false;
         
         // adjust edge endpoints s.t. they touch the border of the node's/port's shape
         if (adjustments) {
@@ -981,23 +1305,27 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
         // information produced by the layout algorithm
         viewModelEdge.setProperty(CoreOptions.EDGE_TYPE,
                 layoutEdge.getProperty(CoreOptions.EDGE_TYPE));
-        viewModelEdge.setProperty(CoreOptions.JUNCTION_POINTS,
-                layoutEdge.getProperty(CoreOptions.JUNCTION_POINTS));
+        final KVectorChain junctionPoints = layoutEdge.getProperty(CoreOptions.JUNCTION_POINTS);
+        final Map<KEdge, KVectorChain> previousJunctionPoints =
+                mapping.getProperty(PREVIOUS_JUNCTION_POINTS);
+        changed |= junctionPointsChanged(previousJunctionPoints == null ? null
+                : previousJunctionPoints.get(viewModelEdge), junctionPoints);
+        viewModelEdge.setProperty(CoreOptions.JUNCTION_POINTS, junctionPoints);
         
         final ElkEdgeSection layoutEdgeSection = layoutEdge.getSections().get(0);
         
         // - - - - - SOURCE POINT - - - - - 
         if (viewModelEdge.getSourcePoint() == null) {
             viewModelEdge.setSourcePoint(KGraphFactory.eINSTANCE.createKPoint());
+            changed = true;
         }
-        final boolean sourcePointDeliver = viewModelEdge.getSourcePoint().eDeliver();
-        viewModelEdge.getSourcePoint().eSetDeliver(false);
-        viewModelEdge.getSourcePoint().setPos((float) layoutEdgeSection.getStartX(),
-                (float) layoutEdgeSection.getStartY());
-        viewModelEdge.getSourcePoint().eSetDeliver(sourcePointDeliver);
+        changed |= setPos(viewModelEdge.getSourcePoint(),
+                layoutEdgeSection.getStartX(), layoutEdgeSection.getStartY());
         
         // - - - - - BEND POINTS - - - - - 
         // transfer the bend points, reusing any existing KPoint instances
+        //  the points don't notify their listeners individually, the single notification
+        //  fired below covers all of them
         final ListIterator<ElkBendPoint> originBendIter =
                 layoutEdgeSection.getBendPoints().listIterator();
         final ListIterator<KPoint> destBendIter = viewModelEdge.getBendPoints().listIterator();
@@ -1009,32 +1337,35 @@ public class KlighdDiagramLayoutConnector implements IDiagramLayoutConnector {
             } else {
                 destPoint = KGraphFactory.eINSTANCE.createKPoint();
                 destBendIter.add(destPoint);
+                changed = true;
             }
-            destPoint.setPos((float) originPoint.getX(), (float) originPoint.getY());
+            changed |= setPos(destPoint, originPoint.getX(), originPoint.getY());
         }
         
         // remove any superfluous points
         while (destBendIter.hasNext()) {
             destBendIter.next();
             destBendIter.remove();
+            changed = true;
         }
         
         // - - - - - TARGET POINT - - - - - 
         if (viewModelEdge.getTargetPoint() == null) {
             viewModelEdge.setTargetPoint(KGraphFactory.eINSTANCE.createKPoint());
+            changed = true;
         }
-        final boolean targetPointDeliver = viewModelEdge.getTargetPoint().eDeliver();
-        viewModelEdge.getTargetPoint().eSetDeliver(false);
-        viewModelEdge.getTargetPoint().setPos((float) layoutEdgeSection.getEndX(),
-                (float) layoutEdgeSection.getEndY());
-        viewModelEdge.getTargetPoint().eSetDeliver(targetPointDeliver);
+        changed |= setPos(viewModelEdge.getTargetPoint(),
+                layoutEdgeSection.getEndX(), layoutEdgeSection.getEndY());
 
         // reactivate notifications & fire a notification
         //  bringing the observing diagram controller to update the displayed diagram
+        // like in case of shape layouts the notification's value indicates whether actually
+        //  some change occurred, which allows the observers to skip unchanged edges
         viewModelEdge.eSetDeliver(deliver);
         ENotificationImpl notification = new ENotificationImpl(
                 (InternalEObject) viewModelEdge, Notification.SET,
-                KGraphPackage.KEDGE__BEND_POINTS, null, null);
+                KGraphPackage.KEDGE__BEND_POINTS, null,
+                changed ? LAYOUT_DATA_CHANGED_VALUE : LAYOUT_DATA_UNCHANGED_VALUE);
         viewModelEdge.eNotify(notification);
     }
     
@@ -13,7 +13,6 @@
 package de.cau.cs.kieler.klighd.internal.macrolayout;
 
 import org.eclipse.elk.core.IGraphLayoutEngine;
-import org.eclipse.elk.core.RecursiveGraphLayoutEngine;
 import org.eclipse.elk.core.service.DiagramLayoutEngine;
 import org.eclipse.elk.core.service.IDiagramLayoutConnector;
 import org.eclipse.elk.core.service.ILayoutConfigurationStore;
@@ -49,6 +48,26 @@ public final class KlighdLayoutSetup implements ILayoutSetup {
         return createInjector(null).getInstance(DiagramLayoutEngine.class);
     }
 
+    /**
+     * Returns a {@link DiagramLayoutEngine} instance shared by all callers, like
+     * {@link #getDiagramLayoutEngine()} but without creating a new injector on each call. The
+     * engine and the components bound in {@link KlighdLayoutModule} do not keep any state between
+     * layout runs, so the instance can be used by several threads concurrently.
+     * 
+     * @return the shared {@link DiagramLayoutEngine} instance
+     */
+    public static DiagramLayoutEngine getSharedDiagramLayoutEngine() {
+        return SharedEngineHolder.ENGINE;
+    }
+
+    /**
+     * Holder of the shared {@link DiagramLayoutEngine}, created on first access.
+     */
+    private static final class SharedEngineHolder {
+        private static final DiagramLayoutEngine ENGINE =
+                new KlighdLayoutSetup().getDiagramLayoutEngine();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -87,7 +106,7 @@ public final class KlighdLayoutSetup implements ILayoutSetup {
         public void configure(final Binder binder) {
             // TODO extend "org.eclipse.elk.core.service.internal.DefaultModule()"
             //  and replace the first line by "super.configure(binder);"
-            binder.bind(IGraphLayoutEngine.class).to(RecursiveGraphLayoutEngine.class);
+            binder.bind(IGraphLayoutEngine.class).to(CachingGraphLayoutEngine.class);
             binder.bind(IDiagramLayoutConnector.class).to(KlighdDiagramLayoutConnector.class);
             binder.bind(ILayoutConfigurationStore.Provider.class)
                     .to(KlighdLayoutConfigurationStore.Provider.class);
@@ -0,0 +1,59 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.internal.macrolayout;
+
+import org.eclipse.elk.core.LayoutConfigurator;
+import org.eclipse.elk.core.data.LayoutMetaDataService;
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.options.HierarchyHandling;
+import org.eclipse.elk.core.util.FixedLayouterOptions;
+import org.eclipse.elk.graph.ElkGraphElement;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.elk.graph.properties.Property;
+
+/**
+ * {@link LayoutConfigurator} for layout runs restricted to the subtree of a certain node, see
+ * {@link de.cau.cs.kieler.klighd.LightDiagramLayoutConfig#layoutScope(
+ * de.cau.cs.kieler.klighd.kgraph.KNode) LightDiagramLayoutConfig#layoutScope(KNode)}. The
+ * {@link KlighdDiagramLayoutConnector} marks the layout nodes of the scope's ancestors with
+ * {@link #FIXED}. This configurator lets these nodes keep the positions of their children by means
+ * of the fixed layout algorithm, which adjusts their sizes to the possibly changed size of the
+ * scope, regardless of the layout options configured in the view model.
+ *
+ * @author nre
+ */
+public class ScopedLayoutConfigurator extends LayoutConfigurator {
+
+    /**
+     * Marks the layout nodes whose children keep their positions during a scoped layout run.
+     */
+    public static final IProperty<Boolean> FIXED = new Property<Boolean>(
+            "klighd.layout.scopedLayoutFixed", false);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void visit(final ElkGraphElement element) {
+        super.visit(element);
+
+        if (element instanceof ElkNode && element.getProperty(FIXED)) {
+            element.setProperty(CoreOptions.ALGORITHM, FixedLayouterOptions.ALGORITHM_ID);
+            element.setProperty(CoreOptions.RESOLVED_ALGORITHM, LayoutMetaDataService
+                    .getInstance().getAlgorithmData(FixedLayouterOptions.ALGORITHM_ID));
+            element.setProperty(CoreOptions.HIERARCHY_HANDLING,
+                    HierarchyHandling.SEPARATE_CHILDREN);
+        }
+    }
+}
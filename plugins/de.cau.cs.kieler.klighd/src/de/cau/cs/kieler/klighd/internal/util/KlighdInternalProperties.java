@@ -23,6 +23,7 @@ import de.cau.cs.kieler.klighd.IViewer;
 import de.cau.cs.kieler.klighd.ZoomStyle;
 import de.cau.cs.kieler.klighd.internal.ILayoutRecorder;
 import de.cau.cs.kieler.klighd.kgraph.KGraphElement;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.kgraph.PersistentEntry;
 
 /**
@@ -109,6 +110,12 @@ public final class KlighdInternalProperties {
      */
     public static final IProperty<KVector> PREVIOUS_POSITION = new Property<KVector>(
             "klighd.zoom.previousPosition");
+
+    /**
+     * The {@link KNode} whose subtree the upcoming diagram layout is restricted to, if any.
+     */
+    public static final IProperty<KNode> NEXT_LAYOUT_SCOPE = new Property<KNode>(
+            "klighd.layout.nextLayoutScope");
     
     /**
      * Property to be attached to the {@link de.cau.cs.kieler.kiml.klayoutdata.KShapeLayout
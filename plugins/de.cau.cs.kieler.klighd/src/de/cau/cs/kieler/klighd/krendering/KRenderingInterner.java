@@ -0,0 +1,377 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.krendering;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import de.cau.cs.kieler.klighd.kgraph.EMapPropertyHolder;
+import de.cau.cs.kieler.klighd.kgraph.KEdge;
+import de.cau.cs.kieler.klighd.kgraph.KGraphData;
+import de.cau.cs.kieler.klighd.kgraph.KGraphElement;
+import de.cau.cs.kieler.klighd.kgraph.KGraphPackage;
+import de.cau.cs.kieler.klighd.kgraph.KLabel;
+import de.cau.cs.kieler.klighd.kgraph.KLabeledGraphElement;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.KPort;
+
+/**
+ * Replaces structurally equal {@link KRendering} subtrees of a view model by
+ * {@link KRenderingRef KRenderingRefs} to a single instance kept in the {@link KRenderingLibrary}
+ * of the view model's root node. This reduces the number of rendering objects in view models
+ * whose diagram syntheses build the same figures for lots of elements.<br>
+ * <br>
+ * The renderings attached to the graph elements are considered first. Renderings that are not
+ * equal to others are descended into, and their children are considered the same way. Two
+ * renderings are considered equal if their attributes, properties, styles, actions, and children
+ * are equal, regardless of their own placement data. These placement data are moved to the
+ * respective references, which take precedence over the ones of the referenced renderings, see
+ * {@link KRenderingUtil#getPlacementData(KRendering)}. The properties of the replaced renderings
+ * are copied to the references, too, so that properties like
+ * {@link de.cau.cs.kieler.klighd.util.KlighdProperties#EXPANDED_RENDERING} are found on the
+ * elements' data. Renderings with an id, {@link KChildArea KChildAreas}, and
+ * {@link KRenderingRef KRenderingRefs} are not replaced.<br>
+ * <br>
+ * Per-instance data that are computed while displaying the diagram, like the bounds of the
+ * rendering figures, are kept by the viewers for each reference. The shared renderings, however,
+ * must not be modified afterwards for a single element, since such modifications would affect all
+ * elements referring to them.
+ *
+ * @author nre
+ */
+public final class KRenderingInterner {
+
+    /**
+     * The prefix of the ids of the renderings added to the {@link KRenderingLibrary}.
+     */
+    public static final String ID_PREFIX = "klighd.interned.";
+
+    /** the minimal number of objects a rendering must consist of in order to be shared. */
+    private static final int MIN_SIZE = 2;
+
+    private static final EStructuralFeature PROPERTIES =
+            KGraphPackage.Literals.EMAP_PROPERTY_HOLDER__PROPERTIES;
+
+    private static final EStructuralFeature PLACEMENT_DATA =
+            KRenderingPackage.Literals.KRENDERING__PLACEMENT_DATA;
+
+    /**
+     * Replaces the structurally equal renderings of the given view model by references to shared
+     * instances.
+     *
+     * @param viewModel
+     *            the view model, the {@link KRenderingLibrary} of its root node is used or created
+     * @return the number of renderings replaced by references
+     */
+    public static int internRenderings(final KNode viewModel) {
+        return new KRenderingInterner().intern(viewModel);
+    }
+
+    /** the signatures computed so far. */
+    private final Map<KRendering, Signature> signatures = new HashMap<>();
+
+    private final StructuralEquality equality = new StructuralEquality();
+
+    private KRenderingLibrary library;
+
+    private Set<String> libraryIds;
+
+    private int nextId = 0;
+
+    /**
+     * Hidden constructor, use {@link #internRenderings(KNode)}.
+     */
+    private KRenderingInterner() {
+    }
+
+    private int intern(final KNode viewModel) {
+        KNode root = viewModel;
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+
+        List<KRendering> candidates = new ArrayList<>();
+        collectRenderings(viewModel, candidates);
+
+        int replaced = 0;
+        while (!candidates.isEmpty()) {
+            // group the candidates by their signatures first, and by structural equality second
+            final Map<Integer, List<List<KRendering>>> buckets = new LinkedHashMap<>();
+            for (final KRendering rendering : candidates) {
+                final Signature signature = getSignature(rendering);
+                if (signature.size < MIN_SIZE) {
+                    continue;
+                }
+
+                final List<List<KRendering>> classes =
+                        buckets.computeIfAbsent(signature.hash, hash -> new ArrayList<>(1));
+                List<KRendering> equalRenderings = null;
+                for (final List<KRendering> candidateClass : classes) {
+                    if (equality.equalRenderings(candidateClass.get(0), rendering)) {
+                        equalRenderings = candidateClass;
+                        break;
+                    }
+                }
+                if (equalRenderings == null) {
+                    equalRenderings = new ArrayList<>(2);
+                    classes.add(equalRenderings);
+                }
+                equalRenderings.add(rendering);
+            }
+
+            // share the renderings occurring more than once, and descend into the other ones
+            final List<KRendering> nextCandidates = new ArrayList<>();
+            for (final List<List<KRendering>> classes : buckets.values()) {
+                for (final List<KRendering> equalRenderings : classes) {
+                    if (equalRenderings.size() > 1) {
+                        share(root, equalRenderings);
+                        replaced += equalRenderings.size();
+
+                    } else if (equalRenderings.get(0) instanceof KContainerRendering) {
+                        for (final KRendering child
+                                : ((KContainerRendering) equalRenderings.get(0)).getChildren()) {
+                            if (isCandidate(child)) {
+                                nextCandidates.add(child);
+                            }
+                        }
+                    }
+                }
+            }
+            candidates = nextCandidates;
+        }
+
+        return replaced;
+    }
+
+    /**
+     * Collects the candidate renderings attached to the given node and all of its descendants.
+     */
+    private static void collectRenderings(final KNode node, final List<KRendering> renderings) {
+        collectRenderings((KLabeledGraphElement) node, renderings);
+        for (final KPort port : node.getPorts()) {
+            collectRenderings(port, renderings);
+        }
+        for (final KEdge edge : node.getOutgoingEdges()) {
+            collectRenderings(edge, renderings);
+        }
+        for (final KNode child : node.getChildren()) {
+            collectRenderings(child, renderings);
+        }
+    }
+
+    private static void collectRenderings(final KLabeledGraphElement element,
+            final List<KRendering> renderings) {
+        collectData(element, renderings);
+        for (final KLabel label : element.getLabels()) {
+            collectData(label, renderings);
+        }
+    }
+
+    private static void collectData(final KGraphElement element,
+            final List<KRendering> renderings) {
+        for (final KGraphData data : element.getData()) {
+            if (data instanceof KRendering && isCandidate((KRendering) data)) {
+                renderings.add((KRendering) data);
+            }
+        }
+    }
+
+    private static boolean isCandidate(final KRendering rendering) {
+        return rendering.getId() == null && !(rendering instanceof KRenderingRef)
+                && !(rendering instanceof KChildArea);
+    }
+
+    /**
+     * Moves the first of the given equal renderings into the library and replaces all of them by
+     * references to it.
+     */
+    private void share(final KNode root, final List<KRendering> equalRenderings) {
+        final KRendering shared = equalRenderings.get(0);
+        for (final KRendering rendering : equalRenderings) {
+            replaceByReference(rendering, shared);
+        }
+
+        if (library == null) {
+            library = root.getData(KRenderingLibrary.class);
+            if (library == null) {
+                library = KRenderingFactory.eINSTANCE.createKRenderingLibrary();
+                root.getData().add(library);
+            }
+            libraryIds = new HashSet<>();
+            for (final KStyleHolder holder : library.getRenderings()) {
+                libraryIds.add(holder.getId());
+            }
+        }
+
+        String id;
+        do {
+            id = ID_PREFIX + nextId++;
+        } while (!libraryIds.add(id));
+
+        shared.setId(id);
+        library.getRenderings().add(shared);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void replaceByReference(final KRendering rendering, final KRendering shared) {
+        final KRenderingRef ref = KRenderingFactory.eINSTANCE.createKRenderingRef();
+        ref.setPlacementData(rendering.getPlacementData());
+        ref.copyProperties(rendering);
+        ref.setRendering(shared);
+
+        final EObject container = rendering.eContainer();
+        final EStructuralFeature feature = rendering.eContainingFeature();
+        if (feature.isMany()) {
+            final List<Object> list = (List<Object>) container.eGet(feature);
+            list.set(list.indexOf(rendering), ref);
+        } else {
+            container.eSet(feature, ref);
+        }
+    }
+
+    /**
+     * Returns the signature of the given rendering, disregarding its own placement data.
+     */
+    private Signature getSignature(final KRendering rendering) {
+        Signature signature = signatures.get(rendering);
+        if (signature == null) {
+            signature = new Signature();
+            signature.hash = hash(rendering, true, signature);
+            signatures.put(rendering, signature);
+        }
+        return signature;
+    }
+
+    /**
+     * Computes the hash code of the given object's structure, and counts the number of objects it
+     * consists of. Non-containment references are not regarded, they are only compared by the
+     * {@link StructuralEquality}.
+     */
+    private int hash(final EObject object, final boolean root, final Signature signature) {
+        signature.size++;
+
+        int hash = object.eClass().hashCode();
+        for (final EStructuralFeature feature : object.eClass().getEAllStructuralFeatures()) {
+            if (feature.isDerived() || root && feature == PLACEMENT_DATA) {
+                continue;
+
+            } else if (feature == PROPERTIES) {
+                // don't access the properties map, the holder might keep them in compact form
+                int propertiesHash = 0;
+                for (final Map.Entry<IProperty<?>, Object> entry
+                        : ((EMapPropertyHolder) object).getAllProperties().entrySet()) {
+                    propertiesHash += entry.getKey().hashCode() ^ Objects.hashCode(entry.getValue());
+                }
+                hash = 31 * hash + propertiesHash;
+
+            } else if (feature instanceof EAttribute) {
+                hash = 31 * hash + Objects.hashCode(object.eGet(feature));
+
+            } else if (((EReference) feature).isContainment()) {
+                if (feature.isMany()) {
+                    for (final Object child : (List<?>) object.eGet(feature)) {
+                        hash = 31 * hash + hashChild((EObject) child, signature);
+                    }
+                } else {
+                    final Object child = object.eGet(feature);
+                    hash = 31 * hash + (child == null ? 0 : hashChild((EObject) child, signature));
+                }
+            }
+        }
+        return hash;
+    }
+
+    private int hashChild(final EObject child, final Signature signature) {
+        if (child instanceof KRendering) {
+            // reuse the signatures of child renderings, as those are candidates themselves
+            final KRendering rendering = (KRendering) child;
+            final Signature childSignature = getSignature(rendering);
+            final KPlacementData placementData = rendering.getPlacementData();
+            signature.size += childSignature.size;
+
+            return 31 * childSignature.hash + (placementData == null ? 0
+                    : hash(placementData, false, signature));
+        } else {
+            return hash(child, false, signature);
+        }
+    }
+
+    /**
+     * The hash code and number of objects of a rendering.
+     */
+    private static final class Signature {
+        private int hash;
+        private int size;
+    }
+
+    /**
+     * Compares renderings structurally, disregarding their own placement data and the containers
+     * of all compared objects. Properties are compared without accessing the properties maps.
+     */
+    private static final class StructuralEquality extends EcoreUtil.EqualityHelper {
+
+        private static final long serialVersionUID = 3817390157626125574L;
+
+        private EObject root1;
+
+        private EObject root2;
+
+        private boolean equalRenderings(final KRendering rendering1, final KRendering rendering2) {
+            clear();
+            root1 = rendering1;
+            root2 = rendering2;
+            return equals(rendering1, rendering2);
+        }
+
+        @Override
+        protected boolean haveEqualFeature(final EObject eObject1, final EObject eObject2,
+                final EStructuralFeature feature) {
+            if (feature == PROPERTIES) {
+                final Map<IProperty<?>, Object> properties1 =
+                        ((EMapPropertyHolder) eObject1).getAllProperties();
+                final Map<IProperty<?>, Object> properties2 =
+                        ((EMapPropertyHolder) eObject2).getAllProperties();
+                if (properties1.size() != properties2.size()) {
+                    return false;
+                }
+                for (final Map.Entry<IProperty<?>, Object> entry : properties1.entrySet()) {
+                    if (!properties2.containsKey(entry.getKey())
+                            || !Objects.equals(entry.getValue(), properties2.get(entry.getKey()))) {
+                        return false;
+                    }
+                }
+                return true;
+
+            } else if (feature == PLACEMENT_DATA && eObject1 == root1 && eObject2 == root2) {
+                return true;
+
+            } else if (feature instanceof EReference && ((EReference) feature).isContainer()) {
+                return true;
+            }
+            return super.haveEqualFeature(eObject1, eObject2, feature);
+        }
+    }
+}
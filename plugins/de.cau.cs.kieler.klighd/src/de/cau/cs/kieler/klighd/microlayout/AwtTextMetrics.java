@@ -0,0 +1,91 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.microlayout;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.swt.graphics.FontData;
+
+import com.google.common.base.Strings;
+
+import de.cau.cs.kieler.klighd.krendering.KTextUtil;
+
+/**
+ * {@link ITextMetrics} measuring texts with AWT's {@link FontMetrics}, used if no SWT
+ * {@link org.eclipse.swt.widgets.Display Display} is available. Each thread measures on its own
+ * {@link Graphics2D} instance, and the AWT {@link Font Fonts} are shared between all threads.
+ *
+ * @author nre
+ */
+public class AwtTextMetrics implements ITextMetrics {
+
+    /**
+     * The graphics to measure the texts with, one for each thread.
+     */
+    private final ThreadLocal<Graphics2D> graphics = ThreadLocal.withInitial(
+            () -> new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics());
+
+    /**
+     * The AWT fonts for the requested font configurations.
+     */
+    private final Map<FontData, Font> fonts = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bounds estimateTextSize(final FontData fontData, final String text) {
+        final Graphics2D fmg = graphics.get();
+        fmg.setFont(getFont(fontData));
+        final FontMetrics fm = fmg.getFontMetrics();
+
+        final Bounds textBounds;
+        if (Strings.isNullOrEmpty(text)) {
+            // if no text string is given, take the bounds of a space character to get a proper
+            // value for the height
+            textBounds = new Bounds(fm.getStringBounds(" ", fmg));
+            textBounds.width = 0f; // omit the width in this case
+        } else {
+            textBounds = new Bounds(fm.getStringBounds(text, fmg));
+        }
+
+        return textBounds;
+    }
+
+    /**
+     * Returns the {@link FontRenderContext} the texts are measured in.
+     *
+     * @return the {@link FontRenderContext} of the current thread's graphics
+     */
+    protected FontRenderContext getFontRenderContext() {
+        return graphics.get().getFontRenderContext();
+    }
+
+    /**
+     * Returns the AWT font for the given font configuration.
+     *
+     * @param fontData
+     *            an SWT {@link FontData} record describing font name, size, and style
+     * @return the AWT font
+     */
+    protected Font getFont(final FontData fontData) {
+        return fonts.computeIfAbsent(fontData, data -> new Font(data.getName(),
+                KTextUtil.swtFontStyle2Awt(data.getStyle()), data.getHeight()));
+    }
+}
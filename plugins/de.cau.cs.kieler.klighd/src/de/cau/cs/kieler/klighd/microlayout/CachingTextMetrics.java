@@ -0,0 +1,177 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.microlayout;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.swt.graphics.FontData;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * {@link ITextMetrics} remembering the sizes measured by another {@link ITextMetrics} for each
+ * combination of font and text. The cache holds at most a configured number of sizes; once that
+ * number is exceeded, the least recently used sizes are evicted. The numbers of cache hits and
+ * misses are counted and can be queried via {@link #getHits()} and {@link #getMisses()}.
+ *
+ * @author nre
+ */
+public class CachingTextMetrics implements ITextMetrics {
+
+    /**
+     * The default maximum number of cached text sizes.
+     */
+    public static final int DEFAULT_MAX_SIZE = 20000;
+
+    private final ITextMetrics delegate;
+
+    private final Cache<Key, Bounds> cache;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache for the given {@link ITextMetrics} holding at most {@link #DEFAULT_MAX_SIZE}
+     * text sizes.
+     *
+     * @param delegate
+     *            the {@link ITextMetrics} actually measuring the texts
+     */
+    public CachingTextMetrics(final ITextMetrics delegate) {
+        this(delegate, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache for the given {@link ITextMetrics}.
+     *
+     * @param delegate
+     *            the {@link ITextMetrics} actually measuring the texts
+     * @param maxSize
+     *            the maximum number of cached text sizes
+     */
+    public CachingTextMetrics(final ITextMetrics delegate, final int maxSize) {
+        this.delegate = delegate;
+        this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Returns the {@link ITextMetrics} actually measuring the texts.
+     *
+     * @return the delegate
+     */
+    public ITextMetrics getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bounds estimateTextSize(final FontData fontData, final String text) {
+        final Key key = new Key(fontData, text);
+        Bounds size = cache.getIfPresent(key);
+        if (size != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            size = delegate.estimateTextSize(fontData, text);
+            // remember a copy, as the caller may modify the returned bounds
+            cache.put(key, new Bounds(size));
+            return size;
+        }
+        return new Bounds(size);
+    }
+
+    /**
+     * Returns the number of text sizes taken from the cache since the last
+     * {@link #resetStatistics()}.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of text sizes that had to be measured since the last
+     * {@link #resetStatistics()}.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of currently cached text sizes.
+     *
+     * @return the size of the cache
+     */
+    public int getSize() {
+        return (int) cache.size();
+    }
+
+    /**
+     * Resets the numbers of cache hits and misses.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Removes all cached text sizes.
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * The key of a cached text size.
+     */
+    private static final class Key {
+
+        private final FontData fontData;
+
+        private final String text;
+
+        private final int hash;
+
+        private Key(final FontData fontData, final String text) {
+            this.fontData = fontData;
+            this.text = text;
+            this.hash = 31 * Objects.hashCode(fontData) + Objects.hashCode(text);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return hash == other.hash && Objects.equals(text, other.text)
+                    && Objects.equals(fontData, other.fontData);
+        }
+    }
+}
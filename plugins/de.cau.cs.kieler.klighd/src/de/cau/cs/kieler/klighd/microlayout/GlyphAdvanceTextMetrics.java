@@ -0,0 +1,115 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.microlayout;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.Rectangle2D;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.swt.graphics.FontData;
+
+import com.google.common.base.Strings;
+
+/**
+ * {@link AwtTextMetrics} summing up precomputed glyph advances instead of measuring each text
+ * string with AWT's {@link java.awt.FontMetrics FontMetrics}. For each font, the advances of the
+ * characters up to {@link #LAST_TABLE_CHAR} (Latin-1 and Latin Extended-A) are computed once.
+ * Texts containing other characters, e.g. of complex scripts, are measured the regular way.<br>
+ * <br>
+ * AWT lays out texts in fonts without layout attributes by summing up the character advances, too,
+ * without applying kerning or ligatures. Hence, the results match the ones of
+ * {@link AwtTextMetrics}.<br>
+ * <br>
+ * This service is not used by default, it can be enabled via
+ * {@link PlacementUtil#setTextMetrics(ITextMetrics)}, e.g. in headless applications measuring
+ * a lot of labels.
+ *
+ * @author nre
+ */
+public class GlyphAdvanceTextMetrics extends AwtTextMetrics {
+
+    /**
+     * The last character whose advance is kept in the advance tables.
+     */
+    public static final char LAST_TABLE_CHAR = '\u017F';
+
+    /**
+     * The advance tables, mapped by the font configurations they are computed for.
+     */
+    private final Map<FontData, AdvanceTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bounds estimateTextSize(final FontData fontData, final String text) {
+        final AdvanceTable table = tables.computeIfAbsent(fontData, this::createTable);
+
+        float width = 0f;
+        if (!Strings.isNullOrEmpty(text)) {
+            final int length = text.length();
+            for (int i = 0; i < length; i++) {
+                final char c = text.charAt(i);
+                if (c > LAST_TABLE_CHAR) {
+                    return super.estimateTextSize(fontData, text);
+                }
+                width += table.advances[c];
+            }
+        }
+        // if no text string is given, the width is 0 and the height is the one of a space
+        return new Bounds(0f, table.y, width, table.height);
+    }
+
+    /**
+     * Computes the advance table for the given font configuration.
+     *
+     * @param fontData
+     *            an SWT {@link FontData} record describing font name, size, and style
+     * @return the advance table
+     */
+    private AdvanceTable createTable(final FontData fontData) {
+        final Font font = getFont(fontData);
+        final FontRenderContext frc = getFontRenderContext();
+
+        final float[] advances = new float[LAST_TABLE_CHAR + 1];
+        final char[] chars = new char[1];
+        for (char c = 0; c <= LAST_TABLE_CHAR; c++) {
+            chars[0] = c;
+            advances[c] = (float) font.getStringBounds(chars, 0, 1, frc).getWidth();
+        }
+
+        final Rectangle2D space = font.getStringBounds(" ", frc);
+        return new AdvanceTable(advances, (float) space.getY(), (float) space.getHeight());
+    }
+
+    /**
+     * The advances of the table characters in a certain font together with the vertical metrics
+     * shared by all texts in that font.
+     */
+    private static final class AdvanceTable {
+
+        private final float[] advances;
+
+        private final float y;
+
+        private final float height;
+
+        private AdvanceTable(final float[] advances, final float y, final float height) {
+            this.advances = advances;
+            this.y = y;
+            this.height = height;
+        }
+    }
+}
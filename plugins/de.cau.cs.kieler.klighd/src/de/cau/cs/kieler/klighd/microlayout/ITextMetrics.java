@@ -0,0 +1,41 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.microlayout;
+
+import org.eclipse.swt.graphics.FontData;
+
+/**
+ * A service measuring the size of text strings, used by
+ * {@link PlacementUtil#estimateTextSize(FontData, String)}. A custom service can be configured via
+ * {@link PlacementUtil#setTextMetrics(ITextMetrics)}.<br>
+ * <br>
+ * Implementations must be safe to be called from several threads concurrently.
+ *
+ * @author nre
+ */
+public interface ITextMetrics {
+
+    /**
+     * Returns the minimal bounds required by a drawing of the string <code>text</code> while
+     * respecting the given <code>fontData</code>. If no text is given, the returned bounds have a
+     * width of 0 and the height of a space character.<br>
+     * The returned bounds may be modified by the caller.
+     *
+     * @param fontData
+     *            an SWT {@link FontData} record describing font name, size, and style
+     * @param text
+     *            the text string whose size is to be estimated; maybe <code>null</code>
+     * @return the minimal bounds for the string
+     */
+    Bounds estimateTextSize(FontData fontData, String text);
+}
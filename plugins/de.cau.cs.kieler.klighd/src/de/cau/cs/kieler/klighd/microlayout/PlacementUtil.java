@@ -21,32 +21,24 @@ import static de.cau.cs.kieler.klighd.krendering.KRenderingUtil.toNonNullLeftPos
 import static de.cau.cs.kieler.klighd.krendering.KRenderingUtil.toNonNullRightPosition;
 import static de.cau.cs.kieler.klighd.krendering.KRenderingUtil.toNonNullTopPosition;
 
-import java.awt.FontMetrics;
-import java.awt.Graphics2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.elk.core.math.KVector;
 import org.eclipse.elk.core.options.CoreOptions;
 import org.eclipse.elk.core.util.Pair;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.FontData;
-import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.widgets.Display;
 
 import com.google.common.base.Predicate;
-import com.google.common.base.Strings;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 
 import de.cau.cs.kieler.klighd.Klighd;
 import de.cau.cs.kieler.klighd.KlighdConstants;
@@ -79,7 +71,6 @@ import de.cau.cs.kieler.klighd.krendering.KRenderingRef;
 import de.cau.cs.kieler.klighd.krendering.KRenderingUtil;
 import de.cau.cs.kieler.klighd.krendering.KStyle;
 import de.cau.cs.kieler.klighd.krendering.KText;
-import de.cau.cs.kieler.klighd.krendering.KTextUtil;
 import de.cau.cs.kieler.klighd.krendering.KTopPosition;
 import de.cau.cs.kieler.klighd.krendering.KXPosition;
 import de.cau.cs.kieler.klighd.krendering.KYPosition;
@@ -982,30 +973,59 @@ public final class PlacementUtil {
     }
 
     /**
-     * A font cache preserving requested font configurations in order to avoid re-instantiation of
-     * {@link Font}, which is assumed to be much more expensive than {@link FontData}.
+     * The text metrics used while an SWT {@link Display} is available, caching the measured sizes.
      */
-    private static final Map<FontData, Font> FONT_CACHE = Maps.newHashMap();
+    private static final SwtTextMetrics SWT_METRICS = new SwtTextMetrics();
+    private static final CachingTextMetrics SWT_CACHE = new CachingTextMetrics(SWT_METRICS);
 
     /**
-     * Two instances of {@link GC} that the text size estimation is delegated to.
-     * We use two instances here because label management uses size estimation in another thread
-     * and SWT is not exactly thread-safe.
-     * It is unclear if this solves the issue completely, but it should at least circumvent
-     * the most common case.
+     * The text metrics used if no SWT {@link Display} is available, caching the measured sizes.
      */
-    private static GC gc = null;
-    private static GC asyncGC = null;
-    private static Point displayScale = null;
+    private static final CachingTextMetrics AWT_CACHE =
+            new CachingTextMetrics(new AwtTextMetrics());
 
-    private static BufferedImage bi = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-    private static Graphics2D fmg = bi.createGraphics();
+    /**
+     * A custom text metrics service replacing the built-in ones, if configured.
+     */
+    private static volatile ITextMetrics textMetrics = null;
+
+    /**
+     * Configures a custom {@link ITextMetrics} to be used by
+     * {@link #estimateTextSize(FontData, String)} instead of the built-in SWT and AWT based ones.
+     * 
+     * @param metrics
+     *            the {@link ITextMetrics} to use, or <code>null</code> to re-enable the built-in
+     *            ones
+     */
+    public static void setTextMetrics(final ITextMetrics metrics) {
+        textMetrics = metrics;
+    }
+
+    /**
+     * Returns the {@link ITextMetrics} currently used by
+     * {@link #estimateTextSize(FontData, String)}.
+     * 
+     * @return the custom {@link ITextMetrics} if configured, the caching SWT based one if a
+     *         {@link Display} is or was available, or the caching AWT based one otherwise
+     */
+    public static ITextMetrics getTextMetrics() {
+        final ITextMetrics metrics = textMetrics;
+        if (metrics != null) {
+            return metrics;
+        } else if (SWT_METRICS.isInitialized() || Display.getCurrent() != null) {
+            return SWT_CACHE;
+        } else {
+            return AWT_CACHE;
+        }
+    }
 
     /**
      * Returns the minimal bounds required by a drawing of the string <code>text</code> while
      * respecting the given <code>fontData</code>. While being in an Eclipse context and having a
-     * {@link Display}, the method uses SWT's {@link GC} to perform estimations. Otherwise it falls
-     * back to AWT's {@link FontMetrics}.
+     * {@link Display}, the method uses SWT's {@link org.eclipse.swt.graphics.GC GC} to perform
+     * estimations. Otherwise it falls back to AWT's {@link java.awt.FontMetrics FontMetrics}.
+     * The results are cached, and a custom {@link ITextMetrics} can be configured via
+     * {@link #setTextMetrics(ITextMetrics)}. This method may be called from several threads.
      * 
      * @param fontData
      *            an SWT {@link FontData} record describing font name, size, and style
@@ -1014,87 +1034,19 @@ public final class PlacementUtil {
      * @return the minimal bounds for the string
      */
     public static Bounds estimateTextSize(final FontData fontData, final String text) {
-        final Display display = Display.getCurrent();
-        // if a GC has been instantiated before or a display is available.
-        if (gc != null || display != null) {
-            return estimateTextSizeSWT(fontData, text, display);
-        } else {
-            // if no display is available fallback to awt metrics
-            return estimateTextSizeAWT(fontData, text);
-        }
-    }
-
-    private static Bounds estimateTextSizeSWT(final FontData fontData,
-            final String text, final Display display) {
-
-        // In order to estimate the required size of a given string according to the determined
-        // font, style, and size GCs are instantiated, configured, and queried.
-        if (gc == null) {
-            // Create GC for the main thread
-            gc = new GC(display);
-            gc.setAntialias(SWT.OFF);
-            // Create (identical) GC for asynchronous threads
-            asyncGC = new GC(display);
-            asyncGC.setAntialias(SWT.OFF);
-
-            // determine the current display scale, used below for compensating the text bounds
-            //  see 
-            org.eclipse.swt.graphics.Point dpi = display.getDPI();
-            displayScale = new Point(
-                KlighdConstants.DEFAULT_DISPLAY_DPI / dpi.x,
-                KlighdConstants.DEFAULT_DISPLAY_DPI / dpi.y);
-        }
-
-        // Find the GC suitable for this thread.
-        // The main/UI thread has direct access to the Display, 
-        // so we use that check as the distinguishing feature
-        // between the main thread and the other stuff
-        final GC myGC = Display.getCurrent() != null ? gc : asyncGC;        
-
-        Font font = FONT_CACHE.get(fontData);
-        if (font == null) {
-            font = new Font(display, fontData);
-            FONT_CACHE.put(fontData, font);
-        }
-        myGC.setFont(font);
-
-        final Bounds textBounds;
-        if (Strings.isNullOrEmpty(text)) {
-            // if no text string is given, take the bounds of a space character to get a proper
-            // value for the height
-            textBounds = new Bounds(myGC.textExtent(" "));
-            textBounds.width = 0f; // omit the width in this case
-        } else {
-            textBounds = new Bounds(myGC.textExtent(text));
-        }
-
-        if (!Klighd.isSuppressDisplayScaleCompensationWhileHandlingText()) {
-            textBounds.width  *= displayScale.x;
-            textBounds.height *= displayScale.y;
+        final ITextMetrics metrics = getTextMetrics();
+        final Bounds textBounds = metrics.estimateTextSize(fontData, text);
+
+        // the display scale is compensated outside of the cache, as the suppression of that
+        // compensation may be toggled at any time
+        if (metrics == SWT_CACHE && !Klighd.isSuppressDisplayScaleCompensationWhileHandlingText()) {
+            textBounds.width  *= SWT_METRICS.getDisplayScaleX();
+            textBounds.height *= SWT_METRICS.getDisplayScaleY();
         }
 
         return textBounds;
     }
 
-    private static Bounds estimateTextSizeAWT(final FontData fontData, final String text) {
-        fmg.setFont(new java.awt.Font(fontData.getName(), 
-                KTextUtil.swtFontStyle2Awt(fontData.getStyle()), 
-                fontData.getHeight()));
-        final FontMetrics fm = fmg.getFontMetrics();
-
-        final Bounds textBounds;
-        if (Strings.isNullOrEmpty(text)) {
-            // if no text string is given, take the bounds of a space character to get a proper
-            // value for the height
-            textBounds = new Bounds(fm.getStringBounds(" ", fmg));
-            textBounds.width = 0f; // omit the width in this case
-        } else {
-            textBounds = new Bounds(fm.getStringBounds(text, fmg));
-        }
-        
-        return textBounds;
-    }
-    
     /**
      * Returns the required minimal size of a {@link KRendering} width attached
      * {@link KPointPlacementData}.
@@ -0,0 +1,143 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.microlayout;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.widgets.Display;
+
+import com.google.common.base.Strings;
+
+import de.cau.cs.kieler.klighd.KlighdConstants;
+
+/**
+ * {@link ITextMetrics} measuring texts with SWT's {@link GC}, used if an SWT {@link Display} is
+ * available. The returned bounds are not compensated for the display scale, see
+ * {@link #getDisplayScaleX()} and {@link #getDisplayScaleY()}.
+ *
+ * @author nre
+ */
+public class SwtTextMetrics implements ITextMetrics {
+
+    /**
+     * A font cache preserving requested font configurations in order to avoid re-instantiation of
+     * {@link Font}, which is assumed to be much more expensive than {@link FontData}.
+     */
+    private final Map<FontData, Font> fontCache = new ConcurrentHashMap<>();
+
+    /**
+     * Two instances of {@link GC} that the text size estimation is delegated to.
+     * We use two instances here because label management uses size estimation in another thread
+     * and SWT is not exactly thread-safe. Each GC is only used by one thread at a time.
+     */
+    private volatile GC gc = null;
+    private GC asyncGC = null;
+    private float displayScaleX = 1f;
+    private float displayScaleY = 1f;
+
+    /**
+     * Returns whether the GCs of this service have already been created, so that it can be used
+     * even if the current thread has no {@link Display}.
+     *
+     * @return <code>true</code> if the GCs have been created
+     */
+    public boolean isInitialized() {
+        return gc != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Bounds estimateTextSize(final FontData fontData, final String text) {
+        final Display display = Display.getCurrent();
+        if (gc == null) {
+            initialize(display);
+        }
+
+        // Find the GC suitable for this thread.
+        // The main/UI thread has direct access to the Display,
+        // so we use that check as the distinguishing feature
+        // between the main thread and the other stuff
+        final GC myGC = display != null ? gc : asyncGC;
+
+        final Font font = fontCache.computeIfAbsent(fontData, data -> new Font(display, data));
+
+        synchronized (myGC) {
+            myGC.setFont(font);
+
+            final Bounds textBounds;
+            if (Strings.isNullOrEmpty(text)) {
+                // if no text string is given, take the bounds of a space character to get a
+                // proper value for the height
+                textBounds = new Bounds(myGC.textExtent(" "));
+                textBounds.width = 0f; // omit the width in this case
+            } else {
+                textBounds = new Bounds(myGC.textExtent(text));
+            }
+            return textBounds;
+        }
+    }
+
+    /**
+     * Creates the GCs if that did not happen yet.
+     *
+     * @param display
+     *            the display of the current thread
+     */
+    private synchronized void initialize(final Display display) {
+        if (gc != null) {
+            return;
+        }
+        // In order to estimate the required size of a given string according to the determined
+        // font, style, and size GCs are instantiated, configured, and queried.
+        // Create (identical) GC for asynchronous threads
+        asyncGC = new GC(display);
+        asyncGC.setAntialias(SWT.OFF);
+
+        // determine the current display scale, used for compensating the text bounds
+        final org.eclipse.swt.graphics.Point dpi = display.getDPI();
+        displayScaleX = KlighdConstants.DEFAULT_DISPLAY_DPI / dpi.x;
+        displayScaleY = KlighdConstants.DEFAULT_DISPLAY_DPI / dpi.y;
+
+        // Create GC for the main thread, last, as it marks this service as initialized.
+        final GC mainGC = new GC(display);
+        mainGC.setAntialias(SWT.OFF);
+        gc = mainGC;
+    }
+
+    /**
+     * Returns the factor the widths of the measured texts need to be multiplied with to
+     * compensate the display scale.
+     *
+     * @return the horizontal display scale factor
+     */
+    public float getDisplayScaleX() {
+        return displayScaleX;
+    }
+
+    /**
+     * Returns the factor the heights of the measured texts need to be multiplied with to
+     * compensate the display scale.
+     *
+     * @return the vertical display scale factor
+     */
+    public float getDisplayScaleY() {
+        return displayScaleY;
+    }
+}
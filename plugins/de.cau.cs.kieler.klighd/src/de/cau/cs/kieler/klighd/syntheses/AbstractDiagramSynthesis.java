@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
@@ -214,6 +215,7 @@ public abstract class AbstractDiagramSynthesis<S> implements ISynthesis {
      */
     public final KNode transform(final Object model, final ViewContext viewContext) {
         use(viewContext);
+        SynthesisMemoizer.prepareRun(viewContext);
 
         @SuppressWarnings("unchecked")
         final S input = (S) model;
@@ -282,6 +284,59 @@ public abstract class AbstractDiagramSynthesis<S> implements ISynthesis {
     }
 
 
+    /**
+     * Returns copies of the diagram elements created by the given transformation for the given
+     * source element in a previous run of this diagram synthesis if the source element has not
+     * been modified since, and runs the transformation otherwise. Memoization is opt-in, the
+     * requirements on the transformation are described in {@link SynthesisMemoizer}.<br>
+     * <br>
+     * Note that the copies returned instead of running the transformation are not registered in
+     * the caches of Xtend create extensions like {@code KNodeExtensions#getNode(Object)}. Nodes
+     * that are looked up by their source element later on, e.g. in order to connect edges to them,
+     * must be registered explicitly, otherwise the lookup silently creates a new unconnected node.
+     * An example usage might look like the following (Xtend code).
+     *
+     * <pre>
+     *  for (state : region.states) {
+     *      val node = memoize(class, state, SynthesisMemoizer.getModificationStamp(state), [
+     *          #[ createNode().associateWith(state) =&gt; [ ... ] ]
+     *      ]).head
+     *      node.registerExistingNode(state)
+     *      rootNode.children += node
+     *  }
+     *  for (transition : region.transitions) {
+     *      createEdge() =&gt; [
+     *          source = transition.sourceState.node
+     *          target = transition.targetState.node
+     *      ]
+     *  }
+     * </pre>
+     *
+     * @param <O>
+     *            the type of the diagram elements
+     * @param owner
+     *            the owner of the results, distinguishing the diagram elements of different
+     *            transformations of the same source element, e.g. the class of the synthesis
+     * @param source
+     *            the source element
+     * @param stamp
+     *            the modification stamp of <code>source</code>, e.g. obtained via
+     *            {@link SynthesisMemoizer#getModificationStamp(EObject)}, <code>null</code> means
+     *            the transformation is always run
+     * @param transformation
+     *            the transformation creating the diagram elements of <code>source</code>
+     * @return the diagram elements
+     */
+    public <O extends KGraphElement> List<O> memoize(final Object owner, final Object source,
+            final Object stamp, final Supplier<List<O>> transformation) {
+        if (currentContext == null) {
+            return transformation.get();
+        }
+        return SynthesisMemoizer.getMemoizer(currentContext).memoize(owner, source, stamp,
+                transformation);
+    }
+
+
     // ---------------------------------------------------------------------------------- //
     //  Synthesis option handling
 
@@ -68,6 +68,36 @@ public abstract class AbstractSubSynthesis<I, O extends KGraphElement> {
      */
     public abstract List<O> transform(I element);
 
+    /**
+     * Transforms the given element like {@link #transform(Object)}, but reuses copies of the
+     * diagram elements created for it in the previous run of the diagram synthesis as long as the
+     * element's modification stamp is unchanged, see {@link #getModificationStamp(Object)}.
+     * Sub-syntheses must meet the requirements described in {@link SynthesisMemoizer} in order to
+     * be used this way.
+     * 
+     * @param element The model element to transform.
+     * @return The transformed diagram elements.
+     */
+    public final List<O> transformMemoized(final I element) {
+        return parent.memoize(getClass(), element, getModificationStamp(element), () -> transform(element));
+    }
+
+    /**
+     * The modification stamp of the given element used by {@link #transformMemoized(Object)}.
+     * By default, {@link SynthesisMemoizer#getModificationStamp(EObject)} is used for {@link EObject EObjects}, and
+     * other elements are not memoized. May be overridden by sub-syntheses whose results depend on more than the
+     * element and its contents.
+     * 
+     * @param element The model element to transform.
+     * @return The stamp, or {@code null} if the results for {@code element} must not be reused.
+     */
+    protected Object getModificationStamp(final I element) {
+        if (element instanceof EObject) {
+            return SynthesisMemoizer.getModificationStamp((EObject) element);
+        }
+        return null;
+    }
+
     /** 
      * The {@link SynthesisOption}s this sub-synthesis contributes to the synthesis.
      * @see de.cau.cs.kieler.klighd.syntheses.AbstractDiagramSynthesis#getDisplayedSynthesisOptions()
@@ -14,6 +14,7 @@
 package de.cau.cs.kieler.klighd.syntheses;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.elk.core.LayoutConfigurator;
@@ -26,13 +27,19 @@ import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.inject.Binder;
+import com.google.inject.Binding;
 import com.google.inject.Guice;
+import com.google.inject.Injector;
 import com.google.inject.Key;
+import com.google.inject.MembersInjector;
 import com.google.inject.Module;
 import com.google.inject.Provider;
 import com.google.inject.Scope;
+import com.google.inject.Scopes;
 import com.google.inject.TypeLiteral;
 
 import de.cau.cs.kieler.klighd.DisplayedActionData;
@@ -72,6 +79,23 @@ public class ReinitializingDiagramSynthesisProxy<S> implements ISynthesis {
     private final Class<? extends AbstractDiagramSynthesis<S>> transformationClass;
     private final Module transformationClassBinding;
     private final ViewSynthesisScope synthesisScope;
+
+    /**
+     * The scope of the singletons injected into the synthesis and its helpers, which is reset for
+     * each new synthesis instance, see {@link #getDelegateInjector()}.
+     */
+    private final SynthesisRunScope runScope = new SynthesisRunScope();
+
+    /**
+     * The keys of the singleton classes bound in {@link #runScope}. Guarded by this proxy.
+     */
+    private final List<Key<?>> runScopedKeys = Lists.newArrayList();
+
+    /**
+     * The injector creating new synthesis instances, see {@link #getDelegateInjector()}.
+     * Guarded by this proxy.
+     */
+    private Injector injector = null;
     
     private AbstractDiagramSynthesis<S> transformationDelegate = null;
 
@@ -228,6 +252,55 @@ public class ReinitializingDiagramSynthesisProxy<S> implements ISynthesis {
     }
     
 
+    /**
+     * This {@link Scope} keeps one instance per key for a single synthesis run, i.e. for the
+     * current synthesis instance and its helpers, and forgets them when {@link #reset() reset}
+     * before the next instance is created. It replaces the {@link com.google.inject.Singleton
+     * Singleton} scope of the classes injected into the synthesis, so that the proxy can reuse a
+     * single injector while these singletons are still not shared between different runs.
+     */
+    private static final class SynthesisRunScope implements Scope {
+
+        private final Map<Key<?>, Object> instances = Maps.newHashMap();
+
+        private synchronized void reset() {
+            this.instances.clear();
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public <U> Provider<U> scope(final Key<U> key, final Provider<U> unscoped) {
+            return new Provider<U>() {
+
+                public U get() {
+                    synchronized (SynthesisRunScope.this) {
+                        @SuppressWarnings("unchecked")
+                        U instance = (U) instances.get(key);
+                        if (instance == null) {
+                            instance = unscoped.get();
+                            instances.put(key, instance);
+                        }
+                        return instance;
+                    }
+                }
+
+                @Override
+                public String toString() {
+                    return String.format("%s[%s]", unscoped, SynthesisRunScope.this);
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return "KLighD.SynthesisRun";
+        }
+    }
+
     /**
      * Getter for the delegate attribute.
      * 
@@ -244,8 +317,7 @@ public class ReinitializingDiagramSynthesisProxy<S> implements ISynthesis {
     private AbstractDiagramSynthesis<S> getNewDelegateInstance() {
         final AbstractDiagramSynthesis<S> res;
         try {
-            res = Guice.createInjector(this.transformationClassBinding).getInstance(
-                            this.transformationClass);
+            res = getDelegateInjector().getInstance(this.transformationClass);
         } catch (final Exception e) {
             final String nl = Klighd.LINE_SEPARATOR;
             final String msg =
@@ -258,6 +330,62 @@ public class ReinitializingDiagramSynthesisProxy<S> implements ISynthesis {
         return res; 
     }
 
+    /**
+     * Returns the injector for a new synthesis instance. Creating an injector means analyzing the
+     * classes injected into the synthesis and its helpers, which is comparatively expensive, so one
+     * injector is reused for all instances. In order to not share singletons between different
+     * synthesis instances, like with a new injector for each instance, the singleton classes are
+     * bound in the {@link SynthesisRunScope}, which is reset here.<br>
+     * <br>
+     * The singleton classes are only known once the injector has created their bindings on demand,
+     * which are plain singletons. Hence, if a synthesis run has requested new ones, the injector
+     * is replaced by one binding them in the run scope, too. Usually, that happens only once after
+     * the first run.
+     *
+     * @return the injector
+     */
+    private synchronized Injector getDelegateInjector() {
+        if (this.injector != null) {
+            final List<Key<?>> keys = getJustInTimeSingletonKeys(this.injector);
+            if (!keys.isEmpty()) {
+                this.runScopedKeys.addAll(keys);
+                this.injector = null;
+            }
+        }
+
+        if (this.injector == null) {
+            final List<Key<?>> keys = this.runScopedKeys;
+            this.injector = Guice.createInjector(this.transformationClassBinding, new Module() {
+                public void configure(final Binder binder) {
+                    for (final Key<?> key : keys) {
+                        binder.bind(key).in(runScope);
+                    }
+                }
+            });
+        }
+
+        this.runScope.reset();
+        return this.injector;
+    }
+
+    /**
+     * Returns the keys of the singleton bindings the given injector has created on demand, apart
+     * from those of providers and members injectors, which Guice derives from the other bindings.
+     */
+    private static List<Key<?>> getJustInTimeSingletonKeys(final Injector injector) {
+        final Map<Key<?>, Binding<?>> explicitBindings = injector.getBindings();
+        final List<Key<?>> keys = Lists.newArrayList();
+        for (final Key<?> key : injector.getAllBindings().keySet()) {
+            final Class<?> type = key.getTypeLiteral().getRawType();
+            if (!explicitBindings.containsKey(key) && type != Provider.class
+                    && type != javax.inject.Provider.class && type != MembersInjector.class
+                    && Scopes.isSingleton(injector.getBinding(key))) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
     
     /**
      * {@inheritDoc}
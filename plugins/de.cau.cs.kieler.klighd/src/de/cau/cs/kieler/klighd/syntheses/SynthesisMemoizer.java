@@ -0,0 +1,456 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.syntheses;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.elk.graph.properties.Property;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import de.cau.cs.kieler.klighd.SynthesisOption;
+import de.cau.cs.kieler.klighd.ViewContext;
+import de.cau.cs.kieler.klighd.kgraph.KGraphElement;
+
+/**
+ * Keeps the diagram elements created by diagram syntheses for single source model elements across
+ * several runs of the synthesis of a {@link ViewContext}, see
+ * {@link AbstractDiagramSynthesis#memoize(Object, Object, Object, Supplier)} and
+ * {@link AbstractSubSynthesis#transformMemoized(Object)}.<br>
+ * <br>
+ * The results are stored together with a modification stamp of the source element, and copies of
+ * them are returned instead of running the transformation again as long as the stamp is unchanged.
+ * {@link #getModificationStamp(EObject)} provides stamps that change whenever the source element or
+ * one of its contained elements is modified. All results are discarded if the values of the
+ * synthesis options change, and results of source elements that have not been transformed in the
+ * previous run are discarded as well.<br>
+ * <br>
+ * The transformations must not have any side effects beyond the returned diagram elements, and
+ * their results must not refer to diagram elements outside of them. Results containing such
+ * references, e.g. edges to other nodes or references to renderings in a rendering library, are
+ * not stored. The source associations made via
+ * {@link AbstractDiagramSynthesis#associateWith(EObject, Object) associateWith(...)} are kept with
+ * the copies. Changes of elements referenced by a source element but not contained in it are not
+ * reflected by the modification stamps.<br>
+ * <br>
+ * In particular, the copies are not registered in the caches of Xtend create extensions, as the
+ * transformation is not run. Diagram elements created via create extensions that are looked up by
+ * their source elements later on, e.g. by {@code KNodeExtensions#getNode(Object)} in order to
+ * connect an edge, must be registered again by the caller, e.g. via
+ * {@code KNodeExtensions#registerExistingNode(...)}.
+ *
+ * @author nre
+ */
+public final class SynthesisMemoizer {
+
+    /** The property the memoizer of a {@link ViewContext} is stored in. */
+    private static final IProperty<SynthesisMemoizer> MEMOIZER = new Property<SynthesisMemoizer>(
+            "de.cau.cs.kieler.klighd.syntheses.memoizer");
+
+    /** The source of unique modification stamps. */
+    private static final AtomicLong STAMPS = new AtomicLong();
+
+    /**
+     * Returns the memoizer of the given {@link ViewContext}, a new one is created if necessary.
+     *
+     * @param viewContext
+     *            the {@link ViewContext}
+     * @return the memoizer of <code>viewContext</code>
+     */
+    public static SynthesisMemoizer getMemoizer(final ViewContext viewContext) {
+        SynthesisMemoizer memoizer = viewContext.getProperty(MEMOIZER);
+        if (memoizer == null) {
+            memoizer = new SynthesisMemoizer();
+            // the memoizer is created during the first run, whose results are to be kept in the
+            //  next run as long as the option values are unchanged
+            memoizer.optionValues = getOptionValues(viewContext);
+            viewContext.setProperty(MEMOIZER, memoizer);
+        }
+        return memoizer;
+    }
+
+    /**
+     * Prepares the memoizer of the given {@link ViewContext}, if any, for a new run of the
+     * diagram synthesis.
+     *
+     * @param viewContext
+     *            the {@link ViewContext}
+     */
+    static void prepareRun(final ViewContext viewContext) {
+        final SynthesisMemoizer memoizer = viewContext.getProperty(MEMOIZER);
+        if (memoizer != null) {
+            memoizer.prepareRun(getOptionValues(viewContext));
+        }
+    }
+
+    /**
+     * Discards the memoizer of the given {@link ViewContext}, if any, e.g. when the view context
+     * is disposed. This releases the adapters attached to the source model by
+     * {@link #getModificationStamp(EObject)} for it.
+     *
+     * @param viewContext
+     *            the {@link ViewContext}
+     */
+    public static void discard(final ViewContext viewContext) {
+        final SynthesisMemoizer memoizer = viewContext.getProperty(MEMOIZER);
+        if (memoizer != null) {
+            memoizer.clear();
+            viewContext.setProperty(MEMOIZER, null);
+        }
+    }
+
+    /**
+     * Returns a stamp of the current state of the given element and all of its contained
+     * elements, which changes whenever one of them is modified. This requires to attach an adapter
+     * to the root container of the element and its contents on the first call for that root. The
+     * adapter is shared by all elements of the root, and it is detached again once none of the
+     * memoizers the stamps of its elements have been passed to uses them anymore, see
+     * {@link #clear()}.
+     *
+     * @param element
+     *            the element
+     * @return the stamp, which is only equal to stamps of the same state of <code>element</code>
+     */
+    public static Object getModificationStamp(final EObject element) {
+        final EObject root = EcoreUtil.getRootContainer(element);
+        synchronized (root) {
+            ModificationStampAdapter stampAdapter = null;
+            for (final Adapter adapter : root.eAdapters()) {
+                if (adapter instanceof ModificationStampAdapter) {
+                    stampAdapter = (ModificationStampAdapter) adapter;
+                    break;
+                }
+            }
+            if (stampAdapter == null) {
+                stampAdapter = new ModificationStampAdapter(root);
+                root.eAdapters().add(stampAdapter);
+            }
+            return stampAdapter.getStamp(element);
+        }
+    }
+
+    private static Map<SynthesisOption, Object> getOptionValues(final ViewContext viewContext) {
+        final Map<SynthesisOption, Object> values = new LinkedHashMap<>();
+        for (final SynthesisOption option : viewContext.getDisplayedSynthesisOptions()) {
+            if (!option.isSeparator()) {
+                values.put(option, viewContext.getOptionValue(option));
+            }
+        }
+        return values;
+    }
+
+    /** The results stored per owner and source element. */
+    private final Map<Object, Map<Object, Memo>> memos = new HashMap<>();
+
+    /** The adapters whose stamps have been passed to this memoizer, with the last run they were. */
+    private final Map<ModificationStampAdapter, Integer> stampAdapters = new HashMap<>();
+
+    /** The synthesis option values the results have been created with. */
+    private Map<SynthesisOption, Object> optionValues = Collections.emptyMap();
+
+    private int run = 0;
+
+    private int hits = 0;
+
+    private int misses = 0;
+
+    /**
+     * Hidden constructor, use {@link #getMemoizer(ViewContext)}.
+     */
+    private SynthesisMemoizer() {
+    }
+
+    private void prepareRun(final Map<SynthesisOption, Object> currentOptionValues) {
+        if (!currentOptionValues.equals(optionValues)) {
+            memos.clear();
+            optionValues = currentOptionValues;
+        } else {
+            for (final Map<Object, Memo> ownerMemos : memos.values()) {
+                ownerMemos.values().removeIf(memo -> memo.run < run);
+            }
+        }
+        // release the adapters of source models that have not been transformed in the previous run
+        final Iterator<Map.Entry<ModificationStampAdapter, Integer>> adapters =
+                stampAdapters.entrySet().iterator();
+        while (adapters.hasNext()) {
+            final Map.Entry<ModificationStampAdapter, Integer> entry = adapters.next();
+            if (entry.getValue() < run) {
+                entry.getKey().release(this);
+                adapters.remove();
+            }
+        }
+        run++;
+    }
+
+    /**
+     * Returns copies of the diagram elements stored for the given owner and source element if the
+     * given stamp equals the stored one, otherwise runs the given transformation and stores its
+     * results.
+     *
+     * @param <O>
+     *            the type of the diagram elements
+     * @param owner
+     *            the owner of the results, e.g. the class of the synthesis performing the
+     *            transformation
+     * @param source
+     *            the source element
+     * @param sourceStamp
+     *            the modification stamp of <code>source</code>, e.g. obtained via
+     *            {@link #getModificationStamp(EObject)}, <code>null</code> disables memoization
+     * @param transformation
+     *            the transformation creating the diagram elements of <code>source</code>
+     * @return the diagram elements
+     */
+    public <O extends KGraphElement> List<O> memoize(final Object owner, final Object source,
+            final Object sourceStamp, final Supplier<List<O>> transformation) {
+        final Object stamp = retain(sourceStamp);
+        final Map<Object, Memo> ownerMemos = memos.computeIfAbsent(owner, key -> new HashMap<>());
+        final Memo memo = ownerMemos.get(source);
+        if (stamp != null && memo != null && stamp.equals(memo.stamp)) {
+            hits++;
+            memo.run = run;
+            @SuppressWarnings("unchecked")
+            final List<O> copies = (List<O>) (List<?>) new ArrayList<KGraphElement>(
+                    EcoreUtil.copyAll(memo.results));
+            return copies;
+        }
+
+        misses++;
+        final List<O> results = transformation.get();
+        if (stamp != null && isSelfContained(results)) {
+            ownerMemos.put(source, new Memo(stamp, EcoreUtil.copyAll(results), run));
+        } else {
+            ownerMemos.remove(source);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the modification stamp of the given element like
+     * {@link #getModificationStamp(EObject)}, and keeps the adapter providing it attached as long
+     * as the stamps of the element's model are requested from or passed to this memoizer in each
+     * run of the diagram synthesis. This allows to track modifications of a model without
+     * memoizing any diagram elements, and the adapter is detached from the model like the ones of
+     * memoized source elements, see {@link #discard(ViewContext)}.
+     *
+     * @param element
+     *            the element
+     * @return the stamp, or <code>null</code> if it is outdated already
+     */
+    public Object retainModificationStamp(final EObject element) {
+        return retain(getModificationStamp(element));
+    }
+
+    /**
+     * Registers this memoizer as user of the adapter providing the given stamp for the current run.
+     *
+     * @return the given stamp, or <code>null</code> if its adapter has been detached in the
+     *         meantime, so that it is outdated
+     */
+    private Object retain(final Object stamp) {
+        if (stamp instanceof Stamp) {
+            final ModificationStampAdapter adapter = ((Stamp) stamp).adapter;
+            if (stampAdapters.containsKey(adapter) || adapter.retain(this)) {
+                stampAdapters.put(adapter, run);
+            } else {
+                return null;
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Checks whether the given elements and their contents don't refer to any other elements.
+     */
+    private static boolean isSelfContained(final Collection<? extends EObject> elements) {
+        for (final EObject element : elements) {
+            final Iterator<EObject> contents = EcoreUtil.getAllContents(
+                    Collections.singleton(element));
+            while (contents.hasNext()) {
+                for (final EObject target : contents.next().eCrossReferences()) {
+                    if (!EcoreUtil.isAncestor(elements, target)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of transformations saved so far
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of transformations performed so far
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Discards all stored results and releases the adapters attached to the source models by
+     * {@link #getModificationStamp(EObject)} for this memoizer.
+     */
+    public void clear() {
+        memos.clear();
+        for (final ModificationStampAdapter adapter : stampAdapters.keySet()) {
+            adapter.release(this);
+        }
+        stampAdapters.clear();
+    }
+
+    /**
+     * The results of a transformation.
+     */
+    private static final class Memo {
+        private final Object stamp;
+        private final Collection<? extends KGraphElement> results;
+        private int run;
+
+        private Memo(final Object stamp, final Collection<? extends KGraphElement> results,
+                final int run) {
+            this.stamp = stamp;
+            this.results = results;
+            this.run = run;
+        }
+    }
+
+    /**
+     * A modification stamp of an element, see {@link #getModificationStamp(EObject)}.
+     */
+    private static final class Stamp {
+        private final ModificationStampAdapter adapter;
+        private final long value;
+
+        private Stamp(final ModificationStampAdapter adapter, final long value) {
+            this.adapter = adapter;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            return object instanceof Stamp && ((Stamp) object).adapter == adapter
+                    && ((Stamp) object).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(value);
+        }
+    }
+
+    /**
+     * Adapter tracking the modifications of the contents of a root element. It keeps stamps for
+     * the elements stamps have been requested for, and renews the stamps of the modified element
+     * and all of its containers on each modification.
+     */
+    private static final class ModificationStampAdapter extends EContentAdapter {
+
+        private final EObject root;
+
+        /** The current stamps of the elements stamps have been requested for. */
+        private final Map<EObject, Long> stamps = new HashMap<>();
+
+        /** The memoizers using the stamps of this adapter. */
+        private final Set<SynthesisMemoizer> users = new HashSet<>();
+
+        /** Whether this adapter has been removed from {@link #root}. */
+        private boolean detached = false;
+
+        private ModificationStampAdapter(final EObject root) {
+            this.root = root;
+        }
+
+        private synchronized Stamp getStamp(final EObject element) {
+            return new Stamp(this, stamps.computeIfAbsent(element, e -> STAMPS.incrementAndGet()));
+        }
+
+        /**
+         * Registers the given memoizer as user of this adapter's stamps.
+         *
+         * @return <code>false</code> if this adapter has already been detached
+         */
+        private synchronized boolean retain(final SynthesisMemoizer memoizer) {
+            if (detached) {
+                return false;
+            }
+            users.add(memoizer);
+            return true;
+        }
+
+        /**
+         * Detaches this adapter once the last memoizer using it releases it.
+         */
+        private void release(final SynthesisMemoizer memoizer) {
+            synchronized (root) {
+                synchronized (this) {
+                    users.remove(memoizer);
+                    if (!users.isEmpty()) {
+                        return;
+                    }
+                    detached = true;
+                }
+                root.eAdapters().remove(this);
+            }
+        }
+
+        @Override
+        public void notifyChanged(final Notification notification) {
+            super.notifyChanged(notification);
+            if (!notification.isTouch() && notification.getNotifier() instanceof EObject) {
+                synchronized (this) {
+                    if (stamps.isEmpty()) {
+                        return;
+                    }
+                    for (EObject element = (EObject) notification.getNotifier(); element != null;
+                            element = element.eContainer()) {
+                        stamps.replace(element, STAMPS.incrementAndGet());
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void unsetTarget(final EObject target) {
+            super.unsetTarget(target);
+            // the element has been removed from the root, forget its stamp
+            synchronized (this) {
+                stamps.remove(target);
+            }
+        }
+
+        @Override
+        protected boolean resolve() {
+            return false;
+        }
+    }
+}
@@ -334,6 +334,14 @@ public final class KlighdProperties {
     public static final IProperty<Boolean> SHOW_CLIPPED_LABELS =
             new Property<Boolean>("klighd.showClippedNodesLabels", true);
 
+    /**
+     * Determines the time in milliseconds the viewer may spend per display frame on updating the
+     * figures of changed diagram elements. Pending updates exceeding this budget are deferred to
+     * the next frames, at least one element is updated per frame.
+     */
+    public static final IProperty<Integer> RENDERING_UPDATE_BUDGET =
+            new Property<Integer>("klighd.renderingUpdateBudget", 10);
+
     /**
      * Property denoting additional spacing to the zoom to fit content bounds of a (nested) diagram.
      * The particular values are added (subtracted) to the bounds if the particular bound is
@@ -78,6 +78,24 @@ public class KlighdSynthesisProperties extends MapPropertyHolder {
     public static final IProperty<Boolean> SUPPRESS_SIZE_ESTIMATION = new Property<Boolean>(
             "klighd.suppressSizeEstimation", false);
 
+    /** property denoting whether to estimate the sizes of the
+     * {@link de.cau.cs.kieler.klighd.kgraph.KNode KNodes} and
+     * {@link de.cau.cs.kieler.klighd.kgraph.KLabel KLabels} of independent subtrees of the view
+     * model in parallel while building the layout graph. */
+    public static final IProperty<Boolean> PARALLEL_SIZE_ESTIMATION = new Property<Boolean>(
+            "klighd.parallelSizeEstimation", false);
+
+    /** property denoting whether to reuse the layout results stored in the {@link LayoutResultCache}
+     * for layout graphs structurally equal to previously laid out ones. */
+    public static final IProperty<Boolean> LAYOUT_CACHING = new Property<Boolean>(
+            "klighd.layoutCaching", false);
+
+    /** property denoting whether to replace structurally equal renderings of the view model by
+     * references to shared instances after the diagram synthesis, see
+     * {@link de.cau.cs.kieler.klighd.krendering.KRenderingInterner KRenderingInterner}. */
+    public static final IProperty<Boolean> INTERN_RENDERINGS = new Property<Boolean>(
+            "klighd.internRenderings", false);
+
     /**
      * Whether to suppress edge adjustment or not. If edge adjustment is active, KLighD makes sure
      * that the source and target point of each edge really connects to the node's border (or the
@@ -335,6 +353,43 @@ public class KlighdSynthesisProperties extends MapPropertyHolder {
         return this;
     }
 
+    /**
+     * Configures the diagram viewer to estimate the minimal sizes of diagram nodes and labels
+     * of independent subtrees in parallel, which speeds up the layout of large hierarchical
+     * diagrams.
+     *
+     * @return <code>this<code> {@link KlighdSynthesisProperties} object.
+     */
+    public KlighdSynthesisProperties parallelNodeAndLabelSizeEstimation() {
+        this.setProperty(PARALLEL_SIZE_ESTIMATION, true);
+        return this;
+    }
+
+    /**
+     * Configures the diagram viewer to reuse layout results stored in the
+     * {@link LayoutResultCache} if the layout graph of a diagram and its layout configuration are
+     * equal to ones laid out before, e.g. when re-opening a model or resetting a synthesis option.
+     *
+     * @return <code>this<code> {@link KlighdSynthesisProperties} object.
+     */
+    public KlighdSynthesisProperties useLayoutCache() {
+        this.setProperty(LAYOUT_CACHING, true);
+        return this;
+    }
+
+    /**
+     * Configures the diagram viewer to replace structurally equal renderings of the view model
+     * by references to shared instances kept in the view model's rendering library, after the
+     * diagram synthesis has been executed. Must not be used if renderings are modified for single
+     * diagram elements afterwards.
+     *
+     * @return <code>this<code> {@link KlighdSynthesisProperties} object.
+     */
+    public KlighdSynthesisProperties internRenderings() {
+        this.setProperty(INTERN_RENDERINGS, true);
+        return this;
+    }
+
     /**
      * Configures whether the edge adjustment should be calculated or not.
      * 
@@ -0,0 +1,256 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import de.cau.cs.kieler.klighd.Klighd;
+
+/**
+ * Cache of layout results, mapped by fingerprints of the laid out layout graphs including their
+ * layout configuration. It is used for diagrams whose view contexts are configured with
+ * {@link KlighdSynthesisProperties#useLayoutCache()}.<br>
+ * <br>
+ * The cache keeps the most recently used results in memory up to a configurable total size, see
+ * {@link #setMaxSize(long)}. In addition, the results can be stored in a directory, see
+ * {@link #setDiskStore(Path)}, so that they survive restarts of the application. Since the
+ * fingerprints do not cover the versions of the layout algorithms, the directory should be
+ * cleared if those are updated.<br>
+ * <br>
+ * The numbers of cache hits and misses are counted and can be queried via {@link #getHits()},
+ * {@link #getMisses()}, and {@link #getHitRate()}.
+ *
+ * @author nre
+ */
+public final class LayoutResultCache {
+
+    /**
+     * The default maximum total size of the results kept in memory in bytes.
+     */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    private static final String FILE_EXTENSION = ".layout";
+
+    private static final LayoutResultCache INSTANCE = new LayoutResultCache();
+
+    /**
+     * Returns the cache instance shared by all layout runs.
+     *
+     * @return the {@link LayoutResultCache}
+     */
+    public static LayoutResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** the results kept in memory, in the order of their last access. */
+    private final LinkedHashMap<String, byte[]> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long size = 0;
+
+    private long maxSize = DEFAULT_MAX_SIZE;
+
+    private volatile Path diskStore = null;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Hidden constructor, use {@link #getInstance()}.
+     */
+    private LayoutResultCache() {
+    }
+
+    /**
+     * Sets the maximum total size of the results kept in memory. The least recently used results
+     * are evicted if that size is exceeded.
+     *
+     * @param theMaxSize
+     *            the maximum size in bytes
+     */
+    public synchronized void setMaxSize(final long theMaxSize) {
+        this.maxSize = theMaxSize;
+        evict();
+    }
+
+    /**
+     * Sets the directory layout results are additionally stored in and looked up in if they are
+     * not kept in memory.
+     *
+     * @param directory
+     *            the directory, <code>null</code> to keep the results in memory only
+     */
+    public void setDiskStore(final Path directory) {
+        this.diskStore = directory;
+    }
+
+    /**
+     * Returns the directory layout results are additionally stored in.
+     *
+     * @return the directory, or <code>null</code> if results are kept in memory only
+     */
+    public Path getDiskStore() {
+        return diskStore;
+    }
+
+    /**
+     * Looks up the layout result stored for the given fingerprint, first in memory and then in
+     * the disk store, if configured. Counts a cache hit or miss accordingly.
+     *
+     * @param fingerprint
+     *            the fingerprint of the layout graph
+     * @return the encoded layout result, or <code>null</code> if none is stored
+     */
+    public byte[] get(final String fingerprint) {
+        byte[] result;
+        synchronized (this) {
+            result = results.get(fingerprint);
+        }
+
+        final Path directory = diskStore;
+        if (result == null && directory != null) {
+            final Path file = directory.resolve(fingerprint + FILE_EXTENSION);
+            if (Files.isRegularFile(file)) {
+                try {
+                    result = Files.readAllBytes(file);
+                    putInMemory(fingerprint, result);
+                } catch (final IOException e) {
+                    Klighd.log(new Status(IStatus.WARNING, Klighd.PLUGIN_ID,
+                            "KLighD: Error occurred while reading cached layout result "
+                                    + file + ".", e));
+                }
+            }
+        }
+
+        if (result != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Stores the layout result for the given fingerprint in memory and in the disk store, if
+     * configured.
+     *
+     * @param fingerprint
+     *            the fingerprint of the layout graph
+     * @param result
+     *            the encoded layout result
+     */
+    public void put(final String fingerprint, final byte[] result) {
+        putInMemory(fingerprint, result);
+
+        final Path directory = diskStore;
+        if (directory != null) {
+            final Path file = directory.resolve(fingerprint + FILE_EXTENSION);
+            try {
+                Files.createDirectories(directory);
+                // write to a temporary file first so that concurrent readers never observe
+                //  partially written results
+                final Path tmp = Files.createTempFile(directory, fingerprint, null);
+                Files.write(tmp, result);
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (final IOException e) {
+                Klighd.log(new Status(IStatus.WARNING, Klighd.PLUGIN_ID,
+                        "KLighD: Error occurred while storing cached layout result "
+                                + file + ".", e));
+            }
+        }
+    }
+
+    private synchronized void putInMemory(final String fingerprint, final byte[] result) {
+        final byte[] previous = results.put(fingerprint, result);
+        if (previous != null) {
+            size -= previous.length;
+        }
+        size += result.length;
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<Map.Entry<String, byte[]>> it = results.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    /**
+     * Returns the number of layout results found in the cache since the last
+     * {@link #resetStatistics()}.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of layout runs that did not find a result in the cache since the last
+     * {@link #resetStatistics()}.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the ratio of cache hits to all lookups since the last {@link #resetStatistics()}.
+     *
+     * @return the hit rate between 0 and 1, 0 if no lookup has been performed yet
+     */
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 0d : (double) h / total;
+    }
+
+    /**
+     * Returns the total size of the results kept in memory.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Resets the numbers of cache hits and misses.
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Removes all results kept in memory. Results in the disk store are not deleted.
+     */
+    public synchronized void clear() {
+        results.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.FontData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.cau.cs.kieler.klighd.microlayout.Bounds;
+import de.cau.cs.kieler.klighd.microlayout.CachingTextMetrics;
+import de.cau.cs.kieler.klighd.microlayout.ITextMetrics;
+
+/**
+ * Tests of {@link CachingTextMetrics}.
+ *
+ * @author nre
+ */
+public class CachingTextMetricsTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    /**
+     * Measures each character with a width of 1 and counts the measurements.
+     */
+    private static class CountingTextMetrics implements ITextMetrics {
+        private int count = 0;
+
+        @Override
+        public Bounds estimateTextSize(final FontData fontData, final String text) {
+            count++;
+            return new Bounds(text == null ? 0 : text.length(), fontData.getHeight());
+        }
+    }
+
+    @Test
+    public void cachedSizes() {
+        final CountingTextMetrics delegate = new CountingTextMetrics();
+        final CachingTextMetrics metrics = new CachingTextMetrics(delegate);
+
+        final Bounds first = metrics.estimateTextSize(new FontData("Arial", 10, SWT.NORMAL), "abc");
+        final Bounds second = metrics.estimateTextSize(new FontData("Arial", 10, SWT.NORMAL), "abc");
+
+        Assert.assertEquals(1, delegate.count);
+        Assert.assertEquals(1, metrics.getHits());
+        Assert.assertEquals(1, metrics.getMisses());
+        Assert.assertEquals(3f, second.getWidth(), 0f);
+        Assert.assertEquals(10f, second.getHeight(), 0f);
+        Assert.assertNotSame(first, second);
+    }
+
+    @Test
+    public void distinctFontsAndTexts() {
+        final CountingTextMetrics delegate = new CountingTextMetrics();
+        final CachingTextMetrics metrics = new CachingTextMetrics(delegate);
+
+        metrics.estimateTextSize(new FontData("Arial", 10, SWT.NORMAL), "abc");
+        metrics.estimateTextSize(new FontData("Arial", 10, SWT.BOLD), "abc");
+        metrics.estimateTextSize(new FontData("Arial", 12, SWT.NORMAL), "abc");
+        metrics.estimateTextSize(new FontData("Arial", 10, SWT.NORMAL), "abcd");
+        metrics.estimateTextSize(new FontData("Arial", 10, SWT.NORMAL), null);
+
+        Assert.assertEquals(5, delegate.count);
+        Assert.assertEquals(0, metrics.getHits());
+    }
+
+    @Test
+    public void modifiedResultsDoNotAffectCache() {
+        final CachingTextMetrics metrics = new CachingTextMetrics(new CountingTextMetrics());
+        final FontData font = new FontData("Arial", 10, SWT.NORMAL);
+
+        metrics.estimateTextSize(font, "abc").move(100f, 100f);
+        metrics.estimateTextSize(font, "abc").move(100f, 100f);
+
+        Assert.assertEquals(0f, metrics.estimateTextSize(font, "abc").getX(), 0f);
+    }
+
+    @Test
+    public void boundedSize() {
+        final CachingTextMetrics metrics = new CachingTextMetrics(new CountingTextMetrics(), 10);
+        final FontData font = new FontData("Arial", 10, SWT.NORMAL);
+
+        for (int i = 0; i < 25; i++) {
+            metrics.estimateTextSize(font, Integer.toString(i));
+        }
+
+        Assert.assertTrue(metrics.getSize() <= 10);
+        Assert.assertEquals(25, metrics.getMisses());
+    }
+
+    @Test
+    public void recentlyUsedSizesAreKept() {
+        final CachingTextMetrics metrics = new CachingTextMetrics(new CountingTextMetrics(), 100);
+        final FontData font = new FontData("Arial", 10, SWT.NORMAL);
+
+        // far more distinct texts than cached, but one of them is used all the time
+        for (int i = 0; i < 1000; i++) {
+            metrics.estimateTextSize(font, "frequent");
+            metrics.estimateTextSize(font, Integer.toString(i));
+        }
+
+        Assert.assertEquals(999, metrics.getHits());
+        Assert.assertEquals(1001, metrics.getMisses());
+        Assert.assertTrue(metrics.getSize() <= 100);
+    }
+}
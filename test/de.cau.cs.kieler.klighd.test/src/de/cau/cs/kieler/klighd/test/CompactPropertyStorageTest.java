@@ -0,0 +1,242 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.elk.graph.properties.IProperty;
+import org.eclipse.elk.graph.properties.Property;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.impl.EMapPropertyHolderImpl;
+import de.cau.cs.kieler.klighd.kgraph.impl.IPropertyToObjectMapImpl;
+import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+
+/**
+ * Tests of the compact property storage of {@link EMapPropertyHolderImpl}.
+ *
+ * @author nre
+ */
+public class CompactPropertyStorageTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private static final IProperty<String> P1 = new Property<String>("test.p1");
+    private static final IProperty<String> P2 = new Property<String>("test.p2", "default");
+    private static final IProperty<Integer> P3 = new Property<Integer>("test.p3");
+
+    @Before
+    public void enable() {
+        EMapPropertyHolderImpl.setCompactPropertyStorage(true);
+    }
+
+    @After
+    public void disable() {
+        EMapPropertyHolderImpl.setCompactPropertyStorage(false);
+    }
+
+    @Test
+    public void setGetRemove() {
+        final KNode node = KGraphUtil.createInitializedNode();
+        node.setProperty(P1, "a");
+        node.setProperty(P3, 3);
+
+        Assert.assertEquals("a", node.getProperty(P1));
+        Assert.assertEquals("default", node.getProperty(P2));
+        Assert.assertEquals(Integer.valueOf(3), node.getProperty(P3));
+        Assert.assertTrue(node.hasProperty(new Property<String>("test.p1")));
+        Assert.assertFalse(node.hasProperty(P2));
+
+        node.setProperty(P1, null);
+        Assert.assertFalse(node.hasProperty(P1));
+        Assert.assertEquals(Integer.valueOf(3), node.getProperty(P3));
+    }
+
+    @Test
+    public void manyProperties() {
+        final KNode node = KGraphUtil.createInitializedNode();
+        for (int i = 0; i < 100; i++) {
+            node.setProperty(new Property<Integer>("test.many" + i), i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            node.setProperty(new Property<Integer>("test.many" + i), null);
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : Integer.valueOf(i),
+                    node.getProperty(new Property<Integer>("test.many" + i)));
+        }
+        Assert.assertEquals(50, node.getAllProperties().size());
+    }
+
+    @Test
+    public void transferIntoMap() {
+        final KNode node = KGraphUtil.createInitializedNode();
+        node.setProperty(P3, 3);
+        node.setProperty(P1, "a");
+
+        Assert.assertEquals(Lists.newArrayList(P3, P1),
+                Lists.newArrayList(node.getProperties().keySet()));
+
+        node.setProperty(P2, "b");
+        Assert.assertEquals("b", node.getProperties().get(P2));
+    }
+
+    @Test
+    public void copyProperties() {
+        final KNode source = KGraphUtil.createInitializedNode();
+        source.setProperty(P1, "a");
+        source.setProperty(P3, 3);
+
+        final KNode target = KGraphUtil.createInitializedNode();
+        target.copyProperties(source);
+
+        Assert.assertEquals("a", target.getProperty(P1));
+        Assert.assertEquals(Integer.valueOf(3), target.getProperty(P3));
+    }
+
+    @Test
+    public void notificationsWithAdapters() {
+        final KNode node = KGraphUtil.createInitializedNode();
+        node.setProperty(P1, "a");
+
+        final List<Notification> notifications = new ArrayList<>();
+        node.eAdapters().add(new AdapterImpl() {
+            @Override
+            public void notifyChanged(final Notification msg) {
+                notifications.add(msg);
+            }
+        });
+        node.setProperty(P3, 3);
+
+        Assert.assertEquals(1, notifications.size());
+        Assert.assertEquals(Notification.ADD, notifications.get(0).getEventType());
+        Assert.assertTrue(notifications.get(0).getNewValue() instanceof IPropertyToObjectMapImpl);
+        Assert.assertEquals("a", node.getProperty(P1));
+
+        node.setProperty(P1, null);
+        Assert.assertEquals(2, notifications.size());
+        Assert.assertEquals(Notification.REMOVE, notifications.get(1).getEventType());
+        Assert.assertFalse(node.hasProperty(P1));
+    }
+
+    @Test
+    public void removalNotificationsWithAdapters() {
+        final KNode node = KGraphUtil.createInitializedNode();
+        node.setProperty(P1, "a");
+        node.setProperty(P3, 3);
+
+        final List<Notification> notifications = new ArrayList<>();
+        node.eAdapters().add(new AdapterImpl() {
+            @Override
+            public void notifyChanged(final Notification msg) {
+                notifications.add(msg);
+            }
+        });
+        node.setProperty(P1, null);
+
+        Assert.assertEquals(1, notifications.size());
+        Assert.assertEquals(Notification.REMOVE, notifications.get(0).getEventType());
+        Assert.assertFalse(node.hasProperty(P1));
+        Assert.assertEquals(Integer.valueOf(3), node.getProperty(P3));
+    }
+
+    /**
+     * Creates a graph of 100,000 nodes, 1,000 children of the root with 99 children each, setting
+     * three properties on each node.
+     */
+    private static KNode createGraph(final List<KNode> nodes) {
+        final KNode root = KGraphUtil.createInitializedNode();
+        for (int i = 0; i < 1000; i++) {
+            final KNode child = KGraphUtil.createInitializedNode();
+            child.setParent(root);
+            nodes.add(child);
+            for (int j = 0; j < 99; j++) {
+                final KNode grandChild = KGraphUtil.createInitializedNode();
+                grandChild.setParent(child);
+                nodes.add(grandChild);
+            }
+        }
+        for (final KNode node : nodes) {
+            node.setProperty(P1, "a");
+            node.setProperty(P2, "b");
+            node.setProperty(P3, 3);
+        }
+        return root;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    /**
+     * Creates the graph, attaches a content adapter if requested, and prints the heap retained by
+     * the graph and the time of looking up all properties.
+     *
+     * @return the heap retained by the graph in bytes
+     */
+    private static long measure(final String name, final boolean compact,
+            final boolean contentAdapter) {
+        EMapPropertyHolderImpl.setCompactPropertyStorage(compact);
+        final List<KNode> nodes = new ArrayList<>(100000);
+        final long before = usedHeap();
+        final KNode root = createGraph(nodes);
+        if (contentAdapter) {
+            root.eAdapters().add(new EContentAdapter());
+        }
+        final long heap = usedHeap() - before;
+
+        int found = 0;
+        final long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            for (final KNode node : nodes) {
+                found += node.getProperty(P3) + (node.hasProperty(P1) ? 1 : 0);
+            }
+        }
+        final long lookup = System.nanoTime() - start;
+
+        Assert.assertEquals(10 * 4 * nodes.size(), found);
+        Assert.assertEquals(100000, nodes.size());
+        System.out.println(String.format("%s: %d KB heap, %d ms for 1,000,000 lookups of two "
+                + "properties", name, heap / 1024, TimeUnit.NANOSECONDS.toMillis(lookup)));
+        return heap;
+    }
+
+    @Test
+    public void heapAndLookupOf100kNodes() {
+        // warm up
+        measure("warm-up", true, false);
+        measure("warm-up", false, false);
+
+        final long map = measure("Properties map", false, false);
+        final long compact = measure("Compact storage", true, false);
+        final long adapter = measure("Compact storage, content adapter", true, true);
+
+        Assert.assertTrue(compact < map);
+        // the content adapter transfers the properties into the maps
+        Assert.assertTrue(adapter > compact);
+    }
+}
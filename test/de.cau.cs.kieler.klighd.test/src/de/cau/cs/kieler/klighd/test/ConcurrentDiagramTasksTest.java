@@ -0,0 +1,107 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.cau.cs.kieler.klighd.lsp.KGraphDiagramState;
+import de.cau.cs.kieler.klighd.lsp.launch.AbstractLanguageServer;
+
+/**
+ * Contention tests of diagram tasks executed via
+ * {@link AbstractLanguageServer#executeDiagramTask(java.util.function.Consumer)} under the per-URI
+ * locks of the {@link KGraphDiagramState}.
+ *
+ * @author nre
+ */
+public class ConcurrentDiagramTasksTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private final KGraphDiagramState diagramState = new KGraphDiagramState();
+
+    private ExecutorService executor;
+
+    @Before
+    public void enable() {
+        AbstractLanguageServer.setConcurrentDiagramTasks(true);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void disable() {
+        AbstractLanguageServer.setConcurrentDiagramTasks(false);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Executes the given task like a synthesis or layout of the diagram of the given URI.
+     */
+    private Future<?> submit(final String uri, final Runnable task) {
+        return executor.submit(() -> {
+            synchronized (diagramState.getLock(uri)) {
+                AbstractLanguageServer.executeDiagramTask(o -> task.run());
+            }
+        });
+    }
+
+    @Test
+    public void differentUrisRunInParallel() throws Exception {
+        // each task only finishes once both are running at the same time
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final Runnable task = () -> {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        final long start = System.nanoTime();
+        final Future<?> a = submit("file:///a.kgt", task);
+        final Future<?> b = submit("file:///b.kgt", task);
+        a.get();
+        b.get();
+        System.out.println("Two diagram tasks ran in parallel in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    }
+
+    @Test
+    public void sameUriRunsSequentially() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Runnable task = () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        };
+        final Future<?> a = submit("file:///a.kgt", task);
+        final Future<?> b = submit("file:///a.kgt", task);
+        a.get();
+        b.get();
+        Assert.assertEquals(1, maxRunning.get());
+    }
+}
@@ -32,6 +32,11 @@ import de.cau.cs.kieler.klighd.kgraph.KLabel;
 import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.kgraph.KPort;
 import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+import de.cau.cs.kieler.klighd.krendering.KColor;
+import de.cau.cs.kieler.klighd.krendering.KEllipse;
+import de.cau.cs.kieler.klighd.krendering.KForeground;
+import de.cau.cs.kieler.klighd.krendering.KRectangle;
+import de.cau.cs.kieler.klighd.krendering.KRenderingFactory;
 
 /**
  * Tests if the {@link IncrementalUpdateStrategy} correctly updates every aspect of the model
@@ -851,4 +856,78 @@ public class IncrementalUpdateTest {
         Assert.assertTrue(baseNewNode2 instanceof KNode);
     }
     
+    /**
+     * Creates a rectangle rendering with the given foreground color and an ellipse child.
+     */
+    private KRectangle createRendering(KNode node, int red, int green, int blue) {
+        final KRectangle rect = KRenderingFactory.eINSTANCE.createKRectangle();
+        final KForeground foreground = KRenderingFactory.eINSTANCE.createKForeground();
+        final KColor color = KRenderingFactory.eINSTANCE.createKColor();
+        color.setRed(red);
+        color.setGreen(green);
+        color.setBlue(blue);
+        foreground.setColor(color);
+        rect.getStyles().add(foreground);
+        rect.getChildren().add(KRenderingFactory.eINSTANCE.createKEllipse());
+        node.getData().add(rect);
+        return rect;
+    }
+    
+    /**
+     * Tests updating a rendering that only differs in a style. Checks if the rendering of the base model is kept and
+     * updated in place.
+     */
+    @Test
+    public void testUpdateRenderingInPlace() {
+        final KNode baseGraph = createTestGraph();
+        createRendering(baseGraph.getChildren().get(0), 255, 0, 0);
+        final KNode newGraph = createTestGraph();
+        createRendering(newGraph.getChildren().get(0), 0, 0, 255);
+        
+        final ViewContext viewContext = createViewContext();
+        // Initialize the view context with the base graph.
+        INCREMENTAL_UPDATE_STRATEGY.update(viewContext.getViewModel(), baseGraph, viewContext);
+        final KRectangle baseRendering = viewContext.getViewModel().getChildren().get(0).getData(KRectangle.class);
+        final KEllipse baseChild = (KEllipse) baseRendering.getChildren().get(0);
+        // Update with the new graph.
+        INCREMENTAL_UPDATE_STRATEGY.update(viewContext.getViewModel(), newGraph, viewContext);
+        
+        // Assert the rendering objects are kept and the color is updated.
+        final KRectangle updatedRendering =
+            viewContext.getViewModel().getChildren().get(0).getData(KRectangle.class);
+        Assert.assertSame(baseRendering, updatedRendering);
+        Assert.assertSame(baseChild, updatedRendering.getChildren().get(0));
+        final KColor color = updatedRendering.getStyles().stream().filter(KForeground.class::isInstance)
+            .map(style -> ((KForeground) style).getColor()).findFirst().orElse(null);
+        Assert.assertNotNull(color);
+        Assert.assertEquals(0, color.getRed());
+        Assert.assertEquals(255, color.getBlue());
+    }
+    
+    /**
+     * Tests updating a rendering whose structure changed. Checks if the rendering of the base model is replaced.
+     */
+    @Test
+    public void testReplaceRendering() {
+        final KNode baseGraph = createTestGraph();
+        createRendering(baseGraph.getChildren().get(0), 255, 0, 0);
+        final KNode newGraph = createTestGraph();
+        final KRectangle newRendering = createRendering(newGraph.getChildren().get(0), 255, 0, 0);
+        newRendering.getChildren().add(KRenderingFactory.eINSTANCE.createKRectangle());
+        
+        final ViewContext viewContext = createViewContext();
+        // Initialize the view context with the base graph.
+        INCREMENTAL_UPDATE_STRATEGY.update(viewContext.getViewModel(), baseGraph, viewContext);
+        final KRectangle baseRendering = viewContext.getViewModel().getChildren().get(0).getData(KRectangle.class);
+        // Update with the new graph.
+        INCREMENTAL_UPDATE_STRATEGY.update(viewContext.getViewModel(), newGraph, viewContext);
+        
+        // Assert the rendering is replaced by the new one.
+        final KRectangle updatedRendering =
+            viewContext.getViewModel().getChildren().get(0).getData(KRectangle.class);
+        Assert.assertNotSame(baseRendering, updatedRendering);
+        Assert.assertSame(newRendering, updatedRendering);
+        Assert.assertEquals(2, updatedRendering.getChildren().size());
+    }
+    
 }
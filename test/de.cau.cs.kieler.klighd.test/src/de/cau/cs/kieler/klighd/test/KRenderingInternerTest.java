@@ -0,0 +1,100 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+import de.cau.cs.kieler.klighd.krendering.KContainerRendering;
+import de.cau.cs.kieler.klighd.krendering.KLineWidth;
+import de.cau.cs.kieler.klighd.krendering.KRectangle;
+import de.cau.cs.kieler.klighd.krendering.KRendering;
+import de.cau.cs.kieler.klighd.krendering.KRenderingFactory;
+import de.cau.cs.kieler.klighd.krendering.KRenderingInterner;
+import de.cau.cs.kieler.klighd.krendering.KRenderingLibrary;
+import de.cau.cs.kieler.klighd.krendering.KRenderingRef;
+import de.cau.cs.kieler.klighd.krendering.KText;
+
+/**
+ * Tests of {@link KRenderingInterner}.
+ *
+ * @author nre
+ */
+public class KRenderingInternerTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private static final KRenderingFactory FACTORY = KRenderingFactory.eINSTANCE;
+
+    private static KRectangle createFigure(final KNode parent, final String text) {
+        final KNode node = KGraphUtil.createInitializedNode();
+        parent.getChildren().add(node);
+
+        final KRectangle rect = FACTORY.createKRectangle();
+        final KLineWidth lineWidth = FACTORY.createKLineWidth();
+        lineWidth.setLineWidth(2);
+        rect.getStyles().add(lineWidth);
+        final KText kText = FACTORY.createKText();
+        kText.setText(text);
+        rect.getChildren().add(kText);
+        rect.getChildren().add(FACTORY.createKEllipse());
+        node.getData().add(rect);
+        return rect;
+    }
+
+    @Test
+    public void equalRenderingsAreShared() {
+        final KNode root = KGraphUtil.createInitializedNode();
+        createFigure(root, "a");
+        createFigure(root, "a");
+
+        Assert.assertEquals(2, KRenderingInterner.internRenderings(root));
+
+        final KRenderingLibrary library = root.getData(KRenderingLibrary.class);
+        Assert.assertEquals(1, library.getRenderings().size());
+
+        final KRenderingRef ref1 = root.getChildren().get(0).getData(KRenderingRef.class);
+        final KRenderingRef ref2 = root.getChildren().get(1).getData(KRenderingRef.class);
+        Assert.assertSame(library.getRenderings().get(0), ref1.getRendering());
+        Assert.assertSame(ref1.getRendering(), ref2.getRendering());
+    }
+
+    @Test
+    public void equalChildrenAreShared() {
+        final KNode root = KGraphUtil.createInitializedNode();
+        final KRectangle rect1 = createFigure(root, "a");
+        final KRectangle rect2 = createFigure(root, "b");
+
+        // the texts differ, only the ellipses are equal but too small to be shared
+        Assert.assertEquals(0, KRenderingInterner.internRenderings(root));
+        Assert.assertNull(root.getData(KRenderingLibrary.class));
+
+        final KContainerRendering nested1 = FACTORY.createKRectangle();
+        nested1.getChildren().add(FACTORY.createKEllipse());
+        rect1.getChildren().add(nested1);
+        final KContainerRendering nested2 = FACTORY.createKRectangle();
+        nested2.getChildren().add(FACTORY.createKEllipse());
+        rect2.getChildren().add(nested2);
+
+        Assert.assertEquals(2, KRenderingInterner.internRenderings(root));
+
+        final KRendering child1 = rect1.getChildren().get(2);
+        final KRendering child2 = rect2.getChildren().get(2);
+        Assert.assertTrue(child1 instanceof KRenderingRef);
+        Assert.assertSame(((KRenderingRef) child1).getRendering(),
+                ((KRenderingRef) child2).getRendering());
+        Assert.assertSame(rect1, root.getChildren().get(0).getData(KRectangle.class));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.elk.core.options.CoreOptions;
+import org.eclipse.elk.core.util.BasicProgressMonitor;
+import org.eclipse.elk.graph.ElkBendPoint;
+import org.eclipse.elk.graph.ElkEdge;
+import org.eclipse.elk.graph.ElkEdgeSection;
+import org.eclipse.elk.graph.ElkLabel;
+import org.eclipse.elk.graph.ElkNode;
+import org.eclipse.elk.graph.ElkPort;
+import org.eclipse.elk.graph.ElkShape;
+import org.eclipse.elk.graph.util.ElkGraphUtil;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.cau.cs.kieler.klighd.internal.macrolayout.CachingGraphLayoutEngine;
+import de.cau.cs.kieler.klighd.util.LayoutResultCache;
+
+/**
+ * Tests of {@link LayoutResultCache}.
+ *
+ * @author nre
+ */
+public class LayoutResultCacheTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private final LayoutResultCache cache = LayoutResultCache.getInstance();
+
+    @Before
+    @After
+    public void reset() {
+        cache.setDiskStore(null);
+        cache.setMaxSize(LayoutResultCache.DEFAULT_MAX_SIZE);
+        cache.clear();
+        cache.resetStatistics();
+    }
+
+    @Test
+    public void hitRate() {
+        Assert.assertNull(cache.get("a"));
+        cache.put("a", new byte[] { 1, 2, 3 });
+
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("a"));
+        Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+        Assert.assertEquals(0.5, cache.getHitRate(), 0d);
+    }
+
+    @Test
+    public void leastRecentlyUsedEviction() {
+        cache.setMaxSize(20);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[10]);
+        cache.get("a");
+        cache.put("c", new byte[10]);
+
+        Assert.assertEquals(20, cache.getSize());
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void diskStore() throws IOException {
+        final Path directory = Files.createTempDirectory("klighdLayoutCache");
+        cache.setDiskStore(directory);
+        cache.put("a", new byte[] { 4, 2 });
+        cache.clear();
+
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertArrayEquals(new byte[] { 4, 2 }, cache.get("a"));
+        Assert.assertEquals(2, cache.getSize());
+    }
+
+    private static ElkNode createGraph() {
+        final ElkNode root = ElkGraphUtil.createGraph();
+        root.setProperty(CoreOptions.ALGORITHM, "org.eclipse.elk.layered");
+        root.setProperty(CachingGraphLayoutEngine.USE_CACHE, true);
+
+        final ElkNode source = ElkGraphUtil.createNode(root);
+        source.setDimensions(30, 30);
+        final ElkPort port = ElkGraphUtil.createPort(source);
+        port.setDimensions(5, 5);
+        final ElkLabel nodeLabel = ElkGraphUtil.createLabel("source", source);
+        nodeLabel.setDimensions(40, 10);
+
+        // two edges leaving the same port, which are routed as a hyperedge with junction points
+        for (int i = 0; i < 2; i++) {
+            final ElkNode target = ElkGraphUtil.createNode(root);
+            target.setDimensions(30, 30);
+            final ElkEdge edge = ElkGraphUtil.createSimpleEdge(port, target);
+            final ElkLabel edgeLabel = ElkGraphUtil.createLabel("edge" + i, edge);
+            edgeLabel.setDimensions(30, 10);
+        }
+        return root;
+    }
+
+    /**
+     * Describes the geometry of all elements of the given graph.
+     */
+    private static String describe(final ElkNode graph) {
+        final StringBuilder builder = new StringBuilder();
+        final TreeIterator<EObject> contents = graph.eAllContents();
+        while (contents.hasNext()) {
+            final EObject object = contents.next();
+            if (object instanceof ElkShape) {
+                final ElkShape shape = (ElkShape) object;
+                builder.append(shape.eClass().getName()).append(' ')
+                        .append(shape.getX()).append(',').append(shape.getY()).append(' ')
+                        .append(shape.getWidth()).append('x').append(shape.getHeight());
+                if (shape instanceof ElkLabel) {
+                    builder.append(' ').append(((ElkLabel) shape).getText());
+                }
+            } else if (object instanceof ElkEdge) {
+                builder.append("Edge ")
+                        .append(((ElkEdge) object).getProperty(CoreOptions.JUNCTION_POINTS));
+            } else if (object instanceof ElkEdgeSection) {
+                final ElkEdgeSection section = (ElkEdgeSection) object;
+                builder.append("Section ").append(section.getStartX()).append(',')
+                        .append(section.getStartY());
+                for (final ElkBendPoint bendPoint : section.getBendPoints()) {
+                    builder.append(' ').append(bendPoint.getX()).append(',')
+                            .append(bendPoint.getY());
+                }
+                builder.append(' ').append(section.getEndX()).append(',')
+                        .append(section.getEndY());
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void cachedLayout() {
+        final CachingGraphLayoutEngine engine = new CachingGraphLayoutEngine();
+
+        final ElkNode first = createGraph();
+        engine.layout(first, new BasicProgressMonitor());
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+
+        final ElkNode second = createGraph();
+        engine.layout(second, new BasicProgressMonitor());
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+
+        Assert.assertEquals(describe(first), describe(second));
+        for (final ElkEdge edge : second.getContainedEdges()) {
+            Assert.assertFalse(edge.getSections().isEmpty());
+        }
+    }
+}
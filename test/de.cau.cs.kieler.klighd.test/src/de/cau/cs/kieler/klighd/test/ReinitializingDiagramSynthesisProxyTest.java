@@ -0,0 +1,167 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.google.inject.Singleton;
+
+import de.cau.cs.kieler.klighd.IDiagramWorkbenchPart;
+import de.cau.cs.kieler.klighd.ViewContext;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+import de.cau.cs.kieler.klighd.syntheses.AbstractDiagramSynthesis;
+import de.cau.cs.kieler.klighd.syntheses.GuiceBasedSynthesisFactory;
+import de.cau.cs.kieler.klighd.syntheses.ReinitializingDiagramSynthesisProxy;
+
+/**
+ * Tests of the instances injected into the syntheses created by
+ * {@link ReinitializingDiagramSynthesisProxy}.
+ *
+ * @author nre
+ */
+public class ReinitializingDiagramSynthesisProxyTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private static final List<TestSynthesis> SYNTHESES = new ArrayList<>();
+
+    @Singleton
+    public static class SingletonHelper {
+    }
+
+    @Singleton
+    public static class DynamicHelper {
+    }
+
+    public static class OtherHelper {
+        @Inject
+        private SingletonHelper singletonHelper;
+    }
+
+    public static class TestSynthesis extends AbstractDiagramSynthesis<Object> {
+        @Inject
+        private SingletonHelper singletonHelper;
+
+        @Inject
+        private OtherHelper otherHelper;
+
+        @Inject
+        private Injector injector;
+
+        private DynamicHelper dynamicHelper;
+
+        @Override
+        public KNode transform(final Object model) {
+            dynamicHelper = injector.getInstance(DynamicHelper.class);
+            SYNTHESES.add(this);
+            return KGraphUtil.createInitializedNode();
+        }
+    }
+
+    @Before
+    public void clear() {
+        SYNTHESES.clear();
+    }
+
+    private static void transform(final ReinitializingDiagramSynthesisProxy<Object> proxy,
+            final int runs) {
+        for (int i = 0; i < runs; i++) {
+            proxy.transform(new Object(), new ViewContext((IDiagramWorkbenchPart) null, null));
+        }
+    }
+
+    @Test
+    public void singletonsPerRun() {
+        final ReinitializingDiagramSynthesisProxy<Object> proxy =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(TestSynthesis.class);
+        transform(proxy, 3);
+
+        Assert.assertEquals(3, SYNTHESES.size());
+        for (final TestSynthesis synthesis : SYNTHESES) {
+            Assert.assertSame(synthesis.singletonHelper, synthesis.otherHelper.singletonHelper);
+        }
+        Assert.assertNotSame(SYNTHESES.get(0), SYNTHESES.get(1));
+        Assert.assertNotSame(SYNTHESES.get(0).singletonHelper, SYNTHESES.get(1).singletonHelper);
+        Assert.assertNotSame(SYNTHESES.get(1).singletonHelper, SYNTHESES.get(2).singletonHelper);
+    }
+
+    @Test
+    public void dynamicallyRequestedSingletonsPerRun() {
+        final ReinitializingDiagramSynthesisProxy<Object> proxy =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(TestSynthesis.class);
+        transform(proxy, 3);
+
+        Assert.assertNotSame(SYNTHESES.get(0).dynamicHelper, SYNTHESES.get(1).dynamicHelper);
+        Assert.assertNotSame(SYNTHESES.get(1).dynamicHelper, SYNTHESES.get(2).dynamicHelper);
+    }
+
+    @Test
+    public void singletonsPerProxy() {
+        final ReinitializingDiagramSynthesisProxy<Object> proxy1 =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(TestSynthesis.class);
+        final ReinitializingDiagramSynthesisProxy<Object> proxy2 =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(TestSynthesis.class);
+        transform(proxy1, 1);
+        transform(proxy2, 1);
+
+        Assert.assertNotSame(SYNTHESES.get(0).singletonHelper, SYNTHESES.get(1).singletonHelper);
+    }
+
+    /**
+     * Returns the average time in microseconds of the given number of synthesis runs, each with a
+     * new injector like the proxy did before reusing its injector.
+     */
+    private static double newInjectorPerRun(final int runs) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            Guice.createInjector().getInstance(TestSynthesis.class).transform(new Object(),
+                    new ViewContext((IDiagramWorkbenchPart) null, null));
+        }
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / (double) runs;
+    }
+
+    /**
+     * Returns the average time in microseconds of the given number of synthesis runs of the proxy.
+     */
+    private static double proxyPerRun(final ReinitializingDiagramSynthesisProxy<Object> proxy,
+            final int runs) {
+        final long start = System.nanoTime();
+        transform(proxy, runs);
+        return TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / (double) runs;
+    }
+
+    @Test
+    public void repeatedUpdates() {
+        final ReinitializingDiagramSynthesisProxy<Object> proxy =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(TestSynthesis.class);
+        // warm up
+        newInjectorPerRun(200);
+        proxyPerRun(proxy, 200);
+
+        final double before = newInjectorPerRun(1000);
+        final double after = proxyPerRun(proxy, 1000);
+        System.out.println(String.format("Synthesis run with a new injector: %.1fus, "
+                + "with the proxy's injector: %.1fus.", before, after));
+        Assert.assertTrue(after < before);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.sprotty.SModelElement;
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.cau.cs.kieler.klighd.lsp.model.ElementMatch;
+import de.cau.cs.kieler.klighd.lsp.model.SKGraph;
+import de.cau.cs.kieler.klighd.lsp.model.SKNode;
+import de.cau.cs.kieler.klighd.lsp.utils.SModelDiffer;
+
+/**
+ * Tests of the matches computed by {@link SModelDiffer}.
+ *
+ * @author nre
+ */
+public class SModelDifferTest {
+
+    // CHECKSTYLEOFF Javadoc
+
+    private static SKGraph graph(final SModelElement... children) {
+        final SKGraph graph = new SKGraph();
+        graph.setId("g");
+        graph.setType("graph");
+        graph.setChildren(list(children));
+        return graph;
+    }
+
+    private static SKNode node(final String id, final String tooltip, final SModelElement... children) {
+        final SKNode node = new SKNode();
+        node.setId(id);
+        node.setType("node");
+        node.setTooltip(tooltip);
+        node.setChildren(list(children));
+        return node;
+    }
+
+    private static List<SModelElement> list(final SModelElement... elements) {
+        final List<SModelElement> list = new ArrayList<>();
+        for (final SModelElement element : elements) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    private static ElementMatch find(final List<ElementMatch> matches, final String leftId,
+            final String rightId) {
+        for (final ElementMatch match : matches) {
+            final String left = match.getLeft() != null ? match.getLeft().getId() : null;
+            final String right = match.getRight() != null ? match.getRight().getId() : null;
+            if ((leftId == null ? left == null : leftId.equals(left))
+                    && (rightId == null ? right == null : rightId.equals(right))) {
+                return match;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void unchangedModel() {
+        final SModelDiffer differ = new SModelDiffer();
+        differ.snapshot(graph(node("a", null, node("x", null))));
+
+        final List<ElementMatch> matches = differ.diff(graph(node("a", null, node("x", null))));
+        Assert.assertNotNull(matches);
+        Assert.assertTrue(matches.isEmpty());
+    }
+
+    @Test
+    public void moveIntoChangedParent() {
+        final SModelDiffer differ = new SModelDiffer();
+        differ.snapshot(graph(node("a", null, node("x", null)), node("b", null)));
+
+        final List<ElementMatch> matches = differ.diff(
+                graph(node("a", null), node("b", "changed", node("x", null))));
+        Assert.assertEquals(2, matches.size());
+
+        // 'b' is replaced including 'x', so 'x' must be removed from the unchanged 'a'
+        final ElementMatch replace = find(matches, "b", "b");
+        Assert.assertNotNull(replace);
+        final ElementMatch remove = find(matches, "x", null);
+        Assert.assertNotNull(remove);
+        Assert.assertEquals("a", remove.getLeftParentId());
+    }
+
+    @Test
+    public void moveIntoAddedParent() {
+        final SModelDiffer differ = new SModelDiffer();
+        differ.snapshot(graph(node("a", null, node("x", null))));
+
+        final List<ElementMatch> matches = differ.diff(
+                graph(node("a", null), node("c", null, node("x", null))));
+        Assert.assertEquals(2, matches.size());
+        Assert.assertNotNull(find(matches, null, "c"));
+        final ElementMatch remove = find(matches, "x", null);
+        Assert.assertNotNull(remove);
+        Assert.assertEquals("a", remove.getLeftParentId());
+    }
+
+    @Test
+    public void moveIntoUnchangedParent() {
+        final SModelDiffer differ = new SModelDiffer();
+        differ.snapshot(graph(node("a", null, node("x", null)), node("b", null)));
+
+        final List<ElementMatch> matches = differ.diff(
+                graph(node("a", null), node("b", null, node("x", null))));
+
+        // the match of 'x' removes it from 'a' already, no separate removal is required
+        Assert.assertEquals(1, matches.size());
+        final ElementMatch move = find(matches, "x", "x");
+        Assert.assertNotNull(move);
+        Assert.assertEquals("a", move.getLeftParentId());
+        Assert.assertEquals("b", move.getRightParentId());
+    }
+
+    @Test
+    public void removeElement() {
+        final SModelDiffer differ = new SModelDiffer();
+        differ.snapshot(graph(node("a", null, node("x", null)), node("b", null)));
+
+        final List<ElementMatch> matches = differ.diff(graph(node("a", null)));
+        Assert.assertEquals(2, matches.size());
+        Assert.assertEquals("a", find(matches, "x", null).getLeftParentId());
+        Assert.assertEquals("g", find(matches, "b", null).getLeftParentId());
+    }
+}
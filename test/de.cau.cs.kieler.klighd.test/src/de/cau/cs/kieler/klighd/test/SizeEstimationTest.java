@@ -26,6 +26,7 @@ import java.util.Iterator;
 
 import org.eclipse.elk.core.util.Pair;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.swt.graphics.FontData;
 import org.eclipse.xtext.resource.XtextResourceSet;
 import org.junit.Assert;
 import org.junit.FixMethodOrder;
@@ -41,7 +42,10 @@ import de.cau.cs.kieler.klighd.kgraph.KNode;
 import de.cau.cs.kieler.klighd.kgraph.KShapeLayout;
 import de.cau.cs.kieler.klighd.krendering.KRendering;
 import de.cau.cs.kieler.klighd.krendering.KText;
+import de.cau.cs.kieler.klighd.microlayout.AwtTextMetrics;
 import de.cau.cs.kieler.klighd.microlayout.Bounds;
+import de.cau.cs.kieler.klighd.microlayout.GlyphAdvanceTextMetrics;
+import de.cau.cs.kieler.klighd.microlayout.ITextMetrics;
 import de.cau.cs.kieler.klighd.microlayout.PlacementUtil;
 import de.cau.cs.kieler.klighd.test.runners.ModelCollectionTestRunner;
 import de.cau.cs.kieler.klighd.test.runners.ModelCollectionTestRunner.BundleId;
@@ -165,6 +169,37 @@ public class SizeEstimationTest {
     
     private static final float DELTA = 0.5f;
     
+    /**
+     * This test checks that the {@link GlyphAdvanceTextMetrics} measure the texts of all
+     * {@link KText KTexts} like the {@link AwtTextMetrics}, i.e. the regular estimation used
+     * without a display.
+     * 
+     * @param node the test input model
+     */
+    @Test
+    public void glyphAdvanceEstimationTest(final KNode node) {
+        final ITextMetrics expectedMetrics = new AwtTextMetrics();
+        final ITextMetrics actualMetrics = new GlyphAdvanceTextMetrics();
+
+        for (Iterator<KText> it = Iterators.filter(node.eAllContents(), KText.class); it.hasNext();) {
+            final KText kText = it.next();
+            final FontData fontData = PlacementUtil.fontDataFor(kText);
+
+            // in addition to the model's texts, check texts exceeding the advance tables
+            for (String text : new String[] { kText.getText(), kText.getText() + " \u0394\u03b9",
+                    "\u00c4\u00f6\u00df \u0141\u00f3d\u017a" }) {
+                final Bounds expected = expectedMetrics.estimateTextSize(fontData, text);
+                final Bounds actual = actualMetrics.estimateTextSize(fontData, text);
+
+                final Pair<Boolean, Boolean> result = Bounds.compare(expected, actual, DELTA);
+                if (!result.getFirst() || !result.getSecond()) {
+                    throw new AssertionError("Text '" + text + "': Expected text size of "
+                            + expected + ", glyph advance estimation gave " + actual);
+                }
+            }
+        }
+    }
+    
     private void performSizeEstimationTest(final KNode node) {
         if (node.getData(KRendering.class) == null) {
             // if no rendering is attached, there is nothing to test
@@ -0,0 +1,291 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.elk.graph.properties.Property;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.inject.Inject;
+
+import de.cau.cs.kieler.klighd.IDiagramWorkbenchPart;
+import de.cau.cs.kieler.klighd.SynthesisOption;
+import de.cau.cs.kieler.klighd.ViewContext;
+import de.cau.cs.kieler.klighd.kgraph.KEdge;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+import de.cau.cs.kieler.klighd.krendering.extensions.KNodeExtensions;
+import de.cau.cs.kieler.klighd.syntheses.AbstractDiagramSynthesis;
+import de.cau.cs.kieler.klighd.syntheses.GuiceBasedSynthesisFactory;
+import de.cau.cs.kieler.klighd.syntheses.ReinitializingDiagramSynthesisProxy;
+import de.cau.cs.kieler.klighd.syntheses.SynthesisMemoizer;
+
+/**
+ * Tests of {@link SynthesisMemoizer}.
+ *
+ * @author nre
+ */
+public class SynthesisMemoizerTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private static final SynthesisOption OPTION =
+            SynthesisOption.createCheckOption(SynthesisMemoizerTest.class, "Option", true);
+
+    public static class TestSynthesis extends AbstractDiagramSynthesis<KNode> {
+        @Override
+        public KNode transform(final KNode model) {
+            final KNode root = KGraphUtil.createInitializedNode();
+            for (final KNode child : model.getChildren()) {
+                root.getChildren().addAll(memoize(TestSynthesis.class, child,
+                        SynthesisMemoizer.getModificationStamp(child),
+                        () -> Collections.singletonList(KGraphUtil.createInitializedNode())));
+            }
+            return root;
+        }
+
+        @Override
+        public List<SynthesisOption> getDisplayedSynthesisOptions() {
+            return Collections.singletonList(OPTION);
+        }
+    }
+
+    /**
+     * Memoizes the nodes of the model's children, which are created via the create extension of
+     * {@link KNodeExtensions}, and connects them according to the model's edges afterwards.
+     */
+    public static class EdgeSynthesis extends AbstractDiagramSynthesis<KNode> {
+        @Inject
+        private KNodeExtensions nodeExtensions;
+
+        @Override
+        public KNode transform(final KNode model) {
+            final KNode root = KGraphUtil.createInitializedNode();
+            for (final KNode child : model.getChildren()) {
+                final KNode node = memoize(EdgeSynthesis.class, child,
+                        SynthesisMemoizer.getModificationStamp(child),
+                        () -> Collections.singletonList(nodeExtensions.createNode(child))).get(0);
+                // the copies are not known to the create extension
+                nodeExtensions.registerExistingNode(node, child);
+                root.getChildren().add(node);
+            }
+            for (final KNode child : model.getChildren()) {
+                for (final KEdge edge : child.getOutgoingEdges()) {
+                    final KEdge newEdge = KGraphUtil.createInitializedEdge();
+                    newEdge.setSource(nodeExtensions.getNode(edge.getSource()));
+                    newEdge.setTarget(nodeExtensions.getNode(edge.getTarget()));
+                }
+            }
+            return root;
+        }
+    }
+
+    private final SynthesisMemoizer memoizer =
+            SynthesisMemoizer.getMemoizer(new ViewContext((IDiagramWorkbenchPart) null, null));
+
+    private List<KNode> transform(final KNode source) {
+        return memoizer.memoize(SynthesisMemoizerTest.class, source,
+                SynthesisMemoizer.getModificationStamp(source), () -> {
+                    final KNode node = KGraphUtil.createInitializedNode();
+                    node.getChildren().add(KGraphUtil.createInitializedNode());
+                    return Collections.singletonList(node);
+                });
+    }
+
+    @Test
+    public void unchangedSource() {
+        final KNode source = KGraphUtil.createInitializedNode();
+        final List<KNode> first = transform(source);
+        final List<KNode> second = transform(source);
+
+        Assert.assertEquals(1, memoizer.getMisses());
+        Assert.assertEquals(1, memoizer.getHits());
+        Assert.assertNotSame(first.get(0), second.get(0));
+        Assert.assertEquals(1, second.get(0).getChildren().size());
+    }
+
+    @Test
+    public void changedSource() {
+        final KNode source = KGraphUtil.createInitializedNode();
+        final KNode child = KGraphUtil.createInitializedNode();
+        source.getChildren().add(child);
+        transform(source);
+
+        child.setProperty(new Property<String>("test.changed"), "changed");
+        transform(source);
+        Assert.assertEquals(2, memoizer.getMisses());
+
+        transform(source);
+        Assert.assertEquals(1, memoizer.getHits());
+    }
+
+    @Test
+    public void referencesToOtherElements() {
+        final KNode source = KGraphUtil.createInitializedNode();
+        final KNode other = KGraphUtil.createInitializedNode();
+        for (int i = 0; i < 2; i++) {
+            memoizer.memoize(SynthesisMemoizerTest.class, source,
+                    SynthesisMemoizer.getModificationStamp(source), () -> {
+                        final KNode node = KGraphUtil.createInitializedNode();
+                        KGraphUtil.createInitializedEdge().setSource(node);
+                        node.getOutgoingEdges().get(0).setTarget(other);
+                        return Collections.singletonList(node);
+                    });
+        }
+        Assert.assertEquals(2, memoizer.getMisses());
+    }
+
+    @Test
+    public void synthesisRuns() {
+        final KNode model = KGraphUtil.createInitializedNode();
+        model.getChildren().add(KGraphUtil.createInitializedNode());
+        model.getChildren().add(KGraphUtil.createInitializedNode());
+
+        final TestSynthesis synthesis = new TestSynthesis();
+        final ViewContext viewContext = new ViewContext((IDiagramWorkbenchPart) null, model);
+        // mimics ViewContext.configure(), which requires the synthesis to be registered
+        viewContext.getDisplayedSynthesisOptions().addAll(synthesis.getDisplayedSynthesisOptions());
+
+        synthesis.transform(model, viewContext);
+        final SynthesisMemoizer runMemoizer = SynthesisMemoizer.getMemoizer(viewContext);
+        Assert.assertEquals(2, runMemoizer.getMisses());
+        Assert.assertEquals(0, runMemoizer.getHits());
+
+        final KNode result = synthesis.transform(model, viewContext);
+        Assert.assertEquals(2, runMemoizer.getMisses());
+        Assert.assertEquals(2, runMemoizer.getHits());
+        Assert.assertEquals(2, result.getChildren().size());
+
+        viewContext.configureOption(OPTION, false);
+        synthesis.transform(model, viewContext);
+        Assert.assertEquals(4, runMemoizer.getMisses());
+        Assert.assertEquals(2, runMemoizer.getHits());
+    }
+
+    @Test
+    public void edgeIntoMemoizedNode() {
+        final KNode model = KGraphUtil.createInitializedNode();
+        final KNode a = KGraphUtil.createInitializedNode();
+        final KNode b = KGraphUtil.createInitializedNode();
+        model.getChildren().add(a);
+        model.getChildren().add(b);
+        final KEdge edge = KGraphUtil.createInitializedEdge();
+        edge.setSource(a);
+        edge.setTarget(b);
+
+        final ReinitializingDiagramSynthesisProxy<KNode> synthesis =
+                GuiceBasedSynthesisFactory.getReinitializingDiagramSynthesisProxy(EdgeSynthesis.class);
+        final ViewContext viewContext = new ViewContext((IDiagramWorkbenchPart) null, model);
+        synthesis.transform(model, viewContext);
+        final KNode result = synthesis.transform(model, viewContext);
+
+        final SynthesisMemoizer runMemoizer = SynthesisMemoizer.getMemoizer(viewContext);
+        Assert.assertEquals(2, runMemoizer.getHits());
+        Assert.assertEquals(2, result.getChildren().size());
+        final KNode source = result.getChildren().get(0);
+        final KNode target = result.getChildren().get(1);
+        Assert.assertEquals(1, source.getOutgoingEdges().size());
+        Assert.assertSame(target, source.getOutgoingEdges().get(0).getTarget());
+        Assert.assertEquals(1, target.getIncomingEdges().size());
+    }
+
+    @Test
+    public void nestedStamps() {
+        final KNode root = KGraphUtil.createInitializedNode();
+        final KNode child = KGraphUtil.createInitializedNode();
+        final KNode sibling = KGraphUtil.createInitializedNode();
+        final KNode grandChild = KGraphUtil.createInitializedNode();
+        root.getChildren().add(child);
+        root.getChildren().add(sibling);
+        child.getChildren().add(grandChild);
+
+        final Object rootStamp = SynthesisMemoizer.getModificationStamp(root);
+        final Object childStamp = SynthesisMemoizer.getModificationStamp(child);
+        final Object siblingStamp = SynthesisMemoizer.getModificationStamp(sibling);
+        final Object grandChildStamp = SynthesisMemoizer.getModificationStamp(grandChild);
+        // one adapter of the root observes all elements
+        Assert.assertEquals(1, grandChild.eAdapters().size());
+
+        grandChild.setProperty(new Property<String>("test.changed"), "changed");
+        Assert.assertNotEquals(rootStamp, SynthesisMemoizer.getModificationStamp(root));
+        Assert.assertNotEquals(childStamp, SynthesisMemoizer.getModificationStamp(child));
+        Assert.assertNotEquals(grandChildStamp, SynthesisMemoizer.getModificationStamp(grandChild));
+        Assert.assertEquals(siblingStamp, SynthesisMemoizer.getModificationStamp(sibling));
+    }
+
+    @Test
+    public void adaptersDetachedOnClear() {
+        final KNode root = KGraphUtil.createInitializedNode();
+        final KNode child = KGraphUtil.createInitializedNode();
+        root.getChildren().add(child);
+        transform(root);
+        transform(child);
+        Assert.assertEquals(1, root.eAdapters().size());
+        Assert.assertEquals(1, child.eAdapters().size());
+
+        memoizer.clear();
+        Assert.assertTrue(root.eAdapters().isEmpty());
+        Assert.assertTrue(child.eAdapters().isEmpty());
+
+        // new stamps don't match the ones of the detached adapter
+        transform(child);
+        Assert.assertEquals(3, memoizer.getMisses());
+    }
+
+    @Test
+    public void adaptersDetachedAfterUnusedRun() {
+        final KNode model = KGraphUtil.createInitializedNode();
+        model.getChildren().add(KGraphUtil.createInitializedNode());
+
+        final TestSynthesis synthesis = new TestSynthesis();
+        final ViewContext viewContext = new ViewContext((IDiagramWorkbenchPart) null, model);
+        viewContext.getDisplayedSynthesisOptions().addAll(synthesis.getDisplayedSynthesisOptions());
+        synthesis.transform(model, viewContext);
+        Assert.assertEquals(1, model.eAdapters().size());
+
+        // the next model's elements are not contained in the previous one
+        final KNode otherModel = KGraphUtil.createInitializedNode();
+        synthesis.transform(otherModel, viewContext);
+        synthesis.transform(otherModel, viewContext);
+        Assert.assertTrue(model.eAdapters().isEmpty());
+
+        otherModel.getChildren().add(KGraphUtil.createInitializedNode());
+        synthesis.transform(otherModel, viewContext);
+        Assert.assertEquals(1, otherModel.eAdapters().size());
+        SynthesisMemoizer.discard(viewContext);
+        Assert.assertTrue(otherModel.eAdapters().isEmpty());
+    }
+
+    @Test
+    public void retainedModificationStamps() {
+        final KNode model = KGraphUtil.createInitializedNode();
+        final TestSynthesis synthesis = new TestSynthesis();
+        final ViewContext viewContext = new ViewContext((IDiagramWorkbenchPart) null, model);
+        viewContext.getDisplayedSynthesisOptions().addAll(synthesis.getDisplayedSynthesisOptions());
+        final SynthesisMemoizer runMemoizer = SynthesisMemoizer.getMemoizer(viewContext);
+
+        // the stamp is requested before each run, like the language server does
+        for (int i = 0; i < 3; i++) {
+            final Object stamp = runMemoizer.retainModificationStamp(model);
+            synthesis.transform(model, viewContext);
+            Assert.assertEquals(stamp, runMemoizer.retainModificationStamp(model));
+        }
+        Assert.assertEquals(1, model.eAdapters().size());
+
+        SynthesisMemoizer.discard(viewContext);
+        Assert.assertTrue(model.eAdapters().isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * KIELER - Kiel Integrated Environment for Layout Eclipse RichClient
+ *
+ * http://rtsys.informatik.uni-kiel.de/kieler
+ *
+ * Copyright 2020 by
+ * + Kiel University
+ *   + Department of Computer Science
+ *     + Real-Time and Embedded Systems Group
+ *
+ * This code is provided under the terms of the Eclipse Public License (EPL).
+ */
+package de.cau.cs.kieler.klighd.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+
+import de.cau.cs.kieler.klighd.incremental.util.UIDAdapter;
+import de.cau.cs.kieler.klighd.kgraph.KEdge;
+import de.cau.cs.kieler.klighd.kgraph.KLabel;
+import de.cau.cs.kieler.klighd.kgraph.KNode;
+import de.cau.cs.kieler.klighd.kgraph.util.KGraphUtil;
+
+/**
+ * Tests of the ids computed by {@link UIDAdapter}.
+ *
+ * @author nre
+ */
+public class UIDAdapterTest {
+
+    // CHECKSTYLEOFF Javadoc|MagicNumber
+
+    private static KNode createWideGraph(final int width) {
+        final KNode root = KGraphUtil.createInitializedNode();
+        for (int i = 0; i < width; i++) {
+            root.getChildren().add(KGraphUtil.createInitializedNode());
+        }
+        return root;
+    }
+
+    private static UIDAdapter createAdapter(final KNode root) {
+        final UIDAdapter adapter = new UIDAdapter();
+        root.eAdapters().add(adapter);
+        adapter.generateIDs(root);
+        return adapter;
+    }
+
+    @Test
+    public void wideGraph() {
+        final KNode root = createWideGraph(20000);
+        // connect each child to its next sibling, whose id is part of the edge's id
+        for (int i = 1; i < root.getChildren().size(); i++) {
+            final KEdge edge = KGraphUtil.createInitializedEdge();
+            edge.setSource(root.getChildren().get(i - 1));
+            edge.setTarget(root.getChildren().get(i));
+        }
+        final UIDAdapter adapter = createAdapter(root);
+
+        Assert.assertEquals(20001, adapter.getNodeIds().size());
+        Assert.assertEquals(19999, adapter.getEdgeIds().size());
+        Assert.assertEquals("$root$N0", adapter.getId(root.getChildren().get(0)));
+        Assert.assertEquals("$root$N19999", adapter.getId(root.getChildren().get(19999)));
+        Assert.assertEquals("$root$N0$E->$root$N1:",
+                adapter.getId(root.getChildren().get(0).getOutgoingEdges().get(0)));
+        Assert.assertEquals("$root$N19998$E->$root$N19999:",
+                adapter.getId(root.getChildren().get(19998).getOutgoingEdges().get(0)));
+    }
+
+    @Test
+    public void clashingLabels() {
+        final KNode root = createWideGraph(1000);
+        for (final KNode child : root.getChildren()) {
+            final KLabel label = KGraphUtil.createInitializedLabel(child);
+            label.setText("label");
+        }
+        final UIDAdapter adapter = createAdapter(root);
+
+        Assert.assertEquals("$root$label", adapter.getId(root.getChildren().get(0)));
+        Assert.assertEquals("$root$label$$copy2", adapter.getId(root.getChildren().get(1)));
+        Assert.assertEquals("$root$label$$copy1000", adapter.getId(root.getChildren().get(999)));
+
+        // a freed copy number is used again
+        final KNode removed = root.getChildren().remove(1);
+        Assert.assertNull(adapter.getId(removed));
+        root.getChildren().add(removed);
+        adapter.generateIDs(removed);
+        Assert.assertEquals("$root$label$$copy2", adapter.getId(removed));
+    }
+
+    @Test
+    public void longLabels() {
+        final String text = Strings.repeat("long label ", 100);
+        final KNode root1 = createWideGraph(1);
+        KGraphUtil.createInitializedLabel(root1.getChildren().get(0)).setText(text);
+        final KNode root2 = createWideGraph(1);
+        KGraphUtil.createInitializedLabel(root2.getChildren().get(0)).setText(text);
+
+        final String id = createAdapter(root1).getId(root1.getChildren().get(0));
+        Assert.assertTrue(id.length() < text.length());
+        Assert.assertEquals(id, createAdapter(root2).getId(root2.getChildren().get(0)));
+    }
+}